@@ -0,0 +1,801 @@
+package algorithms.core;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Иерархический поиск пути (HPA*) на прямоугольном игровом поле.
+ * <p>
+ * Игровое поле делится на кластеры фиксированного размера. На каждой границе
+ * соседних кластеров отрезки, проходимые с обеих сторон, образуют входы: по
+ * одному переходу посередине узкого входа и по два на краях широкого. Клетки
+ * переходов становятся вершинами абстрактного графа, рёбрами - переходы через
+ * границу (длина 1) и кратчайшие пути между вершинами одного кластера,
+ * рассчитанные заранее поиском в ширину в пределах кластера.
+ * <p>
+ * Поиск пути выполняется алгоритмом A* по абстрактному графу: исходная и
+ * целевая клетки временно присоединяются к вершинам своих кластеров. Найденный
+ * путь уточняется до действий по клеткам лениво - по одному отрезку между
+ * вершинами по мере извлечения действий из возвращаемой очереди. Длина пути
+ * известна сразу, так как длины рёбер точны. Путь может быть несколько длиннее
+ * кратчайшего: переход между кластерами возможен только через выбранные
+ * клетки входов.
+ * <p>
+ * При изменении проходимости клетки ({@link setCellMovable}) пересчитываются
+ * только входы на затронутых границах и рёбра кластера клетки и его соседей по
+ * этим границам. Очередь действий, полученная до изменения, уточняется по
+ * новому состоянию поля и обрывается на отрезке, ставшем непроходимым.
+ * <p>
+ * Переходы между клетками - четыре действия передвижения на соседнюю клетку.
+ * Методы поиска и изменения поля синхронизированы на экземпляре.
+ *
+ * @param <T> тип действий, предпринимаемых игроками
+ */
+public class HierarchicalPathfinder<T> implements ISearchAlgorithm<T, IBasicState<T>> {
+
+    /**
+     * Размер кластера по умолчанию, в клетках.
+     */
+    public static final int DEFAULT_CLUSTER_SIZE = 32;
+
+    // Входы не уже этого значения получают по переходу на каждом краю
+    private static final int WIDE_ENTRANCE = 6;
+
+    // Смещения передвижений: север, запад, юг, восток
+    private static final int[] DX = {0, -1, 0, 1};
+    private static final int[] DY = {-1, 0, 1, 0};
+
+    private static final int[] NO_EDGES = new int[0];
+
+    private final int width;
+    private final int height;
+    private final int clusterSize;
+    private final int clustersX;
+    private final int clustersY;
+    private final List<T> moves;
+    private final boolean[] movable;
+
+    // Вершины абстрактного графа: по номеру и по клетке
+    private final List<Node> nodes = new ArrayList<Node>();
+    private final List<Integer> freeIds = new ArrayList<Integer>();
+    private final int[] nodeOfCell;
+    private final List<List<Node>> clusterNodes;
+
+    // Пары вершин переходов через восточную и южную границы каждого кластера
+    private final List<List<Node[]>> eastTransitions;
+    private final List<List<Node[]>> southTransitions;
+
+    // Рабочие массивы поиска в ширину в пределах кластера
+    private final int[] localDistances;
+    private final int[] localStamps;
+    private final int[] localQueue;
+    private int localSearch = 0;
+
+    // Рабочие массивы поиска по абстрактному графу
+    private int[] costs = new int[0];
+    private int[] parents = new int[0];
+    private int[] stamps = new int[0];
+    private int[] goalCosts = new int[0];
+    private int[] goalStamps = new int[0];
+    private int search = 0;
+
+    // Двоичная куча открытых вершин: ключ - оценка длины пути, при равенстве
+    // оценок раньше извлекается вершина, дальше продвинувшаяся к цели
+    private long[] heapKeys = new long[64];
+    private int[] heapIds = new int[64];
+    private int heapSize = 0;
+
+    /**
+     * Вершина абстрактного графа - клетка перехода между кластерами.
+     */
+    private static final class Node {//<editor-fold defaultstate="collapsed">
+
+        private final int id;
+        private final int cell;
+        private final int x;
+        private final int y;
+        private final int cluster;
+        private int[] targets = NO_EDGES;
+        private int[] lengths = NO_EDGES;
+        private final List<Node> crossings = new ArrayList<Node>(2);
+        private int borders = 0;
+
+        private Node(int id, int cell, int width, int cluster) {
+            this.id = id;
+            this.cell = cell;
+            this.x = cell % width;
+            this.y = cell / width;
+            this.cluster = cluster;
+        }
+        //</editor-fold>
+    }
+
+    /**
+     * Строит абстрактный граф с кластерами размера по умолчанию.
+     *
+     * @param size размер игрового поля, в клетках
+     * @param cells проходимые клетки игрового поля
+     * @param moves действия передвижения на север, запад, юг и восток
+     */
+    public HierarchicalPathfinder(Dimension size, Collection<Point> cells, List<T> moves) {
+        this(size, cells, moves, DEFAULT_CLUSTER_SIZE);
+    }
+
+    /**
+     * Строит абстрактный граф.
+     *
+     * @param size размер игрового поля, в клетках
+     * @param cells проходимые клетки игрового поля
+     * @param moves действия передвижения на север, запад, юг и восток
+     * @param clusterSize размер кластера, в клетках
+     */
+    public HierarchicalPathfinder(Dimension size, Collection<Point> cells, List<T> moves, int clusterSize) {
+        if (moves.size() != DX.length) {
+            throw new IllegalArgumentException("Требуется четыре действия передвижения: " + moves);
+        }
+        if (clusterSize < 2) {
+            throw new IllegalArgumentException("Недопустимый размер кластера: " + clusterSize);
+        }
+        this.width = size.width;
+        this.height = size.height;
+        this.clusterSize = clusterSize;
+        this.clustersX = (width + clusterSize - 1) / clusterSize;
+        this.clustersY = (height + clusterSize - 1) / clusterSize;
+        this.moves = new ArrayList<T>(moves);
+        this.movable = new boolean[width * height];
+        for (Point cell : cells) {
+            if (isInside(cell.x, cell.y)) {
+                movable[cell.y * width + cell.x] = true;
+            }
+        }
+        this.nodeOfCell = new int[width * height];
+        Arrays.fill(nodeOfCell, -1);
+
+        int clusters = clustersX * clustersY;
+        clusterNodes = new ArrayList<List<Node>>(clusters);
+        eastTransitions = new ArrayList<List<Node[]>>(clusters);
+        southTransitions = new ArrayList<List<Node[]>>(clusters);
+        for (int i = 0; i < clusters; i++) {
+            clusterNodes.add(new ArrayList<Node>());
+            eastTransitions.add(new ArrayList<Node[]>());
+            southTransitions.add(new ArrayList<Node[]>());
+        }
+        localDistances = new int[clusterSize * clusterSize];
+        localStamps = new int[clusterSize * clusterSize];
+        localQueue = new int[clusterSize * clusterSize];
+
+        for (int cluster = 0; cluster < clusters; cluster++) {
+            buildEastBorder(cluster);
+            buildSouthBorder(cluster);
+        }
+        for (int cluster = 0; cluster < clusters; cluster++) {
+            buildEdges(cluster);
+        }
+    }
+
+    //--------------------------------------------------- Построение графа
+
+    /**
+     * Прокладывает переходы через восточную границу кластера.
+     */
+    private void buildEastBorder(int cluster) {
+        List<Node[]> transitions = eastTransitions.get(cluster);
+        clearTransitions(transitions);
+        int cx = cluster % clustersX;
+        int cy = cluster / clustersX;
+        if (cx + 1 >= clustersX) {
+            return;
+        }
+        int x = (cx + 1) * clusterSize - 1;
+        int top = cy * clusterSize;
+        int bottom = Math.min(top + clusterSize, height);
+        int runStart = -1;
+        for (int y = top; y <= bottom; y++) {
+            boolean open = (y < bottom) && movable[y * width + x] && movable[y * width + x + 1];
+            if (open && runStart < 0) {
+                runStart = y;
+            } else if (!open && runStart >= 0) {
+                for (int entry : entranceOffsets(runStart, y)) {
+                    addTransition(transitions, entry * width + x, entry * width + x + 1);
+                }
+                runStart = -1;
+            }
+        }
+    }
+
+    /**
+     * Прокладывает переходы через южную границу кластера.
+     */
+    private void buildSouthBorder(int cluster) {
+        List<Node[]> transitions = southTransitions.get(cluster);
+        clearTransitions(transitions);
+        int cx = cluster % clustersX;
+        int cy = cluster / clustersX;
+        if (cy + 1 >= clustersY) {
+            return;
+        }
+        int y = (cy + 1) * clusterSize - 1;
+        int left = cx * clusterSize;
+        int right = Math.min(left + clusterSize, width);
+        int runStart = -1;
+        for (int x = left; x <= right; x++) {
+            boolean open = (x < right) && movable[y * width + x] && movable[(y + 1) * width + x];
+            if (open && runStart < 0) {
+                runStart = x;
+            } else if (!open && runStart >= 0) {
+                for (int entry : entranceOffsets(runStart, x)) {
+                    addTransition(transitions, y * width + entry, (y + 1) * width + entry);
+                }
+                runStart = -1;
+            }
+        }
+    }
+
+    /**
+     * @return координаты переходов входа, занимающего отрезок [from, to)
+     */
+    private static int[] entranceOffsets(int from, int to) {
+        if (to - from >= WIDE_ENTRANCE) {
+            return new int[]{from, to - 1};
+        }
+        return new int[]{(from + to - 1) / 2};
+    }
+
+    private void addTransition(List<Node[]> transitions, int cell, int neighbour) {
+        Node a = obtainNode(cell);
+        Node b = obtainNode(neighbour);
+        a.crossings.add(b);
+        b.crossings.add(a);
+        a.borders++;
+        b.borders++;
+        transitions.add(new Node[]{a, b});
+    }
+
+    private void clearTransitions(List<Node[]> transitions) {
+        for (Node[] pair : transitions) {
+            pair[0].crossings.remove(pair[1]);
+            pair[1].crossings.remove(pair[0]);
+            for (Node node : pair) {
+                if (--node.borders == 0) {
+                    releaseNode(node);
+                }
+            }
+        }
+        transitions.clear();
+    }
+
+    private Node obtainNode(int cell) {
+        if (nodeOfCell[cell] >= 0) {
+            return nodes.get(nodeOfCell[cell]);
+        }
+        Node node = newNode(cell);
+        nodeOfCell[cell] = node.id;
+        clusterNodes.get(node.cluster).add(node);
+        return node;
+    }
+
+    private Node newNode(int cell) {
+        int id;
+        if (freeIds.isEmpty()) {
+            id = nodes.size();
+            nodes.add(null);
+        } else {
+            id = freeIds.remove(freeIds.size() - 1);
+        }
+        Node node = new Node(id, cell, width, clusterOf(cell));
+        nodes.set(id, node);
+        return node;
+    }
+
+    private void releaseNode(Node node) {
+        if (nodeOfCell[node.cell] == node.id) {
+            nodeOfCell[node.cell] = -1;
+            clusterNodes.get(node.cluster).remove(node);
+        }
+        nodes.set(node.id, null);
+        freeIds.add(node.id);
+    }
+
+    /**
+     * Рассчитывает рёбра между вершинами кластера.
+     */
+    private void buildEdges(int cluster) {
+        List<Node> members = clusterNodes.get(cluster);
+        for (Node node : members) {
+            searchCluster(node.cell);
+            int[] targets = new int[members.size()];
+            int[] lengths = new int[members.size()];
+            int count = 0;
+            for (Node other : members) {
+                int distance = localDistance(other.cell);
+                if (other != node && distance >= 0) {
+                    targets[count] = other.id;
+                    lengths[count] = distance;
+                    count++;
+                }
+            }
+            node.targets = Arrays.copyOf(targets, count);
+            node.lengths = Arrays.copyOf(lengths, count);
+        }
+    }
+
+    //------------------------------------------ Поиск в пределах кластера
+
+    /**
+     * Поиск в ширину от клетки по проходимым клеткам её кластера.
+     */
+    private void searchCluster(int source) {
+        int cluster = clusterOf(source);
+        int left = (cluster % clustersX) * clusterSize;
+        int top = (cluster / clustersX) * clusterSize;
+        int right = Math.min(left + clusterSize, width);
+        int bottom = Math.min(top + clusterSize, height);
+        localSearch++;
+        int head = 0;
+        int tail = 0;
+        int local = localIndex(source);
+        localStamps[local] = localSearch;
+        localDistances[local] = 0;
+        localQueue[tail++] = source;
+        while (head < tail) {
+            int cell = localQueue[head++];
+            int x = cell % width;
+            int y = cell / width;
+            int distance = localDistances[localIndex(cell)];
+            for (int move = 0; move < DX.length; move++) {
+                int nx = x + DX[move];
+                int ny = y + DY[move];
+                if (nx < left || nx >= right || ny < top || ny >= bottom) {
+                    continue;
+                }
+                int next = ny * width + nx;
+                int nextLocal = localIndex(next);
+                if (movable[next] && localStamps[nextLocal] != localSearch) {
+                    localStamps[nextLocal] = localSearch;
+                    localDistances[nextLocal] = distance + 1;
+                    localQueue[tail++] = next;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return расстояние до клетки по последнему поиску в кластере или
+     * <code>-1</code>, если клетка не достигнута
+     */
+    private int localDistance(int cell) {
+        int local = localIndex(cell);
+        return (localStamps[local] == localSearch) ? localDistances[local] : -1;
+    }
+
+    private int localIndex(int cell) {
+        return ((cell / width) % clusterSize) * clusterSize + (cell % width) % clusterSize;
+    }
+
+    private int clusterOf(int cell) {
+        return ((cell / width) / clusterSize) * clustersX + (cell % width) / clusterSize;
+    }
+
+    private boolean isInside(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    //--------------------------------------------------- Изменение поля
+
+    /**
+     * Изменяет проходимость клетки и пересчитывает затронутую часть графа.
+     *
+     * @param cell клетка игрового поля
+     * @param isMovable <code>true</code>, если клетка становится проходимой
+     */
+    public synchronized void setCellMovable(Point cell, boolean isMovable) {
+        if (!isInside(cell.x, cell.y)) {
+            throw new IllegalArgumentException("Клетка за пределами игрового поля: " + cell);
+        }
+        int index = cell.y * width + cell.x;
+        if (movable[index] == isMovable) {
+            return;
+        }
+        movable[index] = isMovable;
+
+        int cx = cell.x / clusterSize;
+        int cy = cell.y / clusterSize;
+        int cluster = cy * clustersX + cx;
+        List<Integer> touched = new ArrayList<Integer>(3);
+        touched.add(cluster);
+        if (cell.x % clusterSize == 0 && cx > 0) {
+            buildEastBorder(cluster - 1);
+            touched.add(cluster - 1);
+        }
+        if (cell.x % clusterSize == clusterSize - 1 && cx + 1 < clustersX) {
+            buildEastBorder(cluster);
+            touched.add(cluster + 1);
+        }
+        if (cell.y % clusterSize == 0 && cy > 0) {
+            buildSouthBorder(cluster - clustersX);
+            touched.add(cluster - clustersX);
+        }
+        if (cell.y % clusterSize == clusterSize - 1 && cy + 1 < clustersY) {
+            buildSouthBorder(cluster);
+            touched.add(cluster + clustersX);
+        }
+        for (int updated : touched) {
+            buildEdges(updated);
+        }
+    }
+
+    /**
+     * @param cell клетка игрового поля
+     * @return <code>true</code>, если клетка проходима
+     */
+    public synchronized boolean isCellMovable(Point cell) {
+        return isInside(cell.x, cell.y) && movable[cell.y * width + cell.x];
+    }
+
+    //--------------------------------------------------------- Свойства графа
+
+    /**
+     * @return количество вершин абстрактного графа
+     */
+    public synchronized int getNodesCount() {
+        return nodes.size() - freeIds.size();
+    }
+
+    /**
+     * @return размер кластера, в клетках
+     */
+    public int getClusterSize() {
+        return clusterSize;
+    }
+
+    //---------------------------------------------------------- Поиск пути
+
+    @Override
+    public Queue<T> getSolution(IBasicState<T> gameState, Point start, Point goal, int playerId) {
+        return getSolution(start, goal);
+    }
+
+    /**
+     * Получить решение.
+     * <p>
+     * Возвращает последовательность действий, ведущих через проходимые клетки
+     * игрового поля от <code>start</code> к <code>goal</code>. Возвращает
+     * пустую очередь, если путь не существует, если клетки непроходимы или
+     * совпадают.
+     *
+     * @param start исходное расположение
+     * @param goal целевая координата
+     * @return последовательность действий, уточняемая по мере извлечения
+     */
+    public synchronized Queue<T> getSolution(Point start, Point goal) {
+        if (start.equals(goal) || !isCellMovable(start) || !isCellMovable(goal)) {
+            return new LinkedList<T>();
+        }
+        int startCell = start.y * width + start.x;
+        int goalCell = goal.y * width + goal.x;
+
+        // Временные вершины исходной и целевой клеток
+        Node startNode = (nodeOfCell[startCell] >= 0) ? nodes.get(nodeOfCell[startCell]) : null;
+        Node goalNode = (nodeOfCell[goalCell] >= 0) ? nodes.get(nodeOfCell[goalCell]) : null;
+        boolean temporaryStart = (startNode == null);
+        boolean temporaryGoal = (goalNode == null);
+        if (temporaryGoal) {
+            goalNode = newNode(goalCell);
+        }
+        if (temporaryStart) {
+            startNode = newNode(startCell);
+        }
+        prepareSearch();
+        if (temporaryGoal) {
+            searchCluster(goalCell);
+            for (Node node : clusterNodes.get(goalNode.cluster)) {
+                int distance = localDistance(node.cell);
+                if (distance >= 0) {
+                    goalStamps[node.id] = search;
+                    goalCosts[node.id] = distance;
+                }
+            }
+        }
+        if (temporaryStart) {
+            searchCluster(startCell);
+            List<Node> members = clusterNodes.get(startNode.cluster);
+            int[] targets = new int[members.size() + 1];
+            int[] lengths = new int[members.size() + 1];
+            int count = 0;
+            for (Node node : members) {
+                int distance = localDistance(node.cell);
+                if (distance >= 0) {
+                    targets[count] = node.id;
+                    lengths[count] = distance;
+                    count++;
+                }
+            }
+            if (temporaryGoal && goalNode.cluster == startNode.cluster && localDistance(goalCell) >= 0) {
+                targets[count] = goalNode.id;
+                lengths[count] = localDistance(goalCell);
+                count++;
+            }
+            startNode.targets = Arrays.copyOf(targets, count);
+            startNode.lengths = Arrays.copyOf(lengths, count);
+        }
+
+        int[] route = findRoute(startNode, goalNode, temporaryGoal);
+
+        if (temporaryStart) {
+            nodes.set(startNode.id, null);
+            freeIds.add(startNode.id);
+        }
+        if (temporaryGoal) {
+            nodes.set(goalNode.id, null);
+            freeIds.add(goalNode.id);
+        }
+        if (route == null) {
+            return new LinkedList<T>();
+        }
+        return new RefinedPath(route);
+    }
+
+    private void prepareSearch() {
+        if (costs.length < nodes.size()) {
+            int capacity = Math.max(nodes.size(), costs.length * 2);
+            costs = new int[capacity];
+            parents = new int[capacity];
+            stamps = new int[capacity];
+            goalCosts = new int[capacity];
+            goalStamps = new int[capacity];
+            search = 0;
+        }
+        search++;
+    }
+
+    /**
+     * Алгоритм A* по абстрактному графу.
+     *
+     * @return клетки вершин пути от исходной до целевой и длины отрезков
+     * между ними, чередуясь, или <code>null</code>, если путь не существует
+     */
+    private int[] findRoute(Node startNode, Node goalNode, boolean temporaryGoal) {
+        heapSize = 0;
+        stamps[startNode.id] = search;
+        costs[startNode.id] = 0;
+        parents[startNode.id] = -1;
+        push(startNode.id, estimate(startNode, goalNode), 0);
+        while (heapSize > 0) {
+            long key = heapKeys[0];
+            int id = pop();
+            Node node = nodes.get(id);
+            if ((int) (key >>> 32) > costs[id] + estimate(node, goalNode)) {
+                continue;
+            }
+            if (node == goalNode) {
+                return unwindRoute(goalNode);
+            }
+            for (int i = 0; i < node.targets.length; i++) {
+                relax(node, nodes.get(node.targets[i]), node.lengths[i], goalNode);
+            }
+            for (Node crossing : node.crossings) {
+                relax(node, crossing, 1, goalNode);
+            }
+            if (temporaryGoal && goalStamps[id] == search) {
+                relax(node, goalNode, goalCosts[id], goalNode);
+            }
+        }
+        return null;
+    }
+
+    private void relax(Node from, Node to, int length, Node goalNode) {
+        int cost = costs[from.id] + length;
+        if (stamps[to.id] != search || cost < costs[to.id]) {
+            stamps[to.id] = search;
+            costs[to.id] = cost;
+            parents[to.id] = from.id;
+            push(to.id, cost + estimate(to, goalNode), cost);
+        }
+    }
+
+    private void push(int id, int estimate, int cost) {
+        if (heapSize == heapKeys.length) {
+            heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+            heapIds = Arrays.copyOf(heapIds, heapSize * 2);
+        }
+        long key = ((long) estimate << 32) | (Integer.MAX_VALUE - cost);
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (heapKeys[parent] <= key) {
+                break;
+            }
+            heapKeys[i] = heapKeys[parent];
+            heapIds[i] = heapIds[parent];
+            i = parent;
+        }
+        heapKeys[i] = key;
+        heapIds[i] = id;
+    }
+
+    private int pop() {
+        int top = heapIds[0];
+        long key = heapKeys[--heapSize];
+        int id = heapIds[heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) {
+                child++;
+            }
+            if (key <= heapKeys[child]) {
+                break;
+            }
+            heapKeys[i] = heapKeys[child];
+            heapIds[i] = heapIds[child];
+            i = child;
+        }
+        heapKeys[i] = key;
+        heapIds[i] = id;
+        return top;
+    }
+
+    private int[] unwindRoute(Node goalNode) {
+        LinkedList<Integer> path = new LinkedList<Integer>();
+        for (int id = goalNode.id; id >= 0; id = parents[id]) {
+            path.addFirst(id);
+        }
+        int[] route = new int[path.size() * 2 - 1];
+        int i = 0;
+        int previous = -1;
+        for (int id : path) {
+            if (previous >= 0) {
+                route[i++] = costs[id] - costs[previous];
+            }
+            route[i++] = nodes.get(id).cell;
+            previous = id;
+        }
+        return route;
+    }
+
+    private static int estimate(Node from, Node to) {
+        return Math.abs(from.x - to.x) + Math.abs(from.y - to.y);
+    }
+
+    /**
+     * Уточняет отрезок пути между соседними вершинами до действий по клеткам.
+     *
+     * @return действия отрезка или <code>null</code>, если отрезок стал
+     * непроходим
+     */
+    private synchronized List<T> refineSegment(int from, int to, int length) {
+        List<T> actions = new ArrayList<T>(length);
+        if (clusterOf(from) != clusterOf(to)) {
+            int move = moveBetween(from, to);
+            if (move < 0 || !movable[from] || !movable[to]) {
+                return null;
+            }
+            actions.add(moves.get(move));
+            return actions;
+        }
+        // Поиск от конца отрезка: путь восстанавливается по убыванию расстояния
+        searchCluster(to);
+        if (!movable[from] || localDistance(from) != length) {
+            return null;
+        }
+        int cell = from;
+        while (cell != to) {
+            int distance = localDistance(cell);
+            int x = cell % width;
+            int y = cell / width;
+            for (int move = 0; move < DX.length; move++) {
+                int nx = x + DX[move];
+                int ny = y + DY[move];
+                if (!isInside(nx, ny)) {
+                    continue;
+                }
+                int next = ny * width + nx;
+                if (clusterOf(next) == clusterOf(to) && localDistance(next) == distance - 1) {
+                    actions.add(moves.get(move));
+                    cell = next;
+                    break;
+                }
+            }
+        }
+        return actions;
+    }
+
+    private int moveBetween(int from, int to) {
+        int dx = to % width - from % width;
+        int dy = to / width - from / width;
+        for (int move = 0; move < DX.length; move++) {
+            if (DX[move] == dx && DY[move] == dy) {
+                return move;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Очередь действий пути, уточняемая по отрезкам по мере извлечения.
+     */
+    private final class RefinedPath extends AbstractQueue<T> {//<editor-fold defaultstate="collapsed">
+
+        private final int[] route;
+        private final LinkedList<T> refined = new LinkedList<T>();
+        private int nextSegment = 1;
+        private int unrefinedLength = 0;
+
+        private RefinedPath(int[] route) {
+            this.route = route;
+            for (int i = 1; i < route.length; i += 2) {
+                unrefinedLength += route[i];
+            }
+        }
+
+        /**
+         * Уточняет следующий отрезок пути.
+         *
+         * @return <code>false</code>, если неуточнённых отрезков не осталось
+         */
+        private boolean refineNext() {
+            if (nextSegment >= route.length) {
+                return false;
+            }
+            int length = route[nextSegment];
+            List<T> actions = refineSegment(route[nextSegment - 1], route[nextSegment + 1], length);
+            if (actions == null) {
+                nextSegment = route.length;
+                unrefinedLength = 0;
+                return false;
+            }
+            refined.addAll(actions);
+            unrefinedLength -= length;
+            nextSegment += 2;
+            return true;
+        }
+
+        private void refineAll() {
+            while (refineNext()) {
+            }
+        }
+
+        @Override
+        public boolean offer(T action) {
+            refineAll();
+            return refined.offer(action);
+        }
+
+        @Override
+        public T poll() {
+            while (refined.isEmpty() && refineNext()) {
+            }
+            return refined.poll();
+        }
+
+        @Override
+        public T peek() {
+            while (refined.isEmpty() && refineNext()) {
+            }
+            return refined.peek();
+        }
+
+        @Override
+        public int size() {
+            return refined.size() + unrefinedLength;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            refineAll();
+            return refined.iterator();
+        }
+        //</editor-fold>
+    }
+}
@@ -0,0 +1,422 @@
+package algorithms.core;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+
+/**
+ * Граф развилок игрового поля.
+ * <p>
+ * Сжимает граф клеток игрового поля: вершинами становятся развилки и тупики
+ * (клетки, из которых ведёт не два перехода), рёбрами - коридоры между ними с
+ * длиной и последовательностью действий прохода. Поиск кратчайшего пути
+ * (алгоритм Дейкстры) выполняется по развилкам, после чего путь
+ * разворачивается обратно в последовательность действий по клеткам. Объём
+ * работы поиска пропорционален количеству развилок, а не клеток.
+ * <p>
+ * Граф строится однократно по переходам {@link IBasicState#getLegalActionsAsMap}
+ * и пригоден, пока не изменяется проходимость клеток. Состояние игры,
+ * переданное в {@link getSolution}, не используется: переходы, зависящие от
+ * расположения игроков ({@link IBasicState#getLegalActionsAsMapNoKins}), не
+ * учитываются.
+ * <p>
+ * Переходы считаются обратимыми: если из A есть переход в B, то из B есть
+ * переход в A. Потоково-безопасен после создания.
+ *
+ * @param <T> тип действий, предпринимаемых игроками
+ */
+public class JunctionGraph<T> implements ISearchAlgorithm<T, IBasicState<T>> {
+
+    // Порядок записей очереди поиска [расстояние, вершина, выход] по расстоянию
+    private static final Comparator<long[]> DISTANCE_ORDER = new Comparator<long[]>() {
+        @Override
+        public int compare(long[] a, long[] b) {
+            return Long.compare(a[0], b[0]);
+        }
+    };
+
+    private final List<Point> nodes = new ArrayList<Point>();
+    private final Map<Point, Integer> nodeIds = new HashMap<Point, Integer>();
+    private final List<List<Corridor<T>>> corridors = new ArrayList<List<Corridor<T>>>();
+
+    // Клетки коридоров: коридор, проходящий через клетку, и номер клетки в нём
+    private final Map<Point, Corridor<T>> cellCorridors = new HashMap<Point, Corridor<T>>();
+    private final Map<Point, Integer> cellOffsets = new HashMap<Point, Integer>();
+
+    /**
+     * Коридор - ребро графа развилок: путь от одной развилки до другой через
+     * клетки с двумя переходами.
+     *
+     * @param <T> тип действий, предпринимаемых игроками
+     */
+    public static final class Corridor<T> {//<editor-fold defaultstate="collapsed">
+
+        private final int from;
+        private final int to;
+        private final List<T> actions;
+        private final List<Point> cells;
+        private Corridor<T> reverse;
+
+        private Corridor(int from, int to, List<T> actions, List<Point> cells) {
+            this.from = from;
+            this.to = to;
+            this.actions = actions;
+            this.cells = cells;
+        }
+
+        /**
+         * @return длина коридора, в шагах
+         */
+        public int getLength() {
+            return actions.size();
+        }
+
+        /**
+         * @return действия прохода коридора от начальной развилки до конечной
+         */
+        public List<T> getActions() {
+            return Collections.unmodifiableList(actions);
+        }
+
+        /**
+         * @return клетки коридора после каждого из действий; последняя -
+         * конечная развилка
+         */
+        public List<Point> getCells() {
+            return Collections.unmodifiableList(cells);
+        }
+        //</editor-fold>
+    }
+
+    /**
+     * Строит граф развилок.
+     *
+     * @param state состояние игры, задающее переходы между клетками
+     * @param cells проходимые клетки игрового поля
+     */
+    public JunctionGraph(IBasicState<T> state, Collection<Point> cells) {
+        this(state, cells, null);
+    }
+
+    /**
+     * Строит граф развилок по заранее найденным развилкам, например, из
+     * таблицы развилок скомпилированной карты.
+     *
+     * @param state состояние игры, задающее переходы между клетками
+     * @param cells проходимые клетки игрового поля
+     * @param junctions развилки и тупики: клетки, из которых ведёт не два
+     * перехода; <code>null</code> - найти по переходам
+     */
+    public JunctionGraph(IBasicState<T> state, Collection<Point> cells, Collection<Point> junctions) {
+        Map<Point, LinkedHashMap<Point, T>> moves = new HashMap<Point, LinkedHashMap<Point, T>>();
+        for (Point cell : cells) {
+            moves.put(cell, state.getLegalActionsAsMap(cell));
+        }
+        if (junctions != null) {
+            for (Point cell : junctions) {
+                addNode(cell);
+            }
+        } else {
+            for (Point cell : cells) {
+                if (moves.get(cell).size() != 2) {
+                    addNode(cell);
+                }
+            }
+        }
+        for (int node = 0; node < nodes.size(); node++) {
+            traceCorridors(node, moves);
+        }
+        // Замкнутые коридоры без развилок: одна из клеток становится вершиной
+        for (Point cell : cells) {
+            if (!nodeIds.containsKey(cell) && !cellCorridors.containsKey(cell)) {
+                traceCorridors(addNode(cell), moves);
+            }
+        }
+    }
+
+    private int addNode(Point cell) {
+        int node = nodes.size();
+        nodes.add(cell);
+        nodeIds.put(cell, node);
+        corridors.add(new ArrayList<Corridor<T>>(4));
+        return node;
+    }
+
+    /**
+     * Прокладывает все коридоры, выходящие из развилки. Каждый коридор
+     * прокладывается один раз, обратный ему получается разворотом.
+     */
+    private void traceCorridors(int node, Map<Point, LinkedHashMap<Point, T>> moves) {
+        Point start = nodes.get(node);
+        for (Map.Entry<Point, T> move : moves.get(start).entrySet()) {
+            if (isTraced(node, move.getKey())) {
+                continue;
+            }
+            List<T> actions = new ArrayList<T>();
+            List<Point> path = new ArrayList<Point>();
+            Point previous = start;
+            Point current = move.getKey();
+            actions.add(move.getValue());
+            path.add(current);
+            while (!nodeIds.containsKey(current)) {
+                Map.Entry<Point, T> next = null;
+                for (Map.Entry<Point, T> candidate : moves.get(current).entrySet()) {
+                    if (!candidate.getKey().equals(previous)) {
+                        next = candidate;
+                        break;
+                    }
+                }
+                previous = current;
+                current = next.getKey();
+                actions.add(next.getValue());
+                path.add(current);
+            }
+            int target = nodeIds.get(current);
+            Corridor<T> forward = new Corridor<T>(node, target, actions, path);
+            Corridor<T> backward = reverse(forward, moves);
+            forward.reverse = backward;
+            backward.reverse = forward;
+            corridors.get(node).add(forward);
+            corridors.get(target).add(backward);
+            for (int i = 0; i < path.size() - 1; i++) {
+                cellCorridors.put(path.get(i), forward);
+                cellOffsets.put(path.get(i), i + 1);
+            }
+        }
+    }
+
+    /**
+     * @return <code>true</code>, если коридор из развилки через заданную
+     * соседнюю клетку уже проложен
+     */
+    private boolean isTraced(int node, Point firstCell) {
+        for (Corridor<T> corridor : corridors.get(node)) {
+            if (corridor.cells.get(0).equals(firstCell)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Corridor<T> reverse(Corridor<T> forward, Map<Point, LinkedHashMap<Point, T>> moves) {
+        int length = forward.cells.size();
+        List<T> actions = new ArrayList<T>(length);
+        List<Point> path = new ArrayList<Point>(length);
+        for (int i = length - 1; i >= 0; i--) {
+            Point from = forward.cells.get(i);
+            Point to = (i > 0) ? forward.cells.get(i - 1) : nodes.get(forward.from);
+            actions.add(moves.get(from).get(to));
+            path.add(to);
+        }
+        return new Corridor<T>(forward.to, forward.from, actions, path);
+    }
+
+    //--------------------------------------------------------- Свойства графа
+
+    /**
+     * @return количество вершин графа: развилок, тупиков и представителей
+     * замкнутых коридоров
+     */
+    public int getNodesCount() {
+        return nodes.size();
+    }
+
+    /**
+     * @param cell клетка игрового поля
+     * @return <code>true</code>, если клетка является вершиной графа
+     */
+    public boolean isNode(Point cell) {
+        return nodeIds.containsKey(cell);
+    }
+
+    /**
+     * @param node клетка-вершина графа
+     * @return коридоры, выходящие из вершины, или пустой список, если клетка
+     * не является вершиной
+     */
+    public List<Corridor<T>> getCorridors(Point node) {
+        Integer id = nodeIds.get(node);
+        if (id == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(corridors.get(id));
+    }
+
+    //---------------------------------------------------------- Поиск пути
+
+    @Override
+    public Queue<T> getSolution(IBasicState<T> gameState, Point start, Point goal, int playerId) {
+        return getSolution(start, goal);
+    }
+
+    /**
+     * Получить решение.
+     * <p>
+     * Возвращает кратчайшую последовательность действий, ведущих через
+     * проходимые клетки игрового поля от <code>start</code> к
+     * <code>goal</code>. Возвращает пустую очередь, если путь не существует,
+     * если клетки не принадлежат графу или совпадают.
+     *
+     * @param start исходное расположение
+     * @param goal целевая координата
+     * @return последовательность действий
+     */
+    public Queue<T> getSolution(Point start, Point goal) {
+        LinkedList<T> solution = new LinkedList<T>();
+        if (start.equals(goal) || !isKnown(start) || !isKnown(goal)) {
+            return solution;
+        }
+
+        // Выходы из исходной клетки к развилкам: коридор и номер клетки в нём
+        List<Corridor<T>> exits = new ArrayList<Corridor<T>>(2);
+        List<Integer> exitOffsets = new ArrayList<Integer>(2);
+        if (isNode(start)) {
+            exits.add(null);
+            exitOffsets.add(0);
+        } else {
+            Corridor<T> corridor = cellCorridors.get(start);
+            int offset = cellOffsets.get(start);
+            exits.add(corridor);
+            exitOffsets.add(offset);
+            exits.add(corridor.reverse);
+            exitOffsets.add(corridor.getLength() - offset);
+        }
+
+        // Кратчайший путь в пределах одного коридора
+        int bestLength = Integer.MAX_VALUE;
+        Corridor<T> directCorridor = null;
+        int directFrom = 0;
+        int directTo = 0;
+        for (int i = 0; i < exits.size(); i++) {
+            Corridor<T> corridor = exits.get(i);
+            if (corridor == null) {
+                continue;
+            }
+            int goalOffset = offsetIn(corridor, goal);
+            if (goalOffset > exitOffsets.get(i) && goalOffset - exitOffsets.get(i) < bestLength) {
+                bestLength = goalOffset - exitOffsets.get(i);
+                directCorridor = corridor;
+                directFrom = exitOffsets.get(i);
+                directTo = goalOffset;
+            }
+        }
+
+        // Поиск по развилкам
+        int[] distances = new int[nodes.size()];
+        Arrays.fill(distances, Integer.MAX_VALUE);
+        Corridor<T>[] via = newCorridorArray(nodes.size());
+        PriorityQueue<long[]> open = new PriorityQueue<long[]>(16, DISTANCE_ORDER);
+        for (int i = 0; i < exits.size(); i++) {
+            Corridor<T> corridor = exits.get(i);
+            int node = (corridor == null) ? nodeIds.get(start) : corridor.to;
+            int distance = (corridor == null) ? 0 : corridor.getLength() - exitOffsets.get(i);
+            if (distance < distances[node]) {
+                distances[node] = distance;
+                via[node] = null;
+                open.add(new long[]{distance, node, i});
+            }
+        }
+        int[] exitOfNode = new int[nodes.size()];
+        while (!open.isEmpty()) {
+            long[] entry = open.poll();
+            int node = (int) entry[1];
+            if (entry[0] > distances[node]) {
+                continue;
+            }
+            if (via[node] == null) {
+                exitOfNode[node] = (int) entry[2];
+            } else {
+                exitOfNode[node] = exitOfNode[via[node].from];
+            }
+            for (Corridor<T> corridor : corridors.get(node)) {
+                int distance = distances[node] + corridor.getLength();
+                if (distance < distances[corridor.to]) {
+                    distances[corridor.to] = distance;
+                    via[corridor.to] = corridor;
+                    open.add(new long[]{distance, corridor.to, 0});
+                }
+            }
+        }
+
+        // Вход в целевую клетку от развилок
+        Corridor<T> entryCorridor = null;
+        int entryNode = -1;
+        if (isNode(goal)) {
+            int node = nodeIds.get(goal);
+            if (distances[node] < bestLength) {
+                bestLength = distances[node];
+                entryNode = node;
+            }
+        } else {
+            Corridor<T> corridor = cellCorridors.get(goal);
+            for (Corridor<T> candidate : Arrays.asList(corridor, corridor.reverse)) {
+                int tail = offsetIn(candidate, goal);
+                if (distances[candidate.from] != Integer.MAX_VALUE
+                        && distances[candidate.from] + tail < bestLength) {
+                    bestLength = distances[candidate.from] + tail;
+                    entryNode = candidate.from;
+                    entryCorridor = candidate;
+                }
+            }
+        }
+
+        if (entryNode < 0) {
+            if (directCorridor != null) {
+                solution.addAll(directCorridor.actions.subList(directFrom, directTo));
+            }
+            return solution;
+        }
+
+        // Развёртывание пути: выход к развилке, коридоры между развилками, вход в цель
+        LinkedList<Corridor<T>> route = new LinkedList<Corridor<T>>();
+        for (int node = entryNode; via[node] != null; node = via[node].from) {
+            route.addFirst(via[node]);
+        }
+        int exit = exitOfNode[entryNode];
+        if (exits.get(exit) != null) {
+            Corridor<T> corridor = exits.get(exit);
+            solution.addAll(corridor.actions.subList(exitOffsets.get(exit), corridor.getLength()));
+        }
+        for (Corridor<T> corridor : route) {
+            solution.addAll(corridor.actions);
+        }
+        if (entryCorridor != null) {
+            solution.addAll(entryCorridor.actions.subList(0, offsetIn(entryCorridor, goal)));
+        }
+        return solution;
+    }
+
+    private boolean isKnown(Point cell) {
+        return nodeIds.containsKey(cell) || cellCorridors.containsKey(cell);
+    }
+
+    /**
+     * @return номер клетки в коридоре (количество шагов от его начала) или
+     * <code>-1</code>, если клетка коридору не принадлежит
+     */
+    private int offsetIn(Corridor<T> corridor, Point cell) {
+        Corridor<T> owner = cellCorridors.get(cell);
+        if (owner == corridor) {
+            return cellOffsets.get(cell);
+        }
+        if (owner == corridor.reverse) {
+            return corridor.getLength() - cellOffsets.get(cell);
+        }
+        return -1;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> Corridor<T>[] newCorridorArray(int length) {
+        return (Corridor<T>[]) new Corridor[length];
+    }
+}
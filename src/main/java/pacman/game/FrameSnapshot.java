@@ -0,0 +1,156 @@
+package pacman.game;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Неизменяемый снимок изменяемой части игры для рисования одного кадра.
+ * <p>
+ * Содержит положения, сдвиги анимации, направления и типы игроков (тип
+ * учитывает контузию привидения), расположение еды и таблеток и исход игры.
+ * Модель публикует не больше одного снимка за кадр часов анимации, если
+ * изображение изменилось, и по запросу вида; вид рисует кадр целиком по
+ * одному снимку, не обращаясь к изменяемым данным модели.
+ * <p>
+ * Битовые карты еды снимок не копирует: их нельзя изменять после передачи в
+ * конструктор, и модель передаёт одни и те же карты в последовательные
+ * снимки, пока еда не изменится.
+ */
+public final class FrameSnapshot {
+
+    private final IGameField maze;
+    private final int width;
+    private final List<IAnimatedPlayer> players;
+    private final BitSet food;
+    private final BitSet pillets;
+    private final boolean gameLost;
+    private final boolean gameWon;
+
+    /**
+     * Создаёт снимок кадра.
+     *
+     * @param maze игровое поле текущей игры
+     * @param width ширина игрового поля, в клетках
+     * @param players игроки; их данные копируются
+     * @param food клетки с едой, бит <code>y * width + x</code>
+     * @param pillets клетки с таблетками, бит <code>y * width + x</code>
+     * @param gameLost игра проиграна
+     * @param gameWon игра выиграна
+     */
+    public FrameSnapshot(IGameField maze, int width, List<? extends IAnimatedPlayer> players,
+            BitSet food, BitSet pillets, boolean gameLost, boolean gameWon) {
+        this.maze = maze;
+        this.width = width;
+        List<IAnimatedPlayer> copies = new ArrayList<IAnimatedPlayer>(players.size());
+        for (IAnimatedPlayer player : players) {
+            copies.add(new PlayerSnapshot(player));
+        }
+        this.players = Collections.unmodifiableList(copies);
+        this.food = food;
+        this.pillets = pillets;
+        this.gameLost = gameLost;
+        this.gameWon = gameWon;
+    }
+
+    /**
+     * @return игровое поле, для которого снят кадр
+     */
+    public IGameField getMaze() {
+        return maze;
+    }
+
+    /**
+     * @return неизменяемые снимки игроков
+     */
+    public List<IAnimatedPlayer> getPlayers() {
+        return players;
+    }
+
+    /**
+     * @param x столбец клетки
+     * @param y строка клетки
+     * @return <code>true</code>, если в клетке есть еда
+     */
+    public boolean hasFood(int x, int y) {
+        return food.get(y * width + x);
+    }
+
+    /**
+     * @param x столбец клетки
+     * @param y строка клетки
+     * @return <code>true</code>, если в клетке есть магическая таблетка
+     */
+    public boolean hasPillet(int x, int y) {
+        return pillets.get(y * width + x);
+    }
+
+    /**
+     * @return <code>true</code>, если игра проиграна
+     */
+    public boolean isGameLost() {
+        return gameLost;
+    }
+
+    /**
+     * @return <code>true</code>, если игра выиграна
+     */
+    public boolean isGameWon() {
+        return gameWon;
+    }
+
+    /**
+     * Неизменяемая копия данных игрока.
+     */
+    private static final class PlayerSnapshot implements IAnimatedPlayer {//<editor-fold defaultstate="collapsed">
+
+        private final PlayerType type;
+        private final int colorId;
+        private final Point location;
+        private final IAction currentAction;
+        private final Point shiftVector;
+        private final int shiftScalar;
+
+        PlayerSnapshot(IAnimatedPlayer player) {
+            this.type = player.getType();
+            this.colorId = player.getColorId();
+            this.location = new Point(player.getLocation());
+            this.currentAction = player.getCurrentAction();
+            this.shiftVector = new Point(player.getShiftVector());
+            this.shiftScalar = currentAction.getShiftScalar(shiftVector);
+        }
+
+        @Override
+        public PlayerType getType() {
+            return type;
+        }
+
+        @Override
+        public int getColorId() {
+            return colorId;
+        }
+
+        @Override
+        public Point getLocation() {
+            return new Point(location);
+        }
+
+        @Override
+        public IAction getCurrentAction() {
+            return currentAction;
+        }
+
+        @Override
+        public Point getShiftVector() {
+            return new Point(shiftVector);
+        }
+
+        @Override
+        public int getShiftScalar() {
+            return shiftScalar;
+        }
+        //</editor-fold>
+    }
+}
@@ -1,17 +1,13 @@
 package pacman.game;
 
-import algorithms.core.BreadthFirstSearch;
 import algorithms.core.Minimax;
 import algorithms.core.Reflex;
 import java.awt.BorderLayout;
 import java.awt.Container;
 import java.awt.Point;
 import java.awt.event.MouseEvent;
-import java.util.Observable;
-import java.util.Observer;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 import pacman.view.GameView;
@@ -25,7 +21,7 @@ import pacman.view.GameView;
  * Пакманом имевшейся у него очереди действий, передаёт в игру алгоритм
  * получения новой очереди действий.</ol>
  */
-public class GameController implements Observer {
+public class GameController implements IModelListener {
 
     private final IControlableGameModel myModel;            // Модель игры
     private final JPanel myView;                            // Графическое представление игры (панель)
@@ -33,7 +29,6 @@ public class GameController implements Observer {
     private final JFrame myFrame;                           // Окно игры
     private final OptionsPanel optionsPanel;                // Панель опций игры
     private final ExecutorService modelThreadService;
-    private final BreadthFirstSearch<IAction> pacmanBfs;    // Экземпляр поиска в ширину
     
     private PacmanMode pacmanControlMode;                   // Режим принятия решений Пакманом
 
@@ -53,14 +48,8 @@ public class GameController implements Observer {
 
         optionsPanel = new OptionsPanel(this);
         pacmanControlMode = PacmanMode.AUTO_THINK_LESS;
-        pacmanBfs = new BreadthFirstSearch<IAction>();
         
-        modelThreadService = Executors.newSingleThreadExecutor(new ThreadFactory() {
-            @Override
-            public Thread newThread(Runnable r) {
-                Thread t = new Thread(r, "game-model-thread");
-                return t;
-            }});
+        modelThreadService = Executors.newSingleThreadExecutor(GameThreads.newFactory("game-model-thread", false));
         
         startGame();
     }
@@ -106,8 +95,8 @@ public class GameController implements Observer {
     }
 
     @Override
-    public void update(Observable o, Object arg) {
-        if (myModel.isPacmanQueueEmpty()) {
+    public void modelChanged(ModelEvent event) {
+        if (event == ModelEvent.PACMAN_QUEUE_EMPTY && myModel.isPacmanQueueEmpty()) {
             performPacmanQueueEmpty();
         }
     }
@@ -138,6 +127,7 @@ public class GameController implements Observer {
      */
     public void performOptionsSelected() {
         myModel.reinitializeGame();
+        myModel.preparePathSearch();
         setPanel(myView);
         modelThreadService.submit((Runnable) myModel);
     }
@@ -202,7 +192,7 @@ public class GameController implements Observer {
             // Ручное управление Пакманом
             case MANUAL:
                 Point targetLocation = myModel.getCellAddress(clickLocation);
-                myModel.performPacmanAction(pacmanBfs, targetLocation);
+                myModel.performPacmanAction(myModel.getPathSearch(), targetLocation);
                 break;
 
             // Думает мало - реагирующий агент
@@ -0,0 +1,89 @@
+package pacman.game;
+
+/**
+ * Скорость игры.
+ * <p>
+ * Задаёт продолжительность тура: при обычной скорости тур длится столько,
+ * сколько анимация хода, при ускорении - во столько раз меньше. Без
+ * ограничения ходы не анимируются, и туры следуют друг за другом сразу.
+ */
+public enum GameSpeed {
+
+    /**
+     * Обычная скорость.
+     */
+    NORMAL(1),
+
+    /**
+     * Ускорение в 4 раза.
+     */
+    FAST(4),
+
+    /**
+     * Ускорение в 16 раз.
+     */
+    FASTER(16),
+
+    /**
+     * Без ограничения скорости и без анимации.
+     */
+    UNTHROTTLED(0);
+
+    private final int multiplier;
+
+    private GameSpeed(int multiplier) {
+        this.multiplier = multiplier;
+    }
+
+    /**
+     * @return во сколько раз ускорена игра; <code>0</code> - без ограничения
+     */
+    public int getMultiplier() {
+        return multiplier;
+    }
+
+    /**
+     * @return <code>true</code>, если ходы анимируются и туры выдерживают
+     * заданную продолжительность
+     */
+    public boolean isThrottled() {
+        return multiplier > 0;
+    }
+
+    /**
+     * @return следующая по возрастанию скорость; после скорости без
+     * ограничения - обычная
+     */
+    public GameSpeed next() {
+        return values()[(ordinal() + 1) % values().length];
+    }
+
+    /**
+     * Возвращает скорость по обозначению множителя.
+     *
+     * @param value множитель <code>1</code>, <code>4</code>, <code>16</code>
+     * или <code>max</code>
+     * @return скорость игры
+     * @throws IllegalArgumentException если обозначение неизвестно
+     */
+    public static GameSpeed parse(String value) {
+        if ("max".equals(value)) {
+            return UNTHROTTLED;
+        }
+        for (GameSpeed speed : values()) {
+            if (speed.isThrottled() && String.valueOf(speed.multiplier).equals(value)) {
+                return speed;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестная скорость игры: " + value);
+    }
+
+    /**
+     * @return обозначение скорости: <code>1x</code>, <code>4x</code>,
+     * <code>16x</code> или <code>max</code>
+     */
+    @Override
+    public String toString() {
+        return isThrottled() ? multiplier + "x" : "max";
+    }
+}
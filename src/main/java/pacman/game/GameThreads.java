@@ -0,0 +1,99 @@
+package pacman.game;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Фабрики потоков игры.
+ * <p>
+ * Если задано системное свойство {@link VIRTUAL_THREADS_PROPERTY} и среда
+ * исполнения поддерживает виртуальные потоки (Java 21 и новее), потоки модели,
+ * часов анимации и расчёта ходов привидений создаются виртуальными: ожидание
+ * хода, конца тура или результата расчёта не занимает потока платформы, и в
+ * одной машине помещаются сотни одновременных игр. Иначе создаются обычные
+ * потоки платформы. Виртуальные потоки запрашиваются через отражение, чтобы
+ * проект собирался для Java 11.
+ */
+public final class GameThreads {
+
+    /**
+     * Системное свойство: <code>true</code> - исполнять игры в виртуальных
+     * потоках.
+     */
+    public static final String VIRTUAL_THREADS_PROPERTY = "pacman.threads.virtual";
+
+    private static final Object VIRTUAL_BUILDER = createVirtualBuilder();
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_FACTORY;
+
+    static {
+        Method name = null;
+        Method factory = null;
+        if (VIRTUAL_BUILDER != null) {
+            try {
+                Class<?> builder = Class.forName("java.lang.Thread$Builder");
+                name = builder.getMethod("name", String.class);
+                factory = builder.getMethod("factory");
+            } catch (ReflectiveOperationException ex) {
+                Logger.getLogger(GameThreads.class.getName()).log(Level.WARNING, null, ex);
+            }
+        }
+        BUILDER_NAME = name;
+        BUILDER_FACTORY = factory;
+    }
+
+    private GameThreads() {
+    }
+
+    /**
+     * @return <code>true</code>, если виртуальные потоки запрошены и
+     * поддерживаются средой исполнения
+     */
+    public static boolean isVirtual() {
+        return BUILDER_FACTORY != null && Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY);
+    }
+
+    /**
+     * Создаёт фабрику потоков с заданным именем.
+     * <p>
+     * Виртуальные потоки всегда фоновые: признак <code>daemon</code> для них
+     * не применяется.
+     *
+     * @param name имя потоков
+     * @param daemon <code>true</code> - потоки платформы создаются фоновыми
+     * @return фабрика виртуальных потоков, см. {@link isVirtual}, или потоков
+     * платформы
+     */
+    public static ThreadFactory newFactory(final String name, final boolean daemon) {
+        if (isVirtual()) {
+            try {
+                return (ThreadFactory) BUILDER_FACTORY.invoke(BUILDER_NAME.invoke(createVirtualBuilder(), name));
+            } catch (ReflectiveOperationException ex) {
+                Logger.getLogger(GameThreads.class.getName()).log(Level.WARNING, null, ex);
+            }
+        }
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, name);
+                t.setDaemon(daemon);
+                return t;
+            }};
+    }
+
+    /**
+     * Возвращает построитель виртуальных потоков <code>Thread.ofVirtual()</code>.
+     *
+     * @return построитель; <code>null</code>, если виртуальные потоки не
+     * поддерживаются
+     */
+    private static Object createVirtualBuilder() {
+        try {
+            return Thread.class.getMethod("ofVirtual").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return null;
+        }
+    }
+}
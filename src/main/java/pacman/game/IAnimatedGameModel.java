@@ -1,6 +1,7 @@
 package pacman.game;
 
 import java.awt.Dimension;
+import java.awt.Rectangle;
 import java.util.List;
 
 /**
@@ -74,4 +75,22 @@ public interface IAnimatedGameModel {
      * @return <code>true</code>, если есть необходимость перерисовки вида.
      */
     public boolean isRedrawRequired();
+
+    /**
+     * Забирает накопленную область перерисовки. Следующий запрос перерисовки
+     * снова будет сопровождаться уведомлением наблюдателей.
+     *
+     * @return область холста, требующая перерисовки, в пикселах;
+     * <code>null</code>, если перерисовка не требуется
+     */
+    public Rectangle takeRedrawRegion();
+
+    /**
+     * Возвращает последний опубликованный снимок кадра. Снимок публикуется
+     * при каждом запросе перерисовки, до извещения об этом запросе; если
+     * получателей событий нет - при обращении к этому методу.
+     *
+     * @return неизменяемый снимок кадра
+     */
+    public FrameSnapshot getFrameSnapshot();
 }
@@ -47,6 +47,21 @@ public interface IControlableGameModel {
      * @param goal координата целевого расположения на игровом поле
      */
     public void performPacmanAction(ISearchAlgorithm algorithm, Point goal);
+
+    /**
+     * Запускает в фоновом потоке построение алгоритма поиска пути
+     * {@link getPathSearch}, если оно ещё не запускалось.
+     */
+    public void preparePathSearch();
+
+    /**
+     * Возвращает алгоритм поиска пути по игровому полю текущей игры, для
+     * передвижения Пакмана к указанной клетке. Если алгоритм ещё строится,
+     * ожидает завершения построения.
+     *
+     * @return алгоритм поиска пути
+     */
+    public ISearchAlgorithm getPathSearch();
     
     /**
      * Возвращает координату клетки игрового поля по координате на холсте
@@ -1,6 +1,7 @@
 package pacman.game;
 
 import java.awt.Point;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -44,6 +45,17 @@ public interface IGameField {
      */
     public Point[] getCells();
     
+    /**
+     * Возвращает перечень клеток игрового поля с заданным содержимым.
+     * <p>
+     * Перечень может отражать последующие изменения поля; его обход
+     * допустим одновременно с изменением поля.
+     * 
+     * @param content содержимое клетки
+     * @return перечень клеток с заданным содержимым
+     */
+    public Collection<Point> getCellsWith(CellContent content);
+    
     /**
      * Возвращает перечень содержимого клетки.
      * 
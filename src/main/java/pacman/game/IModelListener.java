@@ -0,0 +1,18 @@
+package pacman.game;
+
+/**
+ * Интерфейс получателя событий модели игры.
+ * <p>
+ * События доставляются в потоке, изменившем модель: потоке модели, потоке
+ * часов анимации или потоке обработки событий Swing. Получатель, работающий с
+ * графическим интерфейсом, должен сам перейти в поток обработки событий Swing.
+ */
+public interface IModelListener {
+
+    /**
+     * Принимает событие модели игры.
+     *
+     * @param event событие
+     */
+    void modelChanged(ModelEvent event);
+}
@@ -0,0 +1,31 @@
+package pacman.game;
+
+/**
+ * События модели игры.
+ * <p>
+ * Событие - сигнал об изменении данных модели, а не их копия: получатель
+ * читает изменившиеся данные из модели.
+ */
+public enum ModelEvent {
+
+    /**
+     * Тур игры завершён.
+     */
+    TURN_FINISHED,
+
+    /**
+     * Пакман исполнил все действия из очереди и ожидает новых.
+     */
+    PACMAN_QUEUE_EMPTY,
+
+    /**
+     * Изображение изменилось. Повторно не публикуется, пока вид не заберёт
+     * область перерисовки, см. {@link IAnimatedGameModel#takeRedrawRegion}.
+     */
+    FRAME_DIRTY,
+
+    /**
+     * Игра завершена победой или поражением.
+     */
+    GAME_OVER
+}
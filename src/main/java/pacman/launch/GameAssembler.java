@@ -3,11 +3,14 @@ package pacman.launch;
 import java.awt.Container;
 import java.awt.Dimension;
 import java.awt.Point;
+import java.nio.file.Paths;
 import javax.swing.JFrame;
 import pacman.game.GameController;
+import pacman.game.GameSpeed;
 import pacman.model.AbstractGameModel;
 import pacman.model.GameFieldMap;
 import pacman.model.GameModelImp;
+import pacman.model.GameRecorder;
 import pacman.view.GameView;
 
 /**
@@ -18,14 +21,19 @@ import pacman.view.GameView;
  */
 public class GameAssembler {
 
+    // Системное свойство: каталог для записи сыгранных игр
+    private static final String RECORD_DIRECTORY_PROPERTY = "pacman.record.dir";
+    // Системное свойство: скорость игры, см. GameSpeed#parse
+    private static final String SPEED_PROPERTY = "pacman.speed";
+
     private final AbstractGameModel model;
     private final GameView view;
     private final GameController controller;
 
     //<editor-fold defaultstate="collapsed" desc="Объявление топологии лабиринта">
-    private final Dimension gameCanvasSize = new Dimension(20, 11);
-    private final Point[] startLocations = new Point[]{new Point(9, 9), new Point(9, 5), new Point(10, 5), new Point(8, 5), new Point(11, 5)};  // Исходная позиция привидения
-    private final Point[] initialWallsLocation = new Point[]{
+    private static final Dimension gameCanvasSize = new Dimension(20, 11);
+    private static final Point[] startLocations = new Point[]{new Point(9, 9), new Point(9, 5), new Point(10, 5), new Point(8, 5), new Point(11, 5)};  // Исходная позиция привидения
+    private static final Point[] initialWallsLocation = new Point[]{
         new Point(2, 2), new Point(2, 3), new Point(2, 4), new Point(2, 6), new Point(2, 7), new Point(2, 8),
         new Point(3, 2), new Point(3, 8),
         new Point(4, 4), new Point(4, 6),
@@ -34,7 +42,7 @@ public class GameAssembler {
         new Point(8, 2), new Point(8, 4), new Point(8, 6), new Point(8, 8),
         new Point(9, 2), new Point(9, 6), new Point(9, 8)
     };
-    private final Point[] pilletsLocations = new Point[]{new Point(1, 1), new Point(1, 9), new Point(18, 1), new Point(18, 9)};
+    private static final Point[] pilletsLocations = new Point[]{new Point(1, 1), new Point(1, 9), new Point(18, 1), new Point(18, 9)};
     //</editor-fold>
     
     private final GameFieldMap gameMap;
@@ -47,8 +55,17 @@ public class GameAssembler {
      * @param cellSize размер клетки игрового поля в пикселах
      */
     public GameAssembler(JFrame frame, Container contentPane, int cellSize) {
-        gameMap = new GameFieldMap(gameCanvasSize, cellSize, startLocations, initialWallsLocation, pilletsLocations);
-        model = new GameModelImp(gameMap);
+        gameMap = createDefaultMap(cellSize);
+        GameModelImp gameModel = new GameModelImp(gameMap);
+        String recordDirectory = System.getProperty(RECORD_DIRECTORY_PROPERTY);
+        if (recordDirectory != null) {
+            gameModel.setGameRecorder(new GameRecorder(Paths.get(recordDirectory), "game-"));
+        }
+        String speed = System.getProperty(SPEED_PROPERTY);
+        if (speed != null) {
+            gameModel.setGameSpeed(GameSpeed.parse(speed));
+        }
+        model = gameModel;
         
         view = new GameView();
         view.setModel(model);
@@ -56,8 +73,18 @@ public class GameAssembler {
         controller = new GameController(model, view, frame, contentPane);
         view.setController(controller);
         
-        model.addObserver(view);
-        model.addObserver(controller);
+        model.addModelListener(view);
+        model.addModelListener(controller);
+    }
+
+    /**
+     * Создаёт карту стандартного игрового поля.
+     *
+     * @param cellSize размер клетки игрового поля в пикселах
+     * @return карта стандартного игрового поля
+     */
+    public static GameFieldMap createDefaultMap(int cellSize) {
+        return new GameFieldMap(gameCanvasSize, cellSize, startLocations, initialWallsLocation, pilletsLocations);
     }
 
     /**
@@ -0,0 +1,287 @@
+package pacman.launch;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import pacman.model.GameRecording;
+import pacman.model.GameReplay;
+import pacman.model.HeadlessGameModel;
+
+/**
+ * Регрессионная проверка движка игры на записанных играх.
+ * <p>
+ * Проигрывает набор записей {@link pacman.model.GameRecorder} без
+ * графического представления, сверяет хэш состояния игры после каждого тура
+ * с записанным и измеряет время расчёта каждого тура. Изменения
+ * {@link pacman.model.GameState}, {@link pacman.model.Maze} и поисковых
+ * алгоритмов проверяются таким образом на неизменность поведения и
+ * измеряются на реальных играх за один запуск.
+ * <p>
+ * Параметры запуска задаются в виде <code>ключ=значение</code>:<ul>
+ * <li> <code>recordings=путь</code> - файл записи или каталог с файлами
+ * <code>*.pmr</code>;
+ * <li> <code>mode=simulate</code> - способ проверки:<ul>
+ * <li> <code>simulate</code> - игра заново разыгрывается записанным агентом
+ * Пакмана с записанным начальным значением: проверяются правила игры,
+ * поиск привидений и агент Пакмана;
+ * <li> <code>replay</code> - к состоянию игры применяются записанные
+ * действия: проверяются только правила игры, подходит и для записей игр
+ * без агента.</ul>
+ * <li> <code>repeat=1</code> - количество проходов по набору записей; время
+ * учитывается только в последнем проходе, предыдущие служат для прогрева.</ul>
+ * <p>
+ * Для каждой записи, разошедшейся с движком, выводится строка с номером
+ * первого разошедшегося тура; в конце выводится строка итогов.
+ */
+public class RegressionLauncher {
+
+    /**
+     * Заголовок строки итогов.
+     */
+    public static final String HEADER = String.join("\t",
+            "mode", "recordings", "turns", "mismatches", "errors",
+            "turn_us_p50", "turn_us_p90", "turn_us_p99", "turn_us_max", "total_ms");
+
+    private final List<Path> files = new ArrayList<Path>();
+    private final boolean simulate;
+    private final int repeat;
+    private final PrintStream out;
+
+    private long[] turnTimes = new long[1024];
+    private int turnsCount;
+    private int mismatches;
+    private int errors;
+
+    /**
+     * Создаёт новую проверку.
+     *
+     * @param options параметры проверки
+     * @param out поток вывода отчёта
+     * @throws IOException если набор записей не может быть прочитан
+     */
+    public RegressionLauncher(Map<String, String> options, PrintStream out) throws IOException {
+        if (!options.containsKey("recordings")) {
+            throw new IllegalArgumentException("Не задан параметр recordings");
+        }
+        Path recordings = Paths.get(options.get("recordings"));
+        if (Files.isDirectory(recordings)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(recordings, "*.pmr")) {
+                for (Path file : stream) {
+                    files.add(file);
+                }
+            }
+            Collections.sort(files);
+        } else {
+            files.add(recordings);
+        }
+        String mode = options.containsKey("mode") ? options.get("mode") : "simulate";
+        if (!"simulate".equals(mode) && !"replay".equals(mode)) {
+            throw new IllegalArgumentException("Неизвестный способ проверки: " + mode);
+        }
+        simulate = "simulate".equals(mode);
+        repeat = options.containsKey("repeat") ? Integer.parseInt(options.get("repeat")) : 1;
+        this.out = out;
+    }
+
+    /**
+     * Проверяет все записи набора и выводит строку итогов.
+     *
+     * @return <code>true</code>, если все записи совпали с движком
+     */
+    public boolean run() {
+        long totalTime = 0;
+        for (int pass = 0; pass < repeat; pass++) {
+            boolean lastPass = (pass == repeat - 1);
+            turnsCount = 0;
+            mismatches = 0;
+            errors = 0;
+            long start = System.nanoTime();
+            for (Path file : files) {
+                check(file, lastPass);
+            }
+            totalTime = System.nanoTime() - start;
+        }
+
+        long[] sorted = Arrays.copyOf(turnTimes, turnsCount);
+        Arrays.sort(sorted);
+        out.println(HEADER);
+        out.println(String.join("\t",
+                simulate ? "simulate" : "replay",
+                String.valueOf(files.size()), String.valueOf(turnsCount),
+                String.valueOf(mismatches), String.valueOf(errors),
+                format(micros(sorted, 50)), format(micros(sorted, 90)), format(micros(sorted, 99)),
+                format(turnsCount == 0 ? 0 : sorted[turnsCount - 1] / 1000.0),
+                format(totalTime / 1000000.0)));
+        out.flush();
+        return mismatches == 0 && errors == 0;
+    }
+
+    /**
+     * Проверяет одну запись.
+     *
+     * @param file файл записи
+     * @param report выводить ли расхождения
+     */
+    private void check(Path file, boolean report) {
+        int mismatchTurn;
+        try {
+            GameRecording recording = GameRecording.read(file);
+            mismatchTurn = simulate ? simulate(recording) : replay(recording);
+        } catch (IOException | RuntimeException ex) {
+            errors++;
+            if (report) {
+                out.println("error\t" + file + "\t" + ex);
+            }
+            return;
+        }
+        if (mismatchTurn >= 0) {
+            mismatches++;
+            if (report) {
+                out.println("mismatch\t" + file + "\tturn " + mismatchTurn);
+            }
+        }
+    }
+
+    /**
+     * Применяет записанные действия к состоянию игры.
+     *
+     * @return номер первого разошедшегося тура или <code>-1</code>
+     */
+    private int replay(GameRecording recording) {
+        GameReplay replay = new GameReplay(recording);
+        int mismatchTurn = -1;
+        for (int turn = 0; turn < recording.getTurnsCount(); turn++) {
+            long start = System.nanoTime();
+            replay.step();
+            addTurnTime(System.nanoTime() - start);
+            if (mismatchTurn < 0 && replay.getGameState().getStateHash() != recording.getStateHash(turn)) {
+                mismatchTurn = turn;
+            }
+        }
+        return mismatchTurn;
+    }
+
+    /**
+     * Разыгрывает игру заново записанным агентом.
+     *
+     * @return номер первого разошедшегося тура или <code>-1</code>
+     */
+    private int simulate(GameRecording recording) {
+        if (recording.getAgentName().isEmpty()) {
+            throw new IllegalArgumentException("В записи нет агента Пакмана");
+        }
+        TournamentAgent agent = TournamentAgent.parse(recording.getAgentName());
+        CheckedGame game = new CheckedGame(recording, agent);
+        game.setGhostsNumber(recording.getPlayersNumber() - 1);
+        game.setGameSeed(recording.getSeed());
+        game.reinitializeGame();
+        game.run();
+
+        int mismatchTurn = game.getMismatchTurn();
+        if (mismatchTurn < 0 && (game.isGameWon() != recording.isWon()
+                || game.isGameLost() != recording.isLost()
+                || game.getTurnsPlayed() != recording.getFinishedTurns())) {
+            mismatchTurn = Math.min(game.getTurnsPlayed(), recording.getTurnsCount() - 1);
+        }
+        return mismatchTurn;
+    }
+
+    private void addTurnTime(long nanos) {
+        if (turnsCount == turnTimes.length) {
+            turnTimes = Arrays.copyOf(turnTimes, turnsCount * 2);
+        }
+        turnTimes[turnsCount++] = nanos;
+    }
+
+    private static double micros(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[TournamentStatistics.percentileIndex(sorted.length, percentile)] / 1000.0;
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    /**
+     * Игра, сверяющая хэш состояния после каждого тура с записью.
+     */
+    private class CheckedGame extends HeadlessGameModel {//<editor-fold defaultstate="collapsed">
+
+        private final GameRecording recording;
+        private int turn = 0;
+        private int mismatchTurn = -1;
+        private long turnStart;
+
+        public CheckedGame(GameRecording recording, TournamentAgent agent) {
+            super(recording.getMap(), agent.createAlgorithm(), (recording.isWon() || recording.isLost())
+                    ? recording.getTurnsCount()
+                    : recording.getFinishedTurns());
+            this.recording = recording;
+        }
+
+        public int getMismatchTurn() {
+            return mismatchTurn;
+        }
+
+        @Override
+        public void reinitializeGame() {
+            super.reinitializeGame();
+            turnStart = System.nanoTime();
+        }
+
+        @Override
+        protected void performTurnFinished() {
+            super.performTurnFinished();
+            finishTurn();
+        }
+
+        @Override
+        protected void performGameFinished() {
+            super.performGameFinished();
+            // Игра окончена до завершения тура
+            if (turn < recording.getTurnsCount() && !recording.isTurnFinished(turn)) {
+                finishTurn();
+            }
+        }
+
+        private void finishTurn() {
+            addTurnTime(System.nanoTime() - turnStart);
+            if (mismatchTurn < 0 && (turn >= recording.getTurnsCount()
+                    || getStateHash() != recording.getStateHash(turn))) {
+                mismatchTurn = turn;
+            }
+            turn++;
+            turnStart = System.nanoTime();
+        }
+        //</editor-fold>
+    }
+
+    /**
+     * @param args параметры проверки в виде <code>ключ=значение</code>
+     */
+    public static void main(String args[]) throws IOException {
+        Map<String, String> options = new HashMap<String, String>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Параметр должен иметь вид ключ=значение: " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        if (!new RegressionLauncher(options, System.out).run()) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package pacman.launch;
+
+import java.awt.Container;
+import java.awt.EventQueue;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.AbstractAction;
+import javax.swing.BoxLayout;
+import javax.swing.JComponent;
+import javax.swing.JFrame;
+import javax.swing.KeyStroke;
+import pacman.game.GameSpeed;
+import pacman.game.GameThreads;
+import pacman.game.IModelListener;
+import pacman.game.ModelEvent;
+import pacman.model.GameRecording;
+import pacman.model.GameReplay;
+import pacman.model.ReplayGameModel;
+import pacman.view.GameView;
+
+/**
+ * Просмотр записанной игры.
+ * <p>
+ * Параметры запуска: файл записи {@link pacman.model.GameRecorder} и,
+ * необязательно, тур, с которого начинается просмотр.
+ * <p>
+ * Управление:<ul>
+ * <li> пробел - приостановить или возобновить воспроизведение;
+ * <li> стрелки влево и вправо - на тур назад и вперёд;
+ * <li> стрелки вниз и вверх - на {@link GameReplay#DEFAULT_KEYFRAME_INTERVAL}
+ * туров назад и вперёд;
+ * <li> Home и End - к началу и концу записи;
+ * <li> S - следующая скорость воспроизведения {@link GameSpeed}.</ul>
+ */
+public class ReplayLauncher {
+
+    private final JFrame frame;
+    private final ReplayGameModel model;
+    private final String fileName;
+
+    /**
+     * Создаёт окно просмотра и запускает воспроизведение.
+     *
+     * @param recording запись игры
+     * @param fileName имя файла записи для заголовка окна
+     * @param startTurn тур, с которого начинается просмотр
+     */
+    public ReplayLauncher(GameRecording recording, String fileName, int startTurn) {
+        this.fileName = fileName;
+        frame = new JFrame();
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+
+        Container container = frame.getContentPane();
+        container.setLayout(new BoxLayout(container, BoxLayout.LINE_AXIS));
+
+        model = new ReplayGameModel(new GameReplay(recording));
+        GameView view = new GameView();
+        view.setModel(model);
+        model.addModelListener(view);
+        model.addModelListener(new IModelListener() {
+            @Override
+            public void modelChanged(ModelEvent event) {
+                EventQueue.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        updateTitle();
+                    }
+                });
+            }
+        });
+
+        bindKey(view, KeyEvent.VK_SPACE, 0, true);
+        bindKey(view, KeyEvent.VK_LEFT, -1, false);
+        bindKey(view, KeyEvent.VK_RIGHT, +1, false);
+        bindKey(view, KeyEvent.VK_DOWN, -GameReplay.DEFAULT_KEYFRAME_INTERVAL, false);
+        bindKey(view, KeyEvent.VK_UP, +GameReplay.DEFAULT_KEYFRAME_INTERVAL, false);
+        bindKey(view, KeyEvent.VK_HOME, -Integer.MAX_VALUE / 2, false);
+        bindKey(view, KeyEvent.VK_END, +Integer.MAX_VALUE / 2, false);
+        view.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_S, 0), "replay-speed");
+        view.getActionMap().put("replay-speed", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                model.setGameSpeed(model.getGameSpeed().next());
+                updateTitle();
+            }
+        });
+
+        container.add(view);
+        frame.pack();
+        frame.setResizable(false);
+        frame.setVisible(true);
+        updateTitle();
+
+        model.seek(startTurn);
+        GameThreads.newFactory("replay", true).newThread(model).start();
+    }
+
+    /**
+     * Назначает клавише переход на заданное количество туров или
+     * приостановку воспроизведения.
+     */
+    private void bindKey(JComponent component, int keyCode, final int turnsShift, final boolean togglePause) {
+        String name = "replay-" + keyCode;
+        component.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(keyCode, 0), name);
+        component.getActionMap().put(name, new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (togglePause) {
+                    model.togglePaused();
+                } else {
+                    model.seek(model.getCurrentTurn() + turnsShift);
+                }
+                updateTitle();
+            }
+        });
+    }
+
+    private void updateTitle() {
+        frame.setTitle(fileName + " - " + model.getCurrentTurn() + "/" + model.getTurnsCount()
+                + " " + model.getGameSpeed() + (model.isPaused() ? " ||" : ""));
+    }
+
+    /**
+     * @param args файл записи игры и, необязательно, начальный тур
+     */
+    public static void main(String args[]) {
+        if (args.length < 1) {
+            System.err.println("Использование: ReplayLauncher <файл записи> [тур]");
+            System.exit(1);
+        }
+        final Path file = Paths.get(args[0]);
+        final int startTurn = (args.length > 1) ? Integer.parseInt(args[1]) : 0;
+        final GameRecording recording;
+        try {
+            recording = GameRecording.read(file);
+        } catch (IOException ex) {
+            Logger.getLogger(ReplayLauncher.class.getName()).log(Level.SEVERE, null, ex);
+            System.exit(1);
+            return;
+        }
+
+        EventQueue.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                ReplayLauncher replayLauncher = new ReplayLauncher(recording, file.getFileName().toString(), startTurn);
+            }
+        });
+    }
+}
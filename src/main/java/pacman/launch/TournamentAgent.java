@@ -0,0 +1,79 @@
+package pacman.launch;
+
+import algorithms.core.ISearchAlgorithm;
+import algorithms.core.Minimax;
+import algorithms.core.Reflex;
+import pacman.game.IAction;
+
+/**
+ * Агент Пакмана, участвующий в турнире.
+ * <p>
+ * Создаёт для каждой игры собственный экземпляр алгоритма принятия решений:
+ * алгоритмы хранят данные последнего поиска и не могут использоваться
+ * несколькими играми одновременно.
+ * <p>
+ * Агенты задаются строкой вида <code>reflex</code> или
+ * <code>minimax:3</code>, см. {@link parse}. Новые агенты добавляются в
+ * {@link parse}.
+ */
+public abstract class TournamentAgent {
+
+    private final String name;
+
+    /**
+     * Создаёт нового агента.
+     *
+     * @param name имя агента в отчётах турнира
+     */
+    protected TournamentAgent(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return имя агента в отчётах турнира
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Создаёт экземпляр алгоритма принятия решений для одной игры.
+     *
+     * @return алгоритм принятия решений
+     */
+    public abstract ISearchAlgorithm<IAction, ?> createAlgorithm();
+
+    /**
+     * Возвращает агента по его описанию.
+     *
+     * @param spec описание агента: <code>reflex</code>,
+     * <code>minimax:глубина</code> или <code>minimax-nopruning:глубина</code>
+     * @return агент
+     * @throws IllegalArgumentException если агент не известен
+     */
+    public static TournamentAgent parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        String kind = parts[0];
+        if ("reflex".equals(kind)) {
+            return new TournamentAgent(kind) {
+                @Override
+                public ISearchAlgorithm<IAction, ?> createAlgorithm() {
+                    return new Reflex<IAction>();
+                }
+            };
+        }
+        if ("minimax".equals(kind) || "minimax-nopruning".equals(kind)) {
+            final int depth = (parts.length > 1) ? Integer.parseInt(parts[1]) : 4;
+            final Minimax.PruningMode pruning = "minimax".equals(kind)
+                    ? Minimax.PruningMode.ON
+                    : Minimax.PruningMode.OFF;
+            return new TournamentAgent(kind + ":" + depth) {
+                @Override
+                public ISearchAlgorithm<IAction, ?> createAlgorithm() {
+                    return new Minimax<IAction>(depth, pruning);
+                }
+            };
+        }
+        throw new IllegalArgumentException("Неизвестный агент: " + spec);
+    }
+}
@@ -0,0 +1,278 @@
+package pacman.launch;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import pacman.model.CompiledMapFormat;
+import pacman.model.GameFieldMap;
+import pacman.model.GameRecorder;
+import pacman.model.HeadlessGameModel;
+import pacman.model.MazeGenerator;
+import pacman.model.TextMapFormat;
+
+/**
+ * Турнир агентов Пакмана.
+ * <p>
+ * Параллельно на всех ядрах разыгрывает заданное количество игр без
+ * графического представления для каждой конфигурации из матрицы "агент
+ * Пакмана x количество привидений x карта". По завершении всех игр
+ * конфигурации выводит строку статистики {@link TournamentStatistics}.
+ * <p>
+ * Параметры запуска задаются в виде <code>ключ=значение</code>:<ul>
+ * <li> <code>agents=reflex,minimax:2,minimax:3</code> - агенты Пакмана, см.
+ * {@link TournamentAgent#parse};
+ * <li> <code>ghosts=1,2,3,4</code> - количества привидений;
+ * <li> <code>maps=default,maze:64x64,file:map.txt</code> - карты игрового
+ * поля, см.
+ * {@link getMap};
+ * <li> <code>games=1000</code> - количество игр каждой конфигурации;
+ * <li> <code>turns=500</code> - предельное количество туров одной игры;
+ * <li> <code>seed=0</code> - начальное значение, из которого порождаются
+ * начальные значения всех игр турнира: турнир с тем же значением и теми же
+ * параметрами повторяется в точности;
+ * <li> <code>record=каталог</code> - записывать каждую игру в заданный
+ * каталог, см. {@link GameRecorder};
+ * <li> <code>mapcache=каталог</code> - загружать карты из кэша
+ * скомпилированных карт в заданном каталоге, компилируя их при первом
+ * использовании, см. {@link CompiledMapFormat};
+ * <li> <code>threads=N</code> - количество потоков, по умолчанию - по
+ * количеству ядер.</ul>
+ */
+public class TournamentLauncher {
+
+    private static final int CELL_SIZE = 45;
+
+    private final List<TournamentAgent> agents = new ArrayList<TournamentAgent>();
+    private final List<Integer> ghostCounts = new ArrayList<Integer>();
+    private final List<String> mapNames = new ArrayList<String>();
+    private final int gamesPerConfiguration;
+    private final int maxTurns;
+    private final int threads;
+    private final long tournamentSeed;
+    private final Path recordDirectory;
+    private final Path mapCacheDirectory;
+    private final PrintStream out;
+
+    /**
+     * Создаёт новый турнир.
+     *
+     * @param options параметры турнира
+     * @param out поток вывода отчёта
+     */
+    public TournamentLauncher(Map<String, String> options, PrintStream out) {
+        for (String spec : getOption(options, "agents", "reflex,minimax:2,minimax:3").split(",")) {
+            agents.add(TournamentAgent.parse(spec));
+        }
+        for (String count : getOption(options, "ghosts", "1,2,3,4").split(",")) {
+            ghostCounts.add(Integer.parseInt(count.trim()));
+        }
+        for (String name : getOption(options, "maps", "default").split(",")) {
+            mapNames.add(name.trim());
+        }
+        gamesPerConfiguration = Integer.parseInt(getOption(options, "games", "1000"));
+        maxTurns = Integer.parseInt(getOption(options, "turns", "500"));
+        threads = Integer.parseInt(getOption(options,
+                "threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        tournamentSeed = Long.parseLong(getOption(options, "seed", "0"));
+        recordDirectory = options.containsKey("record") ? Paths.get(options.get("record")) : null;
+        mapCacheDirectory = options.containsKey("mapcache") ? Paths.get(options.get("mapcache")) : null;
+        this.out = out;
+    }
+
+    private static String getOption(Map<String, String> options, String key, String defaultValue) {
+        return options.containsKey(key) ? options.get(key) : defaultValue;
+    }
+
+    /**
+     * Возвращает карту игрового поля по её имени.
+     * <p>
+     * Имя <code>default</code> задаёт стандартное игровое поле, имя вида
+     * <code>file:путь</code> - карту в текстовом формате
+     * {@link TextMapFormat}, имя вида
+     * <code>maze:ШxВ[:ключ=значение...]</code> - лабиринт, созданный
+     * {@link MazeGenerator}, с параметрами <code>seed</code>,
+     * <code>density</code>, <code>loops</code>, <code>pillets</code> и
+     * <code>starts</code>, например
+     * <code>maze:512x512:seed=7:loops=0.2</code>.
+     *
+     * @param name имя карты
+     * @return карта игрового поля
+     * @throws IllegalArgumentException если карта не известна
+     */
+    protected GameFieldMap getMap(String name) {
+        if ("default".equals(name)) {
+            return GameAssembler.createDefaultMap(CELL_SIZE);
+        }
+        if (name.startsWith("file:")) {
+            try {
+                return TextMapFormat.read(Paths.get(name.substring("file:".length())), CELL_SIZE);
+            } catch (IOException ex) {
+                throw new IllegalArgumentException("Карта не может быть прочитана: " + name, ex);
+            }
+        }
+        if (name.startsWith("maze:")) {
+            String[] parts = name.split(":");
+            String[] dimensions = parts[1].split("x");
+            Map<String, String> parameters = new HashMap<String, String>();
+            for (int i = 2; i < parts.length; i++) {
+                int separator = parts[i].indexOf('=');
+                if (separator < 0) {
+                    throw new IllegalArgumentException("Параметр карты должен иметь вид ключ=значение: " + parts[i]);
+                }
+                parameters.put(parts[i].substring(0, separator), parts[i].substring(separator + 1));
+            }
+            MazeGenerator generator = new MazeGenerator(
+                    new Dimension(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1])),
+                    Long.parseLong(getOption(parameters, "seed", "0")));
+            generator.setCellSize(CELL_SIZE);
+            generator.setCorridorDensity(Double.parseDouble(getOption(parameters, "density", "1")));
+            generator.setLoopsRatio(Double.parseDouble(getOption(parameters, "loops", "0.1")));
+            generator.setPilletsNumber(Integer.parseInt(getOption(parameters, "pillets", "4")));
+            generator.setStartsNumber(Integer.parseInt(getOption(parameters, "starts", "5")));
+            return generator.generate();
+        }
+        throw new IllegalArgumentException("Неизвестная карта: " + name);
+    }
+
+    /**
+     * Возвращает карту игрового поля по её имени, при заданном каталоге кэша -
+     * скомпилированную, см. {@link CompiledMapFormat#compile}.
+     *
+     * @param name имя карты, см. {@link getMap}
+     * @return карта игрового поля
+     */
+    private GameFieldMap getCompiledMap(String name) {
+        GameFieldMap map = getMap(name);
+        if (mapCacheDirectory == null) {
+            return map;
+        }
+        try {
+            return CompiledMapFormat.compile(map, mapCacheDirectory);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Карта не может быть скомпилирована: " + name, ex);
+        }
+    }
+
+    /**
+     * Разыгрывает все игры турнира. Возвращает управление по завершении
+     * последней игры.
+     *
+     * @throws InterruptedException если ожидание завершения игр прервано
+     */
+    public void run() throws InterruptedException {
+        ExecutorService gamesService = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private int counter = 0;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "tournament game " + (counter++));
+                t.setDaemon(true);
+                return t;
+            }});
+
+        // Каждая карта создаётся однажды и используется во всех конфигурациях
+        List<GameFieldMap> maps = new ArrayList<GameFieldMap>(mapNames.size());
+        for (String mapName : mapNames) {
+            maps.add(getCompiledMap(mapName));
+        }
+
+        SplittableRandom seeds = new SplittableRandom(tournamentSeed);
+        out.println(TournamentStatistics.HEADER);
+        for (TournamentAgent agent : agents) {
+            for (int ghosts : ghostCounts) {
+                for (int m = 0; m < mapNames.size(); m++) {
+                    String mapName = mapNames.get(m);
+                    GameFieldMap map = maps.get(m);
+                    TournamentStatistics statistics = new TournamentStatistics(
+                            agent.getName(), ghosts, mapName, gamesPerConfiguration);
+                    for (int i = 0; i < gamesPerConfiguration; i++) {
+                        gamesService.execute(new TournamentGame(agent, ghosts, mapName, map, seeds.nextLong(), statistics));
+                    }
+                }
+            }
+        }
+        gamesService.shutdown();
+        gamesService.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+    }
+
+    /**
+     * Одна игра турнира.
+     */
+    private class TournamentGame implements Runnable {//<editor-fold defaultstate="collapsed">
+
+        private final TournamentAgent agent;
+        private final int ghosts;
+        private final String mapName;
+        private final GameFieldMap map;
+        private final long seed;
+        private final TournamentStatistics statistics;
+
+        public TournamentGame(TournamentAgent agent, int ghosts, String mapName, GameFieldMap map, long seed, TournamentStatistics statistics) {
+            this.agent = agent;
+            this.ghosts = ghosts;
+            this.mapName = mapName;
+            this.map = map;
+            this.seed = seed;
+            this.statistics = statistics;
+        }
+
+        @Override
+        public void run() {
+            boolean lastGame;
+            try {
+                HeadlessGameModel model = new HeadlessGameModel(map, agent.createAlgorithm(), maxTurns);
+                model.setGhostsNumber(ghosts);
+                model.setGameSeed(seed);
+                if (recordDirectory != null) {
+                    // Карта входит в имя файла хэшем содержимого, см. GameRecorder
+                    model.setGameRecorder(new GameRecorder(recordDirectory,
+                            agent.getName().replaceAll("[^A-Za-z0-9._-]", "_") + "-" + ghosts + "-", agent.getName()));
+                }
+                model.reinitializeGame();
+                model.run();
+                lastGame = statistics.addGame(
+                        model.isGameWon(), model.isGameLost(),
+                        model.getGameScore(), model.getTurnsPlayed(), model.getThinkTimes());
+            } catch (RuntimeException ex) {
+                Logger.getLogger(TournamentLauncher.class.getName()).log(Level.WARNING,
+                        agent.getName() + ", ghosts " + ghosts + ", map " + mapName + ", seed " + seed, ex);
+                lastGame = statistics.addError();
+            }
+            if (lastGame) {
+                synchronized (out) {
+                    out.println(statistics.formatRow());
+                    out.flush();
+                }
+            }
+        }
+        //</editor-fold>
+    }
+
+    /**
+     * @param args параметры турнира в виде <code>ключ=значение</code>
+     */
+    public static void main(String args[]) throws InterruptedException {
+        Map<String, String> options = new HashMap<String, String>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Параметр должен иметь вид ключ=значение: " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        new TournamentLauncher(options, System.out).run();
+    }
+}
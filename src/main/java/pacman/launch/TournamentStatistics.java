@@ -0,0 +1,153 @@
+package pacman.launch;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Статистика игр одной конфигурации турнира.
+ * <p>
+ * Накапливает результаты игр, сыгранных в разных потоках, и после завершения
+ * последней игры конфигурации формирует строку отчёта: доля побед, распределение
+ * счёта, продолжительность игры и перцентили времени принятия решений.
+ * <p>
+ * Потоково-безопасен.
+ */
+public class TournamentStatistics {
+
+    /**
+     * Заголовок таблицы отчёта, соответствует {@link formatRow}.
+     */
+    public static final String HEADER = String.join("\t",
+            "agent", "ghosts", "map", "games", "wins", "losses", "draws", "errors", "win_rate",
+            "score_mean", "score_p10", "score_p50", "score_p90",
+            "turns_mean", "turns_p50", "turns_p90",
+            "think_us_p50", "think_us_p90", "think_us_p99", "think_us_max");
+
+    private final String agentName;
+    private final int ghosts;
+    private final String mapName;
+    private final int totalGames;
+
+    private final float[] scores;
+    private final int[] turns;
+    private long[] thinkTimes = new long[1024];
+    private int thinkTimesCount = 0;
+    private int gamesDone = 0;
+    private int wins = 0;
+    private int losses = 0;
+    private int errors = 0;
+
+    /**
+     * Создаёт статистику новой конфигурации.
+     *
+     * @param agentName имя агента Пакмана
+     * @param ghosts количество привидений
+     * @param mapName имя карты игрового поля
+     * @param totalGames количество игр конфигурации
+     */
+    public TournamentStatistics(String agentName, int ghosts, String mapName, int totalGames) {
+        this.agentName = agentName;
+        this.ghosts = ghosts;
+        this.mapName = mapName;
+        this.totalGames = totalGames;
+        this.scores = new float[totalGames];
+        this.turns = new int[totalGames];
+    }
+
+    /**
+     * Добавляет результат завершённой игры.
+     *
+     * @param won <code>true</code>, если Пакман победил
+     * @param lost <code>true</code>, если Пакман проиграл
+     * @param score счёт игры
+     * @param turnsPlayed количество сыгранных туров
+     * @param decisionTimes время принятия решений Пакманом, в наносекундах
+     * @return <code>true</code>, если это последняя игра конфигурации
+     */
+    public synchronized boolean addGame(boolean won, boolean lost, float score, int turnsPlayed, long[] decisionTimes) {
+        if (won) {
+            wins++;
+        } else if (lost) {
+            losses++;
+        }
+        scores[gamesDone - errors] = score;
+        turns[gamesDone - errors] = turnsPlayed;
+        if (thinkTimesCount + decisionTimes.length > thinkTimes.length) {
+            thinkTimes = Arrays.copyOf(thinkTimes, Math.max(thinkTimes.length * 2, thinkTimesCount + decisionTimes.length));
+        }
+        System.arraycopy(decisionTimes, 0, thinkTimes, thinkTimesCount, decisionTimes.length);
+        thinkTimesCount += decisionTimes.length;
+        return (++gamesDone == totalGames);
+    }
+
+    /**
+     * Добавляет игру, завершившуюся ошибкой.
+     *
+     * @return <code>true</code>, если это последняя игра конфигурации
+     */
+    public synchronized boolean addError() {
+        errors++;
+        return (++gamesDone == totalGames);
+    }
+
+    /**
+     * Формирует строку отчёта по сыгранным играм.
+     *
+     * @return строка отчёта, поля разделены табуляцией
+     */
+    public synchronized String formatRow() {
+        int played = gamesDone - errors;
+        float[] sortedScores = Arrays.copyOf(scores, played);
+        Arrays.sort(sortedScores);
+        int[] sortedTurns = Arrays.copyOf(turns, played);
+        Arrays.sort(sortedTurns);
+        long[] sortedThink = Arrays.copyOf(thinkTimes, thinkTimesCount);
+        Arrays.sort(sortedThink);
+
+        double scoreSum = 0;
+        for (float s : sortedScores) {
+            scoreSum += s;
+        }
+        double turnsSum = 0;
+        for (int t : sortedTurns) {
+            turnsSum += t;
+        }
+
+        return String.join("\t",
+                agentName, String.valueOf(ghosts), mapName,
+                String.valueOf(gamesDone), String.valueOf(wins), String.valueOf(losses),
+                String.valueOf(played - wins - losses), String.valueOf(errors),
+                format(played == 0 ? 0 : (double) wins / played),
+                format(played == 0 ? 0 : scoreSum / played),
+                format(played == 0 ? 0 : sortedScores[percentileIndex(played, 10)]),
+                format(played == 0 ? 0 : sortedScores[percentileIndex(played, 50)]),
+                format(played == 0 ? 0 : sortedScores[percentileIndex(played, 90)]),
+                format(played == 0 ? 0 : turnsSum / played),
+                String.valueOf(played == 0 ? 0 : sortedTurns[percentileIndex(played, 50)]),
+                String.valueOf(played == 0 ? 0 : sortedTurns[percentileIndex(played, 90)]),
+                format(micros(sortedThink, 50)),
+                format(micros(sortedThink, 90)),
+                format(micros(sortedThink, 99)),
+                format(thinkTimesCount == 0 ? 0 : sortedThink[thinkTimesCount - 1] / 1000.0));
+    }
+
+    private double micros(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[percentileIndex(sorted.length, percentile)] / 1000.0;
+    }
+
+    /**
+     * @return индекс перцентиля в упорядоченном массиве заданной длины
+     * (метод ближайшего ранга)
+     */
+    static int percentileIndex(int length, int percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * length);
+        return Math.max(0, Math.min(length - 1, rank - 1));
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+}
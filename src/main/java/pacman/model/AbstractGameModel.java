@@ -1,16 +1,31 @@
 package pacman.model;
 
+import algorithms.core.HierarchicalPathfinder;
 import algorithms.core.ISearchAlgorithm;
+import algorithms.core.JunctionGraph;
 import java.awt.Dimension;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Observable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import pacman.game.FrameSnapshot;
+import pacman.game.GameSpeed;
+import pacman.game.GameThreads;
 import pacman.game.IAction;
 import pacman.game.IAnimatedGameModel;
 import pacman.game.IAnimatedPlayer;
 import pacman.game.IControlableGameModel;
 import pacman.game.IGameField;
+import pacman.game.IGameField.CellContent;
+import pacman.game.IModelListener;
+import pacman.game.ModelEvent;
 
 /**
  * Обобщённая модель игры.
@@ -26,19 +41,53 @@ import pacman.game.IGameField;
  * <li> Уведомлять в момент хода Пакмана об исполнении им всех действий через
  * {@link setPacmanActionsDone};
  * <li> Уведомлять об изменении данных модели через {@link reportChanged}.</ol>
+ * <p>
+ * Получатели событий модели добавляются через {@link addModelListener}.
  */
 public abstract class AbstractGameModel
-        extends Observable
         implements IAnimatedGameModel, IControlableGameModel {
 
     protected final GameFieldMap gameFieldMap;
     protected final List<Player> players = new ArrayList<Player>();
     protected GameState<IAction> gameState;
     protected Maze myMaze;
+    protected final CompiledMaze compiledMaze;
     protected int totalGhosts = 1;
     
-    private final List<Point> locationsPool = new ArrayList<Point>();
-    private boolean redrawRequired = false;
+    /**
+     * Часы анимации ходов игроков. Публикуют снимок кадра и перерисовывают
+     * накопленную за кадр область, см. {@link addDirtyRegion}.
+     */
+    protected final AnimationClock animationClock = new AnimationClock(new Runnable() {
+        @Override
+        public void run() {
+            redrawDirtyRegion();
+        }
+    });
+    
+    /**
+     * Количество клеток игрового поля, начиная с которого поиск пути ведётся
+     * иерархически.
+     */
+    protected static final int LARGE_MAZE_CELLS = 256 * 256;
+    
+    private final AtomicReference<Rectangle> redrawRegion = new AtomicReference<Rectangle>(); // Не забранная видом область перерисовки
+    private final ModelEventBus eventBus = new ModelEventBus();
+    private volatile GameSpeed gameSpeed = GameSpeed.NORMAL;
+    private volatile boolean frameStale = false;        // Снимок кадра не опубликован при изменении
+    private final AtomicReference<FrameSnapshot> frameSnapshot = new AtomicReference<FrameSnapshot>();
+    private final Object frameLock = new Object();
+    private Maze frameMaze;                             // Поле, еда и таблетки последнего снимка
+    private int frameFoodVersion;                       // Номер изменения еды с учётом ещё не убранных из карт клеток
+    private BitSet frameFood;
+    private BitSet framePillets;
+    private int[] frameEatenFood = new int[4];          // Клетки, съеденные после последнего снимка
+    private int frameEatenFoodCount;
+    private int[] frameEatenPillets = new int[4];
+    private int frameEatenPilletsCount;
+    private final Object dirtyRegionLock = new Object();
+    private Rectangle dirtyRegion;                      // Изменившаяся за кадр область, null - нет изменений
+    private volatile FutureTask<ISearchAlgorithm> pathSearch;   // Построение поиска пути, null - не запускалось
 
     /**
      * Создаёт новую обобщённую модель игры.
@@ -47,37 +96,255 @@ public abstract class AbstractGameModel
      */
     public AbstractGameModel(GameFieldMap field) {
         this.gameFieldMap = field;
-        for (int i = 0; i < field.getGameFieldSize().getWidth(); i++) {
-            for (int j = 0; j < field.getGameFieldSize().getHeight(); j++) {
-                locationsPool.add(new Point(i, j));
-            }
-        }
-        NonstopAction.setLocationsPoll(locationsPool);
+        this.compiledMaze = field.getCompiledMaze();
+    }
+
+    /**
+     * Добавляет получателя событий модели.
+     *
+     * @param listener получатель событий
+     */
+    public void addModelListener(IModelListener listener) {
+        eventBus.addListener(listener);
     }
 
     /**
-     * Уведомляет наблюдателей об изменении состояния.
+     * Удаляет получателя событий модели.
+     *
+     * @param listener получатель событий
      */
-    protected void reportChanged() {
-        setChanged();
-        notifyObservers();
-        clearChanged();
+    public void removeModelListener(IModelListener listener) {
+        eventBus.removeListener(listener);
+    }
+
+    /**
+     * Уведомляет получателей об изменении состояния.
+     *
+     * @param event событие модели
+     */
+    protected void reportChanged(ModelEvent event) {
+        eventBus.publish(event);
     }
 
     /**
      * Уведомляет о необходимости перерисовки вида.
      */
     protected void redrawView() {
-        redrawRequired = true;
-        reportChanged();
-        redrawRequired = false;
+        redrawView(null);
+    }
+
+    /**
+     * Уведомляет о необходимости перерисовки части вида.
+     * <p>
+     * Области перерисовки объединяются, пока вид не заберёт их через
+     * {@link takeRedrawRegion}; получатели уведомляются только о первой
+     * области после этого. Сколько бы игроков ни двигалось, вид получает
+     * не больше одного уведомления на кадр.
+     * <p>
+     * Снимок кадра при этом только отмечается устаревшим: он публикуется
+     * однажды за кадр часов анимации или по запросу вида, см.
+     * {@link getFrameSnapshot}.
+     *
+     * @param region изменившаяся область холста, в пикселах; <code>null</code>
+     * - весь холст
+     */
+    protected void redrawView(Rectangle region) {
+        frameStale = true;
+        addRedrawRegion(region);
+    }
+
+    private void addRedrawRegion(Rectangle region) {
+        Rectangle added = (region != null) ? region : new Rectangle(getGameCanvasDimension());
+        while (true) {
+            Rectangle pending = redrawRegion.get();
+            Rectangle merged = new Rectangle(added);
+            if (pending != null) {
+                merged.add(pending);
+            }
+            if (redrawRegion.compareAndSet(pending, merged)) {
+                if (pending == null) {
+                    reportChanged(ModelEvent.FRAME_DIRTY);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Публикует снимок кадра с текущими данными игроков и еды. Битовые карты
+     * еды копируются не больше одного раза за снимок, без съеденных после
+     * прошлого снимка клеток, см. {@link removeFood} и {@link removePillet}.
+     * Заново они строятся, только если еда изменилась иначе: при новой игре
+     * или восстановлении еды.
+     */
+    private void publishFrame() {
+        synchronized (frameLock) {
+            frameStale = false;
+            Maze maze = myMaze;
+            int width = gameFieldMap.getGameFieldSize().width;
+            if (frameEatenFoodCount > 0) {
+                frameFood = clearCells(frameFood, frameEatenFood, frameEatenFoodCount);
+                frameEatenFoodCount = 0;
+            }
+            if (frameEatenPilletsCount > 0) {
+                framePillets = clearCells(framePillets, frameEatenPillets, frameEatenPilletsCount);
+                frameEatenPilletsCount = 0;
+            }
+            if (frameFood == null || maze != frameMaze || maze.getFoodVersion() != frameFoodVersion) {
+                frameFood = new BitSet();
+                framePillets = new BitSet();
+                if (maze != null) {
+                    frameFoodVersion = maze.getFoodVersion();
+                    for (Point cell : maze.getFood()) {
+                        frameFood.set(cell.y * width + cell.x);
+                    }
+                    for (Point cell : maze.getPillets()) {
+                        framePillets.set(cell.y * width + cell.x);
+                    }
+                }
+                frameMaze = maze;
+            }
+            boolean started = (gameState != null);
+            frameSnapshot.set(new FrameSnapshot(maze, width, players, frameFood, framePillets,
+                    started && gameState.isLose(), started && gameState.isWin()));
+        }
+    }
+
+    /**
+     * Убирает съеденный элемент еды с игрового поля и перерисовывает клетку.
+     * Клетка запоминается и убирается из битовой карты еды при публикации
+     * следующего снимка.
+     *
+     * @param cell клетка съеденного элемента еды
+     */
+    protected void removeFood(Point cell) {
+        synchronized (frameLock) {
+            int version = myMaze.getFoodVersion();
+            myMaze.removeFood(cell);
+            if (isFrameFoodCurrent(version)) {
+                frameEatenFood = appendCell(frameEatenFood, frameEatenFoodCount++, cell);
+                frameFoodVersion = myMaze.getFoodVersion();
+            }
+        }
+        redrawView(getCellRegion(cell));
+    }
+
+    /**
+     * Убирает съеденную магическую таблетку с игрового поля и перерисовывает
+     * клетку, см. {@link removeFood}.
+     *
+     * @param cell клетка съеденной таблетки
+     */
+    protected void removePillet(Point cell) {
+        synchronized (frameLock) {
+            int version = myMaze.getFoodVersion();
+            myMaze.removePillet(cell);
+            if (isFrameFoodCurrent(version)) {
+                frameEatenPillets = appendCell(frameEatenPillets, frameEatenPilletsCount++, cell);
+                frameFoodVersion = myMaze.getFoodVersion();
+            }
+        }
+        redrawView(getCellRegion(cell));
+    }
+
+    /**
+     * @param version номер изменения еды до изменения
+     * @return <code>true</code>, если битовые карты еды снимков вместе с
+     * запомненными клетками соответствуют еде поля до изменения
+     */
+    private boolean isFrameFoodCurrent(int version) {
+        return frameFood != null && frameMaze == myMaze && frameFoodVersion == version;
+    }
+
+    private int[] appendCell(int[] cells, int index, Point cell) {
+        if (index == cells.length) {
+            cells = Arrays.copyOf(cells, cells.length * 2);
+        }
+        cells[index] = cell.y * gameFieldMap.getGameFieldSize().width + cell.x;
+        return cells;
+    }
+
+    /**
+     * Копирует битовую карту без битов клеток: переданные в снимки карты не
+     * изменяются.
+     */
+    private static BitSet clearCells(BitSet bits, int[] cells, int count) {
+        BitSet result = (BitSet) bits.clone();
+        for (int i = 0; i < count; i++) {
+            result.clear(cells[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Добавляет область к перерисовываемой в ближайшем кадре часов анимации.
+     *
+     * @param region изменившаяся область холста, в пикселах
+     */
+    protected void addDirtyRegion(Rectangle region) {
+        synchronized (dirtyRegionLock) {
+            if (dirtyRegion == null) {
+                dirtyRegion = new Rectangle(region);
+            } else {
+                dirtyRegion.add(region);
+            }
+        }
+    }
+
+    /**
+     * Кадр часов анимации: публикует один снимок кадра, если изображение
+     * изменилось, и перерисовывает накопленную за кадр область одним
+     * уведомлением.
+     */
+    private void redrawDirtyRegion() {
+        Rectangle region;
+        synchronized (dirtyRegionLock) {
+            region = dirtyRegion;
+            dirtyRegion = null;
+        }
+        // Без получателей снимок публикуется только по запросу
+        if ((region != null || frameStale) && eventBus.hasListeners()) {
+            publishFrame();
+        } else if (region != null) {
+            frameStale = true;
+        }
+        if (region != null) {
+            addRedrawRegion(region);
+        }
+    }
+
+    /**
+     * Возвращает область холста, занимаемую клеткой игрового поля.
+     *
+     * @param cell клетка игрового поля
+     * @return область клетки, в пикселах
+     */
+    protected Rectangle getCellRegion(Point cell) {
+        int cellSize = getMazeCellSize();
+        return new Rectangle(cell.x * cellSize, cell.y * cellSize, cellSize, cellSize);
+    }
+
+    /**
+     * Возвращает область холста, которую может занимать фигура игрока в ходе
+     * анимации текущего действия: клетки до и после действия.
+     *
+     * @param player игрок
+     * @return область фигуры игрока, в пикселах
+     */
+    protected Rectangle getPlayerRegion(IAnimatedPlayer player) {
+        Point location = player.getLocation();
+        Point basis = player.getCurrentAction().getBasis();
+        Rectangle region = getCellRegion(location);
+        region.add(getCellRegion(new Point(location.x - basis.x, location.y - basis.y)));
+        region.grow(1, 1);                                                  // Сглаживание краёв фигуры
+        return region;
     }
 
     /**
      * Уведомляет об исполнении Пакманом всех действий.
      */
     protected void setPacmanActionsDone() {
-        reportChanged();
+        reportChanged(ModelEvent.PACMAN_QUEUE_EMPTY);
     }
 
     //------------------------------------------------- Переопределяемые методы
@@ -99,17 +366,137 @@ public abstract class AbstractGameModel
 
     @Override
     public void reinitializeGame() {
-        int pacmanId = reinitializePlayers();
-        myMaze = new Maze(gameFieldMap, locationsPool, true);
-        gameState = new GameState<IAction>(myMaze, totalGhosts, gameFieldMap.getStartLocations(), pacmanId, myMaze.getFood(), myMaze.getPillets(), getPossibleActions());
+        // Снимок кадра не должен застать список игроков частично заполненным
+        synchronized (frameLock) {
+            int pacmanId = reinitializePlayers();
+            myMaze = new Maze(gameFieldMap, compiledMaze);
+            gameState = new GameState<IAction>(compiledMaze, totalGhosts, gameFieldMap.getStartLocations(), pacmanId, myMaze.getFood(), myMaze.getPillets(), getPossibleActions());
+            frameStale = true;
+        }
         setPacmanActionsDone();
     }
 
+    @Override
+    public void preparePathSearch() {
+        FutureTask<ISearchAlgorithm> task = createPathSearchTask();
+        if (task != null) {
+            GameThreads.newFactory("path search", true).newThread(task).start();
+        }
+    }
+
+    /**
+     * Возвращает граф развилок игрового поля, для больших полей -
+     * иерархический граф кластеров. Граф строится однажды и используется во
+     * всех играх модели: стены карты не изменяются. Если построение не было
+     * запущено через {@link preparePathSearch}, граф строится в вызывающем
+     * потоке.
+     * <p>
+     * Для скомпилированной карты граф строится по её таблице развилок, а
+     * если карта содержит таблицу расстояний, путь прокладывается по ней без
+     * построения графа, см. {@link DistanceTableSearch}.
+     */
+    @Override
+    public ISearchAlgorithm getPathSearch() {
+        FutureTask<ISearchAlgorithm> task = createPathSearchTask();
+        if (task != null) {
+            task.run();
+        }
+        try {
+            return pathSearch.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание поиска пути прервано", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Поиск пути не построен", ex.getCause());
+        }
+    }
+
+    /**
+     * Создаёт задачу построения поиска пути по состоянию текущей игры.
+     *
+     * @return задача построения; <code>null</code>, если задача уже создана
+     */
+    private synchronized FutureTask<ISearchAlgorithm> createPathSearchTask() {
+        if (pathSearch != null) {
+            return null;
+        }
+        final GameState<IAction> state = gameState;
+        pathSearch = new FutureTask<ISearchAlgorithm>(new Callable<ISearchAlgorithm>() {
+            @Override
+            public ISearchAlgorithm call() {
+                CompiledFieldMap compiledMap = null;
+                if (gameFieldMap instanceof CompiledFieldMap) {
+                    compiledMap = (CompiledFieldMap) gameFieldMap;
+                    if (compiledMap.hasDistances()) {
+                        return new DistanceTableSearch(compiledMap, compiledMaze);
+                    }
+                }
+                List<Point> movableCells = new ArrayList<Point>(compiledMaze.getCellsWith(CellContent.PASSAGE));
+                Dimension size = gameFieldMap.getGameFieldSize();
+                if (size.width * size.height >= LARGE_MAZE_CELLS) {
+                    return new HierarchicalPathfinder<IAction>(size, movableCells, getPossibleActions());
+                }
+                List<Point> junctions = null;
+                if (compiledMap != null) {
+                    junctions = new ArrayList<Point>();
+                    for (Point junction : compiledMap.getJunctions()) {
+                        junctions.add(compiledMaze.getCell(junction.x, junction.y));
+                    }
+                }
+                return new JunctionGraph<IAction>(state, movableCells, junctions);
+            }
+        });
+        return pathSearch;
+    }
+
     @Override
     public void setGhostsNumber(int ghostsNumber) {
         totalGhosts = ghostsNumber;
     }
 
+    /**
+     * Устанавливает скорость игры. Новая скорость применяется к ходам,
+     * начатым после её установки.
+     *
+     * @param speed скорость игры
+     */
+    public void setGameSpeed(GameSpeed speed) {
+        gameSpeed = speed;
+    }
+
+    /**
+     * @return скорость игры
+     */
+    public GameSpeed getGameSpeed() {
+        return gameSpeed;
+    }
+
+    /**
+     * Возвращает продолжительность тура, она же продолжительность анимации
+     * хода, при текущей скорости игры.
+     *
+     * @return продолжительность тура, в нс; <code>0</code> - без ограничения
+     */
+    protected long getTurnDuration() {
+        GameSpeed speed = gameSpeed;
+        return speed.isThrottled() ? ActionAnimator.ANIMATION_DURATION / speed.getMultiplier() : 0;
+    }
+
+    /**
+     * Ожидает, пока с начала тура не пройдёт продолжительность тура при
+     * текущей скорости игры: туры, в которых ходы завершились раньше,
+     * например, никто не сдвинулся, длятся столько же, сколько остальные.
+     *
+     * @param turnStart время начала тура по {@link System#nanoTime}
+     * @throws InterruptedException если поток прерван
+     */
+    protected void waitTurnEnd(long turnStart) throws InterruptedException {
+        long remaining = turnStart + getTurnDuration() - System.nanoTime();
+        if (remaining > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+    }
+
     @Override
     public boolean isGameComplete() {
         return gameState.isWin() || gameState.isLose();
@@ -164,6 +551,21 @@ public abstract class AbstractGameModel
 
     @Override
     public boolean isRedrawRequired() {
-        return redrawRequired;
+        return redrawRegion.get() != null;
+    }
+
+    @Override
+    public Rectangle takeRedrawRegion() {
+        return redrawRegion.getAndSet(null);
+    }
+
+    @Override
+    public FrameSnapshot getFrameSnapshot() {
+        FrameSnapshot frame = frameSnapshot.get();
+        if (frame == null || frameStale) {
+            publishFrame();
+            frame = frameSnapshot.get();
+        }
+        return frame;
     }
 }
@@ -8,26 +8,33 @@ import pacman.game.IAction;
  * Исполнитель анимации одного действия.
  * <p>
  * Выполняет сдвиг анимации объекта на заданное расстояние в указанном
- * направлении. Об исполнении каждого шага и завершении анимации уведомляет
- * через интерфейс {@link IAnimationMediator}.
+ * направлении. Анимация длится заданное время: сдвиг в каждом кадре
+ * вычисляется по времени, прошедшему с начала действия, поэтому задержка
+ * кадров не растягивает ход, а только пропускает промежуточные положения.
+ * Об исполнении каждого шага и завершении анимации уведомляет через интерфейс
+ * {@link IAnimationMediator}.
  * <p>
  * Использование: установить анимируемое действие через {@link setAction},
- * запустить поток исполнения. Для анимирования одного объекта может многократно
+ * передать исполнителя часам анимации {@link AnimationClock}, которые сдвигают
+ * анимацию в каждом кадре. Для анимирования одного объекта может многократно
  * использоваться один экземпляр этого класса.
  */
-public class ActionAnimator implements Runnable {
+public class ActionAnimator {
     
-    private static final int ANIMATION_FPS = 40;    // Количество кадров анимации в секунду
-    private static final int ANIMATION_STEPS = 11;  // Количество шагов анимации на полном отрезке
+    /**
+     * Продолжительность анимации действия при обычной скорости игры, в нс.
+     */
+    public static final long ANIMATION_DURATION = TimeUnit.MILLISECONDS.toNanos(275);
     
     private final IMovableEntity movableObject;     // Игрок, которому принадлежит анимация
     private final IAnimationMediator listener;
-    private final int animationStepInPixels;        // Шаг анимации, в пикселах
     private final int stepLength;                   // Длина отрезка анимации
     
-    private Point currentShift;                     // Текущие координаты анимации, в пикселах
     private IAction action;                         // Текущее действие
-    private boolean isStopped = false;
+    private long startTime;                         // Время начала действия, в нс
+    private long duration;                          // Продолжительность действия, в нс
+    private boolean isComplete = false;
+    private volatile boolean isStopped = false;
 
     /**
      * Создаёт нового исполнителя.
@@ -40,61 +47,61 @@ public class ActionAnimator implements Runnable {
         this.movableObject = object;
         this.listener = listener;
         this.stepLength = stepLength;
-        this.animationStepInPixels = stepLength / ANIMATION_STEPS;
-        this.currentShift = new Point(0, 0);
     }
 
     /**
-     * Устанавливает анимируемое действие.
+     * Устанавливает анимируемое действие; отсчёт времени анимации начинается
+     * с этого момента. До первого шага анимации фигура объекта остаётся в
+     * клетке, из которой начато действие.
      *
      * @param action анимируемое действие
+     * @param duration продолжительность анимации, в нс, см.
+     * {@link ANIMATION_DURATION}
      */
-    public void setAction(IAction action) {
+    public void setAction(IAction action, long duration) {
         this.action = action;
+        this.startTime = System.nanoTime();
+        this.duration = duration;
+        this.isComplete = false;
         movableObject.setCurrentAction(action);
-    }
-
-    @Override
-    public void run() {
-        try {
-            while (isAnimationIncomplete() && !isStopped) {
-                movableObject.setAnimationShift(shiftAnimationStep(action));
-                TimeUnit.MILLISECONDS.sleep(1000 / ANIMATION_FPS);
-                listener.redrawGraphics();
-            }
-        } catch (InterruptedException e) {
-        }
-        currentShift.x = 0;
-        currentShift.y = 0;
-        isStopped = false;
-        listener.notifyAnimationComplete();
+        movableObject.setAnimationShift(new Point(-stepLength * action.getBasis().x,
+                -stepLength * action.getBasis().y));
     }
 
     /**
-     * Прекращает процесс анимации.
+     * Сдвигает анимацию в положение на заданный момент и запрашивает
+     * перерисовку.
+     *
+     * @param now текущее время, в нс, см. {@link System#nanoTime}
+     * @return <code>true</code>, если анимация завершена или прекращена
      */
-    public void stop() {
-        isStopped = true;
+    boolean advance(long now) {
+        if (!isComplete && !isStopped) {
+            long elapsed = Math.min(now - startTime, duration);
+            int distance = (int) (stepLength * elapsed / duration);
+            movableObject.setAnimationShift(new Point((distance - stepLength) * action.getBasis().x,
+                    (distance - stepLength) * action.getBasis().y));
+            listener.redrawGraphics();
+            isComplete = (elapsed >= duration);
+        }
+        return isComplete || isStopped;
     }
 
     /**
-     * Перемещает анимацию на один шаг в указанном направлении.
-     *
-     * @param action направление анимации
-     * @return новые координаты анимации
+     * Завершает анимацию: готовит исполнителя к следующему действию и
+     * уведомляет о завершении.
      */
-    private Point shiftAnimationStep(IAction action) {
-        currentShift = action.translateWithFactor(currentShift, animationStepInPixels);
-        return new Point(currentShift.x - stepLength * action.getBasis().x,
-                currentShift.y - stepLength * action.getBasis().y);
+    void complete() {
+        isComplete = true;
+        isStopped = false;
+        listener.notifyAnimationComplete();
     }
 
     /**
-     * @return <code>true</code> если выполнение анимации не завершено
+     * Прекращает процесс анимации.
      */
-    private boolean isAnimationIncomplete() {
-        return (Math.abs(currentShift.x) < animationStepInPixels * ANIMATION_STEPS)
-                && (Math.abs(currentShift.y) < animationStepInPixels * ANIMATION_STEPS);
+    public void stop() {
+        isStopped = true;
     }
 }
 
@@ -0,0 +1,100 @@
+package pacman.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import pacman.game.GameThreads;
+
+/**
+ * Часы анимации.
+ * <p>
+ * Единый источник кадров для всех анимаций модели: в каждом кадре сдвигает на
+ * шаг все запущенные исполнители {@link ActionAnimator}, затем однажды
+ * уведомляет обработчик кадра, после чего сообщает о завершении анимаций,
+ * закончившихся в этом кадре. Положения анимаций вычисляются по времени
+ * кадра; кадры, запоздавшие настолько, что следующий уже наступил,
+ * пропускаются. Пока анимаций нет, часы остановлены; поток часов создаётся
+ * при первом запуске анимации.
+ * <p>
+ * Потоково-безопасно.
+ */
+public class AnimationClock {
+
+    private static final int ANIMATION_FPS = 40;    // Количество кадров анимации в секунду
+    private static final long FRAME_PERIOD = TimeUnit.SECONDS.toNanos(1) / ANIMATION_FPS;
+
+    private final Runnable frameListener;
+    private final List<ActionAnimator> animators = new ArrayList<ActionAnimator>();
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> ticks;
+    private long lastFrameTime;                     // Время последнего кадра, в нс
+
+    /**
+     * Создаёт часы анимации.
+     *
+     * @param frameListener обработчик кадра, вызывается после сдвига всех
+     * анимаций в потоке часов
+     */
+    public AnimationClock(Runnable frameListener) {
+        this.frameListener = frameListener;
+    }
+
+    /**
+     * Запускает анимацию: с ближайшего кадра исполнитель сдвигается на шаг в
+     * каждом кадре до завершения.
+     *
+     * @param animator исполнитель анимации с установленным действием
+     */
+    public synchronized void start(ActionAnimator animator) {
+        animators.add(animator);
+        if (ticks == null) {
+            if (executor == null) {
+                executor = Executors.newSingleThreadScheduledExecutor(GameThreads.newFactory("animation clock", true));
+            }
+            ticks = executor.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    tick();
+                }
+            }, FRAME_PERIOD, FRAME_PERIOD, TimeUnit.NANOSECONDS);
+            lastFrameTime = System.nanoTime();
+        }
+    }
+
+    /**
+     * Кадр анимации.
+     */
+    private void tick() {
+        long now = System.nanoTime();
+        List<ActionAnimator> frame;
+        synchronized (this) {
+            // Запоздавшие кадры исполнитель запускает подряд: пропустить догоняющие
+            if (now - lastFrameTime < FRAME_PERIOD / 2) {
+                return;
+            }
+            lastFrameTime = now;
+            frame = new ArrayList<ActionAnimator>(animators);
+        }
+        List<ActionAnimator> completed = new ArrayList<ActionAnimator>();
+        for (ActionAnimator animator : frame) {
+            if (animator.advance(now)) {
+                completed.add(animator);
+            }
+        }
+        frameListener.run();
+        synchronized (this) {
+            animators.removeAll(completed);
+            if (animators.isEmpty()) {
+                ticks.cancel(false);
+                ticks = null;
+            }
+        }
+        // Уведомлять вне блокировки: завершение хода может запустить новые анимации
+        for (ActionAnimator animator : completed) {
+            animator.complete();
+        }
+    }
+}
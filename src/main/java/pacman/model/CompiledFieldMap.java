@@ -0,0 +1,115 @@
+package pacman.model;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.BitSet;
+
+/**
+ * Карта игрового поля, прочитанная из скомпилированного файла
+ * {@link CompiledMapFormat}.
+ * <p>
+ * Помимо стен, исходных расположений и таблеток хранит заранее вычисленные
+ * таблицы: перечень развилок (проходимых клеток, из которых ведёт не два
+ * перехода) и, для небольших полей, расстояния между всеми парами проходимых
+ * клеток. Таблицы не копируются из отображённого в память файла, а читаются
+ * из него напрямую. Модель игры строит по таблице развилок граф развилок, а
+ * по таблице расстояний прокладывает путь Пакмана, см.
+ * {@link DistanceTableSearch}.
+ */
+public class CompiledFieldMap extends GridFieldMap {
+
+    private final String contentHash;
+    private final IntBuffer junctions;
+    private final IntBuffer distanceCells;
+    private final CharBuffer distances;
+
+    /**
+     * @param mazeSize размер игрового поля, в клетках
+     * @param cellSize размер клетки игрового поля, в пикселах
+     * @param startLocations упорядоченный перечень исходных расположений игроков
+     * @param pilletsLocations перечень расположения магических таблеток
+     * @param walls битовая карта стен
+     * @param contentHash хэш содержимого карты
+     * @param junctions номера клеток развилок
+     * @param distanceCells упорядоченные номера проходимых клеток таблицы
+     * расстояний, пустой буфер - таблицы нет
+     * @param distances расстояния между проходимыми клетками, построчно
+     */
+    CompiledFieldMap(Dimension mazeSize, int cellSize, Point[] startLocations, Point[] pilletsLocations, BitSet walls,
+            String contentHash, IntBuffer junctions, IntBuffer distanceCells, CharBuffer distances) {
+        super(mazeSize, cellSize, startLocations, pilletsLocations, walls);
+        this.contentHash = contentHash;
+        this.junctions = junctions;
+        this.distanceCells = distanceCells;
+        this.distances = distances;
+    }
+
+    /**
+     * @return хэш содержимого карты, см. {@link CompiledMapFormat#hash}
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * @return перечень развилок и тупиков игрового поля
+     */
+    public Point[] getJunctions() {
+        int width = getGameFieldSize().width;
+        Point[] cells = new Point[junctions.limit()];
+        for (int i = 0; i < cells.length; i++) {
+            int cell = junctions.get(i);
+            cells[i] = new Point(cell % width, cell / width);
+        }
+        return cells;
+    }
+
+    /**
+     * @return <code>true</code>, если карта содержит таблицу расстояний
+     */
+    public boolean hasDistances() {
+        return distanceCells.limit() > 0;
+    }
+
+    /**
+     * Возвращает длину кратчайшего пути между клетками по таблице расстояний.
+     *
+     * @param from начальная клетка
+     * @param to конечная клетка
+     * @return количество ходов; <code>-1</code>, если пути нет, одна из
+     * клеток непроходима или таблицы расстояний нет
+     */
+    public int getDistance(Point from, Point to) {
+        int a = indexOf(from);
+        int b = indexOf(to);
+        if (a < 0 || b < 0) {
+            return -1;
+        }
+        char distance = distances.get(a * distanceCells.limit() + b);
+        return (distance == CompiledMapFormat.UNREACHABLE) ? -1 : distance;
+    }
+
+    private int indexOf(Point cell) {
+        Dimension size = getGameFieldSize();
+        if (cell.x < 0 || cell.y < 0 || cell.x >= size.width || cell.y >= size.height) {
+            return -1;
+        }
+        int key = cell.y * size.width + cell.x;
+        int low = 0;
+        int high = distanceCells.limit() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int value = distanceCells.get(middle);
+            if (value < key) {
+                low = middle + 1;
+            } else if (value > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,386 @@
+package pacman.model;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Скомпилированный двоичный формат карты игрового поля.
+ * <p>
+ * Файл содержит карту в готовом к использованию виде: заголовок, битовую
+ * карту стен (стены симметричной карты уже отражены, клетки периметра -
+ * стены), номера клеток исходных расположений игроков и магических таблеток,
+ * таблицу развилок и необязательную таблицу расстояний между всеми парами
+ * проходимых клеток. Номер клетки <code>(x, y)</code> -
+ * <code>y * ширина + x</code>. Файл читается одним отображением в память без
+ * разбора: битовая карта стен копируется целыми словами, таблицы читаются из
+ * отображённого буфера напрямую, см. {@link CompiledFieldMap}.
+ * <p>
+ * Имя файла в каталоге кэша - хэш содержимого карты, см. {@link hash}:
+ * каждая версия карты компилируется однажды, изменённая карта получает новый
+ * файл. Файл записывается во временный и переименовывается, поэтому
+ * одновременная компиляция одной карты несколькими процессами безопасна.
+ * <p>
+ * Формат файла (порядок байтов - от старшего к младшему):<ul>
+ * <li> заголовок: {@link MAGIC}, {@link VERSION}, ширина и высота поля в
+ * клетках, размер клетки в пикселах, количества исходных расположений,
+ * таблеток, развилок и клеток таблицы расстояний, резерв - по
+ * <code>int</code>;
+ * <li> битовая карта стен - <code>long</code> на 64 клетки;
+ * <li> номера клеток исходных расположений, таблеток, развилок и
+ * упорядоченные номера проходимых клеток таблицы расстояний - по
+ * <code>int</code>;
+ * <li> таблица расстояний построчно - по <code>char</code>,
+ * {@link UNREACHABLE} - пути нет.</ul>
+ */
+public final class CompiledMapFormat {
+
+    public static final int MAGIC = 0x504D4D43;
+    public static final int VERSION = 1;
+
+    /**
+     * Расширение имени файла скомпилированной карты.
+     */
+    public static final String EXTENSION = ".pmc";
+
+    /**
+     * Наибольшее количество проходимых клеток поля, для которого строится
+     * таблица расстояний: размер таблицы - квадрат количества клеток.
+     */
+    public static final int MAX_DISTANCE_CELLS = 2048;
+
+    /**
+     * Значение таблицы расстояний для недостижимой клетки.
+     */
+    public static final char UNREACHABLE = Character.MAX_VALUE;
+
+    private static final int HEADER_SIZE = 10 * Integer.BYTES;
+
+    private CompiledMapFormat() {
+    }
+
+    /**
+     * Возвращает скомпилированную карту из каталога кэша. Если карта этой
+     * версии ещё не компилировалась, компилирует её и записывает в кэш.
+     *
+     * @param map карта игрового поля
+     * @param cacheDirectory каталог кэша скомпилированных карт
+     * @return скомпилированная карта
+     * @throws IOException при ошибке чтения или записи кэша
+     */
+    public static CompiledFieldMap compile(GameFieldMap map, Path cacheDirectory) throws IOException {
+        return read(cacheDirectory.resolve(store(map, cacheDirectory) + EXTENSION));
+    }
+
+    /**
+     * Компилирует карту в каталог кэша, если карта этой версии ещё не
+     * компилировалась, не читая её.
+     *
+     * @param map карта игрового поля
+     * @param cacheDirectory каталог кэша скомпилированных карт
+     * @return хэш содержимого карты - имя её файла без расширения
+     * @throws IOException при ошибке записи кэша
+     */
+    static String store(GameFieldMap map, Path cacheDirectory) throws IOException {
+        BitSet walls = getWalls(map);
+        String hash = hash(map, walls);
+        Path file = cacheDirectory.resolve(hash + EXTENSION);
+        if (!Files.exists(file)) {
+            Files.createDirectories(cacheDirectory);
+            Path temporary = Files.createTempFile(cacheDirectory, hash, ".tmp");
+            try {
+                write(map, walls, temporary);
+                try {
+                    Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException ex) {
+                    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Возвращает хэш содержимого карты: размеров, стен (после отражения),
+     * исходных расположений и таблеток. Карты с одинаковым содержимым имеют
+     * одинаковый хэш независимо от способа задания стен.
+     *
+     * @param map карта игрового поля
+     * @return хэш, 32 шестнадцатеричные цифры
+     */
+    public static String hash(GameFieldMap map) {
+        return hash(map, getWalls(map));
+    }
+
+    /**
+     * Записывает скомпилированную карту в файл.
+     *
+     * @param map карта игрового поля
+     * @param file файл скомпилированной карты
+     * @throws IOException при ошибке записи
+     */
+    public static void write(GameFieldMap map, Path file) throws IOException {
+        write(map, getWalls(map), file);
+    }
+
+    /**
+     * Читает скомпилированную карту из файла.
+     *
+     * @param file файл скомпилированной карты
+     * @return скомпилированная карта
+     * @throws IOException при ошибке чтения или неверном содержимом файла
+     */
+    public static CompiledFieldMap read(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Отображение остаётся действительным и после закрытия канала
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Файл не является скомпилированной картой: " + file);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Неподдерживаемая версия скомпилированной карты: " + buffer.getInt(4));
+        }
+        int width = buffer.getInt(8);
+        int height = buffer.getInt(12);
+        int cellSize = buffer.getInt(16);
+        int startsCount = buffer.getInt(20);
+        int pilletsCount = buffer.getInt(24);
+        int junctionsCount = buffer.getInt(28);
+        int distanceCount = buffer.getInt(32);
+        int wordsCount = (width * height + 63) / 64;
+        long expected = HEADER_SIZE + (long) wordsCount * Long.BYTES
+                + (long) (startsCount + pilletsCount + junctionsCount + distanceCount) * Integer.BYTES
+                + (long) distanceCount * distanceCount * Character.BYTES;
+        if (buffer.limit() != expected) {
+            throw new IOException("Неверный размер скомпилированной карты " + file + ": " + buffer.limit()
+                    + " вместо " + expected);
+        }
+
+        int position = HEADER_SIZE;
+        BitSet walls = BitSet.valueOf(slice(buffer, position, wordsCount * Long.BYTES).asLongBuffer());
+        position += wordsCount * Long.BYTES;
+        Point[] starts = toCells(slice(buffer, position, startsCount * Integer.BYTES).asIntBuffer(), width);
+        position += startsCount * Integer.BYTES;
+        Point[] pillets = toCells(slice(buffer, position, pilletsCount * Integer.BYTES).asIntBuffer(), width);
+        position += pilletsCount * Integer.BYTES;
+        IntBuffer junctions = slice(buffer, position, junctionsCount * Integer.BYTES).asIntBuffer();
+        position += junctionsCount * Integer.BYTES;
+        IntBuffer distanceCells = slice(buffer, position, distanceCount * Integer.BYTES).asIntBuffer();
+        position += distanceCount * Integer.BYTES;
+        CharBuffer distances = slice(buffer, position, distanceCount * distanceCount * Character.BYTES).asCharBuffer();
+
+        String hash = file.getFileName().toString();
+        if (hash.endsWith(EXTENSION)) {
+            hash = hash.substring(0, hash.length() - EXTENSION.length());
+        }
+        return new CompiledFieldMap(new Dimension(width, height), cellSize, starts, pillets, walls,
+                hash, junctions, distanceCells, distances);
+    }
+
+    /**
+     * Возвращает битовую карту стен поля: стены симметричной карты отражаются
+     * так же, как в {@link Maze}, клетки периметра - стены.
+     */
+    static BitSet getWalls(GameFieldMap map) {
+        Dimension size = map.getGameFieldSize();
+        int width = size.width;
+        BitSet walls;
+        if (map instanceof GridFieldMap) {
+            walls = ((GridFieldMap) map).copyWalls();
+        } else {
+            walls = new BitSet(width * size.height);
+            int halfWidth = width / 2;
+            for (Point wall : map.getWallsLocations()) {
+                if (!map.isMirrored()) {
+                    walls.set(wall.y * width + wall.x);
+                } else if (wall.x < halfWidth) {
+                    walls.set(wall.y * width + wall.x);
+                    walls.set(wall.y * width + width - wall.x - 1);
+                    if (width % 2 == 1 && wall.x == halfWidth - 1) {
+                        walls.set(wall.y * width + halfWidth);
+                    }
+                }
+            }
+        }
+        walls.set(0, width);
+        walls.set((size.height - 1) * width, size.height * width);
+        for (int y = 0; y < size.height; y++) {
+            walls.set(y * width);
+            walls.set(y * width + width - 1);
+        }
+        return walls;
+    }
+
+    private static String hash(GameFieldMap map, BitSet walls) {
+        Dimension size = map.getGameFieldSize();
+        Point[] starts = map.getStartLocations();
+        Point[] pillets = map.getPilletsLocations();
+        ByteBuffer header = ByteBuffer.allocate(6 * Integer.BYTES);
+        header.putInt(VERSION).putInt(size.width).putInt(size.height).putInt(map.getCellSize())
+                .putInt(starts.length).putInt(pillets.length);
+        ByteBuffer cells = ByteBuffer.allocate((starts.length + pillets.length) * Integer.BYTES);
+        putCells(cells, starts, size.width);
+        putCells(cells, pillets, size.width);
+        ByteBuffer words = ByteBuffer.allocate(getWordsCount(size) * Long.BYTES);
+        words.asLongBuffer().put(walls.toLongArray());
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(header.array());
+            digest.update(cells.array());
+            digest.update(words.array());
+            byte[] value = digest.digest();
+            StringBuilder hash = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                hash.append(Character.forDigit((value[i] >> 4) & 0xf, 16));
+                hash.append(Character.forDigit(value[i] & 0xf, 16));
+            }
+            return hash.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            // SHA-256 обязателен для всех реализаций Java
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void write(GameFieldMap map, BitSet walls, Path file) throws IOException {
+        Dimension size = map.getGameFieldSize();
+        int width = size.width;
+        int cellsCount = width * size.height;
+        Point[] starts = map.getStartLocations();
+        Point[] pillets = map.getPilletsLocations();
+
+        // Развилки и тупики - проходимые клетки, из которых ведёт не два перехода
+        int[] open = new int[cellsCount - walls.cardinality()];
+        int[] junctions = new int[open.length];
+        int openCount = 0;
+        int junctionsCount = 0;
+        int[] steps = {-width, -1, width, 1};
+        for (int cell = walls.nextClearBit(0); cell < cellsCount; cell = walls.nextClearBit(cell + 1)) {
+            open[openCount++] = cell;
+            int exits = 0;
+            for (int step : steps) {
+                if (!walls.get(cell + step)) {
+                    exits++;
+                }
+            }
+            if (exits != 2) {
+                junctions[junctionsCount++] = cell;
+            }
+        }
+        int distanceCount = (openCount <= MAX_DISTANCE_CELLS) ? openCount : 0;
+
+        int wordsCount = getWordsCount(size);
+        long length = HEADER_SIZE + (long) wordsCount * Long.BYTES
+                + (long) (starts.length + pillets.length + junctionsCount + distanceCount) * Integer.BYTES
+                + (long) distanceCount * distanceCount * Character.BYTES;
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Карта слишком велика: " + size);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(size.height).putInt(map.getCellSize())
+                .putInt(starts.length).putInt(pillets.length).putInt(junctionsCount).putInt(distanceCount).putInt(0);
+        long[] words = Arrays.copyOf(walls.toLongArray(), wordsCount);
+        for (long word : words) {
+            buffer.putLong(word);
+        }
+        putCells(buffer, starts, width);
+        putCells(buffer, pillets, width);
+        for (int i = 0; i < junctionsCount; i++) {
+            buffer.putInt(junctions[i]);
+        }
+        for (int i = 0; i < distanceCount; i++) {
+            buffer.putInt(open[i]);
+        }
+        if (distanceCount > 0) {
+            putDistances(buffer, walls, width, Arrays.copyOf(open, distanceCount));
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Записывает таблицу расстояний: поиск в ширину из каждой проходимой
+     * клетки.
+     */
+    private static void putDistances(ByteBuffer buffer, BitSet walls, int width, int[] open) {
+        int count = open.length;
+        char[] row = new char[count];
+        int[] queue = new int[count];
+        int[] indices = new int[open[count - 1] + 1];
+        int[] steps = {-width, -1, width, 1};
+        for (int i = 0; i < count; i++) {
+            indices[open[i]] = i;
+        }
+        for (int source = 0; source < count; source++) {
+            Arrays.fill(row, UNREACHABLE);
+            row[source] = 0;
+            queue[0] = source;
+            int head = 0;
+            int tail = 1;
+            while (head < tail) {
+                int current = queue[head++];
+                int cell = open[current];
+                for (int step : steps) {
+                    int neighbor = cell + step;
+                    if (!walls.get(neighbor)) {
+                        int index = indices[neighbor];
+                        if (row[index] == UNREACHABLE) {
+                            row[index] = (char) (row[current] + 1);
+                            queue[tail++] = index;
+                        }
+                    }
+                }
+            }
+            for (char distance : row) {
+                buffer.putChar(distance);
+            }
+        }
+    }
+
+    private static int getWordsCount(Dimension size) {
+        return (size.width * size.height + 63) / 64;
+    }
+
+    private static void putCells(ByteBuffer buffer, Point[] cells, int width) {
+        for (Point cell : cells) {
+            buffer.putInt(cell.y * width + cell.x);
+        }
+    }
+
+    private static Point[] toCells(IntBuffer buffer, int width) {
+        Point[] cells = new Point[buffer.limit()];
+        for (int i = 0; i < cells.length; i++) {
+            int cell = buffer.get(i);
+            cells[i] = new Point(cell % width, cell / width);
+        }
+        return cells;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.limit(position + length);
+        return view.slice();
+    }
+}
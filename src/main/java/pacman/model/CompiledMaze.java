@@ -0,0 +1,247 @@
+package pacman.model;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import pacman.game.IAction;
+import pacman.game.IGameField;
+
+/**
+ * Неизменяемое игровое поле в виде плоских массивов.
+ * <p>
+ * Хранит только проходимость клеток и переходы между ними: еда и таблетки
+ * изменяются в ходе игры и хранятся в {@link Maze} и {@link GameState}. Номер
+ * клетки <code>(x, y)</code> - <code>y * ширина + x</code>. Для каждой клетки
+ * хранятся флаги, номера соседних проходимых клеток по каждому действию
+ * (<code>-1</code> - перехода нет) и маска допустимых действий: бит
+ * <code>i</code> установлен, если действие с номером <code>i</code> ведёт в
+ * проходимую клетку. Номера действий - их порядок в перечне, переданном в
+ * конструктор. Стены и клетки периметра задаются так же, как в {@link Maze}.
+ * <p>
+ * Проходимые клетки поля - единственные на всё поле объекты {@link Point}:
+ * переход из клетки по действию возвращает клетку из таблицы, см.
+ * {@link getCellAfterAction}. Объекты клеток стен не хранятся и создаются
+ * только по запросу перечня клеток. Потоково-безопасно.
+ */
+public final class CompiledMaze implements IGameField {
+
+    /**
+     * Флаг проходимой клетки.
+     */
+    public static final byte MOVABLE = 1;
+
+    /**
+     * Флаг развилки или тупика: проходимой клетки, из которой ведёт не два
+     * перехода.
+     */
+    public static final byte JUNCTION = 2;
+
+    private static final List<CellContent> PASSAGE_CONTENT = Collections.singletonList(CellContent.PASSAGE);
+    private static final List<CellContent> WALL_CONTENT = Collections.singletonList(CellContent.WALL);
+
+    private final int width;
+    private final int height;
+    private final List<IAction> actions;
+    private final Point[] cells;                // Проходимые клетки, null - стена
+    private final BitSet walls;
+    private final byte[] flags;
+    private final int[] neighbors;
+    private final int[] legalMasks;
+
+    /**
+     * Создаёт игровое поле по карте.
+     *
+     * @param map карта игрового поля
+     * @param actions перечень действий игроков, не более 32
+     */
+    public CompiledMaze(GameFieldMap map, List<? extends IAction> actions) {
+        if (actions.size() > Integer.SIZE) {
+            throw new IllegalArgumentException("Действий больше " + Integer.SIZE + ": " + actions.size());
+        }
+        Dimension size = map.getGameFieldSize();
+        this.width = size.width;
+        this.height = size.height;
+        this.actions = Collections.unmodifiableList(new ArrayList<IAction>(actions));
+        int count = width * height;
+        int directions = actions.size();
+        this.cells = new Point[count];
+        this.flags = new byte[count];
+        this.neighbors = new int[count * directions];
+        this.legalMasks = new int[count];
+
+        this.walls = CompiledMapFormat.getWalls(map);
+        for (int cell = walls.nextClearBit(0); cell < count; cell = walls.nextClearBit(cell + 1)) {
+            cells[cell] = new Point(cell % width, cell / width);
+            flags[cell] = MOVABLE;
+        }
+        for (int cell = 0; cell < count; cell++) {
+            int mask = 0;
+            for (int d = 0; d < directions; d++) {
+                Point basis = actions.get(d).getBasis();
+                int x = cell % width + basis.x;
+                int y = cell / width + basis.y;
+                int neighbor = -1;
+                if (x >= 0 && y >= 0 && x < width && y < height && !walls.get(y * width + x)) {
+                    neighbor = y * width + x;
+                    mask |= 1 << d;
+                }
+                neighbors[cell * directions + d] = neighbor;
+            }
+            legalMasks[cell] = mask;
+            if (flags[cell] != 0 && Integer.bitCount(mask) != 2) {
+                flags[cell] |= JUNCTION;
+            }
+        }
+    }
+
+    /**
+     * @return размер игрового поля, в клетках
+     */
+    public Dimension getSize() {
+        return new Dimension(width, height);
+    }
+
+    /**
+     * @return перечень действий в порядке их номеров
+     */
+    public List<IAction> getActions() {
+        return actions;
+    }
+
+    /**
+     * @param location клетка игрового поля
+     * @return номер клетки; <code>-1</code>, если клетка за пределами поля или
+     * передан <code>null</code>
+     */
+    public int indexOf(Point location) {
+        if (location == null || location.x < 0 || location.y < 0 || location.x >= width || location.y >= height) {
+            return -1;
+        }
+        return location.y * width + location.x;
+    }
+
+    /**
+     * @param index номер клетки
+     * @return проходимая клетка игрового поля; <code>null</code> для стены
+     */
+    public Point getCell(int index) {
+        return cells[index];
+    }
+
+    /**
+     * @param x столбец клетки
+     * @param y строка клетки
+     * @return проходимая клетка игрового поля; <code>null</code> для стены
+     */
+    public Point getCell(int x, int y) {
+        return cells[y * width + x];
+    }
+
+    /**
+     * Возвращает клетку, в которую ведёт действие: переход - обращение к
+     * таблице соседних клеток.
+     *
+     * @param location клетка игрового поля
+     * @param action действие из перечня {@link getActions}
+     * @return проходимая клетка игрового поля; <code>null</code>, если
+     * действие ведёт в стену, клетка за пределами поля или действия нет в
+     * перечне
+     */
+    public Point getCellAfterAction(Point location, IAction action) {
+        int index = indexOf(location);
+        int direction = actions.indexOf(action);
+        if (index < 0 || direction < 0) {
+            return null;
+        }
+        int neighbor = neighbors[index * actions.size() + direction];
+        return (neighbor >= 0) ? cells[neighbor] : null;
+    }
+
+    /**
+     * @return проходимые клетки поля по номерам, <code>null</code> - стена;
+     * массив используется совместно и не должен изменяться
+     */
+    Point[] getCellsTable() {
+        return cells;
+    }
+
+    /**
+     * @return битовая карта стен, включая клетки периметра; используется
+     * совместно и не должна изменяться
+     */
+    BitSet getWalls() {
+        return walls;
+    }
+
+    /**
+     * @param index номер клетки
+     * @return флаги клетки {@link MOVABLE} и {@link JUNCTION}
+     */
+    public byte getFlags(int index) {
+        return flags[index];
+    }
+
+    /**
+     * @param index номер клетки
+     * @param direction номер действия
+     * @return номер проходимой клетки, в которую ведёт действие;
+     * <code>-1</code>, если действие недопустимо
+     */
+    public int getNeighbor(int index, int direction) {
+        return neighbors[index * actions.size() + direction];
+    }
+
+    /**
+     * @param index номер клетки
+     * @return маска допустимых действий: бит с номером действия установлен,
+     * если действие ведёт в проходимую клетку
+     */
+    public int getLegalMask(int index) {
+        return legalMasks[index];
+    }
+
+    //------------------------------------------ Операции интерфейса IGameField
+
+    @Override
+    public Point[] getCells() {
+        Point[] result = new Point[cells.length];
+        for (int index = 0; index < cells.length; index++) {
+            result[index] = (cells[index] != null) ? cells[index] : new Point(index % width, index / width);
+        }
+        return result;
+    }
+
+    /**
+     * Еда и таблетки в неизменяемом поле не хранятся: для них возвращается
+     * пустой перечень.
+     */
+    @Override
+    public Collection<Point> getCellsWith(CellContent content) {
+        List<Point> result = new ArrayList<Point>();
+        if (content == CellContent.PASSAGE || content == CellContent.WALL) {
+            boolean movable = (content == CellContent.PASSAGE);
+            for (int index = 0; index < cells.length; index++) {
+                if ((flags[index] != 0) == movable) {
+                    result.add(movable ? cells[index] : new Point(index % width, index / width));
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<CellContent> getCellContent(Point location) {
+        int index = indexOf(location);
+        return (index >= 0 && flags[index] != 0) ? PASSAGE_CONTENT : WALL_CONTENT;
+    }
+
+    @Override
+    public boolean isCellMovable(Point place) {
+        int index = indexOf(place);
+        return index >= 0 && flags[index] != 0;
+    }
+}
@@ -0,0 +1,228 @@
+package pacman.model;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Загрузчик карт игрового поля из базы данных.
+ * <p>
+ * Все данные карты - размеры, исходные расположения игроков, стены и
+ * магические таблетки - читаются одним запросом за одно обращение к базе
+ * данных. Запрос подготавливается однократно и используется для всех карт.
+ * Загруженные карты хранятся в ограниченном кэше: повторная загрузка той же
+ * карты не обращается к базе данных, при переполнении вытесняется карта,
+ * запрошенная раньше остальных.
+ * <p>
+ * Таблицы базы данных:<ul>
+ * <li> <code>game_field_maps(id, field_width, field_height, cell_size)</code>;
+ * <li> <code>players_start(map_id, player_index, cell_x, cell_y)</code>;
+ * <li> <code>map_walls(map_id, cell_x, cell_y)</code>;
+ * <li> <code>map_pillets(map_id, cell_x, cell_y)</code>.</ul>
+ * Таблица стен, как и прежде, хранит только левую половину поля: стены
+ * отражаются в правую, см. {@link GameFieldMap#isMirrored}.
+ * <p>
+ * Для каждого соединения с базой данных следует использовать один
+ * долгоживущий загрузчик, см. {@link forConnection}: загрузчик, созданный на
+ * одну загрузку, каждый раз заново подготавливает запрос и не использует кэш.
+ * Закрытый загрузчик перестаёт быть общим.
+ * <p>
+ * Методы загрузчика синхронизированы на экземпляре.
+ */
+public class DatabaseMapLoader implements AutoCloseable {
+
+    /**
+     * Количество карт в кэше по умолчанию.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 16;
+
+    // Виды строк результата запроса
+    private static final int ROW_MAP = 0;
+    private static final int ROW_START = 1;
+    private static final int ROW_WALL = 2;
+    private static final int ROW_PILLET = 3;
+
+    private static final String MAP_QUERY
+            = "SELECT " + ROW_MAP + " AS kind, field_width AS a, field_height AS b, cell_size AS c"
+            + " FROM game_field_maps WHERE id = ?"
+            + " UNION ALL SELECT " + ROW_START + ", player_index, cell_x, cell_y"
+            + " FROM players_start WHERE map_id = ?"
+            + " UNION ALL SELECT " + ROW_WALL + ", 0, cell_x, cell_y"
+            + " FROM map_walls WHERE map_id = ?"
+            + " UNION ALL SELECT " + ROW_PILLET + ", 0, cell_x, cell_y"
+            + " FROM map_pillets WHERE map_id = ?";
+
+    // Общие загрузчики соединений, см. forConnection
+    private static final Map<Connection, DatabaseMapLoader> LOADERS
+            = new IdentityHashMap<Connection, DatabaseMapLoader>();
+
+    private final Connection connection;
+    private final PreparedStatement mapQuery;
+    private final Map<Integer, GameFieldMap> cache;
+    private int databaseLoads = 0;
+
+    /**
+     * Создаёт загрузчик с кэшем размера по умолчанию.
+     *
+     * @param connection соединение с базой данных
+     * @throws SQLException если запрос не может быть подготовлен
+     */
+    public DatabaseMapLoader(Connection connection) throws SQLException {
+        this(connection, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Создаёт загрузчик.
+     *
+     * @param connection соединение с базой данных
+     * @param cacheSize наибольшее количество карт в кэше
+     * @throws SQLException если запрос не может быть подготовлен
+     */
+    public DatabaseMapLoader(Connection connection, final int cacheSize) throws SQLException {
+        this.connection = connection;
+        this.mapQuery = connection.prepareStatement(MAP_QUERY);
+        this.cache = new LinkedHashMap<Integer, GameFieldMap>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, GameFieldMap> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Возвращает общий загрузчик соединения с кэшем размера по умолчанию,
+     * создавая его при первом обращении. Загрузчики закрытых соединений
+     * удаляются.
+     *
+     * @param connection соединение с базой данных
+     * @return загрузчик соединения
+     * @throws SQLException если запрос не может быть подготовлен
+     */
+    public static DatabaseMapLoader forConnection(Connection connection) throws SQLException {
+        synchronized (LOADERS) {
+            Iterator<DatabaseMapLoader> loaders = LOADERS.values().iterator();
+            while (loaders.hasNext()) {
+                DatabaseMapLoader loader = loaders.next();
+                if (loader.connection.isClosed() || loader.mapQuery.isClosed()) {
+                    loaders.remove();
+                }
+            }
+            DatabaseMapLoader loader = LOADERS.get(connection);
+            if (loader == null) {
+                loader = new DatabaseMapLoader(connection);
+                LOADERS.put(connection, loader);
+            }
+            return loader;
+        }
+    }
+
+    /**
+     * Возвращает карту игрового поля: из кэша или из базы данных.
+     *
+     * @param mapId идентификатор карты
+     * @return карта игрового поля
+     * @throws SQLException при ошибке обращения к базе данных
+     * @throws IllegalArgumentException если карта не найдена или её данные
+     * неполны
+     */
+    public synchronized GameFieldMap load(int mapId) throws SQLException {
+        GameFieldMap map = cache.get(mapId);
+        if (map == null) {
+            map = query(mapId);
+            databaseLoads++;
+            cache.put(mapId, map);
+        }
+        return map;
+    }
+
+    /**
+     * Удаляет карту из кэша: следующая загрузка прочитает её из базы данных.
+     *
+     * @param mapId идентификатор карты
+     */
+    public synchronized void evict(int mapId) {
+        cache.remove(mapId);
+    }
+
+    /**
+     * @return количество загрузок карт из базы данных (без учёта кэша)
+     */
+    public synchronized int getDatabaseLoads() {
+        return databaseLoads;
+    }
+
+    private GameFieldMap query(int mapId) throws SQLException {
+        for (int i = 1; i <= 4; i++) {
+            mapQuery.setInt(i, mapId);
+        }
+        Dimension size = null;
+        int cellSize = 0;
+        List<Point> starts = new ArrayList<Point>();
+        List<Point> walls = new ArrayList<Point>();
+        List<Point> pillets = new ArrayList<Point>();
+        try (ResultSet result = mapQuery.executeQuery()) {
+            while (result.next()) {
+                int kind = result.getInt(1);
+                int a = result.getInt(2);
+                int b = result.getInt(3);
+                int c = result.getInt(4);
+                switch (kind) {
+                    case ROW_MAP:
+                        size = new Dimension(a, b);
+                        cellSize = c;
+                        break;
+                    case ROW_START:
+                        while (starts.size() <= a) {
+                            starts.add(null);
+                        }
+                        starts.set(a, new Point(b, c));
+                        break;
+                    case ROW_WALL:
+                        walls.add(new Point(b, c));
+                        break;
+                    case ROW_PILLET:
+                        pillets.add(new Point(b, c));
+                        break;
+                    default:
+                        throw new IllegalStateException("Неизвестный вид строки: " + kind);
+                }
+            }
+        }
+        if (size == null) {
+            throw new IllegalArgumentException("Карта не найдена: " + mapId);
+        }
+        if (starts.contains(null)) {
+            throw new IllegalArgumentException("Пропущено исходное расположение игрока на карте " + mapId
+                    + ": " + starts.indexOf(null));
+        }
+        return new GameFieldMap(size, cellSize, starts.toArray(new Point[starts.size()]),
+                walls.toArray(new Point[walls.size()]), pillets.toArray(new Point[pillets.size()]));
+    }
+
+    /**
+     * Закрывает подготовленный запрос и удаляет загрузчик из общих загрузчиков
+     * соединений. Соединение с базой данных остаётся открытым.
+     *
+     * @throws SQLException при ошибке закрытия запроса
+     */
+    @Override
+    public void close() throws SQLException {
+        synchronized (LOADERS) {
+            if (LOADERS.get(connection) == this) {
+                LOADERS.remove(connection);
+            }
+        }
+        synchronized (this) {
+            mapQuery.close();
+        }
+    }
+}
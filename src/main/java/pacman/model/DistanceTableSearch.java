@@ -0,0 +1,61 @@
+package pacman.model;
+
+import algorithms.core.IBasicState;
+import algorithms.core.ISearchAlgorithm;
+import java.awt.Point;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import pacman.game.IAction;
+
+/**
+ * Поиск пути по таблице расстояний скомпилированной карты.
+ * <p>
+ * Кратчайший путь не ищется, а прокладывается: из каждой клетки делается шаг
+ * в соседнюю, расстояние от которой до цели на единицу меньше, см.
+ * {@link CompiledFieldMap#getDistance}. Работа пропорциональна длине пути.
+ * Как и {@link algorithms.core.JunctionGraph}, расположение игроков не
+ * учитывает. Потоково-безопасен.
+ */
+public class DistanceTableSearch implements ISearchAlgorithm<IAction, IBasicState<IAction>> {
+
+    private final CompiledFieldMap map;
+    private final CompiledMaze maze;
+
+    /**
+     * @param map скомпилированная карта с таблицей расстояний
+     * @param maze неизменяемое игровое поле той же карты
+     */
+    public DistanceTableSearch(CompiledFieldMap map, CompiledMaze maze) {
+        if (!map.hasDistances()) {
+            throw new IllegalArgumentException("Карта не содержит таблицы расстояний");
+        }
+        this.map = map;
+        this.maze = maze;
+    }
+
+    /**
+     * Возвращает кратчайшую последовательность действий от <code>start</code>
+     * к <code>goal</code>; пустую очередь, если путь не существует или
+     * клетки совпадают.
+     */
+    @Override
+    public Queue<IAction> getSolution(IBasicState<IAction> gameState, Point start, Point goal, int playerId) {
+        LinkedList<IAction> solution = new LinkedList<IAction>();
+        List<IAction> actions = maze.getActions();
+        int distance = map.getDistance(start, goal);
+        int cell = maze.indexOf(start);
+        while (distance > 0) {
+            for (int direction = 0; direction < actions.size(); direction++) {
+                int neighbor = maze.getNeighbor(cell, direction);
+                if (neighbor >= 0 && map.getDistance(maze.getCell(neighbor), goal) == distance - 1) {
+                    solution.add(actions.get(direction));
+                    cell = neighbor;
+                    break;
+                }
+            }
+            distance--;
+        }
+        return solution;
+    }
+}
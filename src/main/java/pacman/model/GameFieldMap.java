@@ -14,8 +14,12 @@ public class GameFieldMap {
     private final Point[] startLocations;
     private final Point[] wallsLocations;
     private final Point[] pilletsLocations;
+    private final boolean mirrored;
+    private CompiledMaze compiledMaze;
     
     /**
+     * Создаёт карту симметричного игрового поля: стены левой половины поля
+     * отражаются в правую.
      * 
      * @param mazeSize размер игрового поля, в клетках
      * @param cellSize размер клетки игрового поля, в пикселах
@@ -24,6 +28,20 @@ public class GameFieldMap {
      * @param pilletsLocations перечень расположения магических таблеток
      */
     public GameFieldMap(Dimension mazeSize, int cellSize, Point[] startLocations, Point[] wallsLocations, Point[] pilletsLocations) {
+        this(mazeSize, cellSize, startLocations, wallsLocations, pilletsLocations, true);
+    }
+    
+    /**
+     * 
+     * @param mazeSize размер игрового поля, в клетках
+     * @param cellSize размер клетки игрового поля, в пикселах
+     * @param startLocations упорядоченный перечень исходных расположений игроков
+     * @param wallsLocations перечень расположений стен
+     * @param pilletsLocations перечень расположения магических таблеток
+     * @param mirrored отражать ли стены левой половины поля в правую
+     */
+    public GameFieldMap(Dimension mazeSize, int cellSize, Point[] startLocations, Point[] wallsLocations, Point[] pilletsLocations, boolean mirrored) {
+        this.mirrored = mirrored;
         this.cellSize = cellSize;
         this.gameFieldSize = new Dimension(mazeSize);
         this.gameCanvasSize = new Dimension(mazeSize.width * cellSize, mazeSize.height * cellSize);
@@ -73,4 +91,26 @@ public class GameFieldMap {
     public Point[] getPilletsLocations() {
         return pilletsLocations;
     }
+
+    /**
+     * @return <code>true</code>, если стены заданы для левой половины поля и
+     * отражаются в правую
+     */
+    public boolean isMirrored() {
+        return mirrored;
+    }
+
+    /**
+     * Возвращает неизменяемое игровое поле этой карты для действий
+     * {@link NonstopAction}. Поле строится при первом запросе и используется
+     * всеми моделями, играющими на карте.
+     *
+     * @return игровое поле карты
+     */
+    public synchronized CompiledMaze getCompiledMaze() {
+        if (compiledMaze == null) {
+            compiledMaze = new CompiledMaze(this, NonstopAction.getPossibleActions());
+        }
+        return compiledMaze;
+    }
 }
@@ -3,18 +3,20 @@ package pacman.model;
 import algorithms.core.CallablePersonalizedBFS;
 import algorithms.core.ISearchAlgorithm;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.ThreadFactory;
+import pacman.game.GameThreads;
 import pacman.game.IAction;
 import pacman.game.IAnimatedPlayer;
 
@@ -32,9 +34,6 @@ public class GameModelImp extends TurnDrivenGameModel {
     // последовательного расчёта хода каждого привидения
     private final ExecutorService computationThreadService;
     
-    // Исполнитель анимации
-    private final ExecutorService animationThreadService;
-    
     // Посредник для получения изменений от состояния игры
     private final ModelDataMediator gameStateMediator = new ModelDataMediator();
     
@@ -42,6 +41,19 @@ public class GameModelImp extends TurnDrivenGameModel {
     private final List<Integer> ghostsMissTurn;
     
     private final Map<Integer, ActionAnimator> animators = new HashMap<Integer, ActionAnimator>();
+    
+    // Источники случайных чисел привидений, по одному на привидение; все
+    // порождаются из начального значения игры
+    private final Map<Integer, SplittableRandom> ghostRandoms = new HashMap<Integer, SplittableRandom>();
+    
+    // Источник начальных значений для игр, начальное значение которых не задано
+    private final SplittableRandom seedSource = new SplittableRandom();
+    
+    // Регистратор игр, может отсутствовать
+    private GameRecorder recorder = null;
+    
+    private Long fixedSeed = null;
+    private long gameSeed;
     private Player pacman;
     private int pacmanId;
     
@@ -53,18 +65,38 @@ public class GameModelImp extends TurnDrivenGameModel {
     public GameModelImp(GameFieldMap gameField) {
         super(gameField);
         ghostsMissTurn = new ArrayList<Integer>();
-        computationThreadService = Executors.newSingleThreadExecutor(new ThreadFactory() {
-            @Override
-            public Thread newThread(Runnable r) {
-                Thread t = new Thread(r, "ghost computation");
-                return t;
-            }});
-        animationThreadService = Executors.newCachedThreadPool(new ThreadFactory() {
-            @Override
-            public Thread newThread(Runnable r) {
-                Thread t = new Thread(r, "player animator");
-                return t;
-            }});
+        computationThreadService = Executors.newSingleThreadExecutor(GameThreads.newFactory("ghost computation", false));
+    }
+
+    /**
+     * Задаёт начальное значение случайных чисел для последующих игр.
+     * <p>
+     * Игры с одинаковым начальным значением, одинаковыми параметрами и
+     * одинаковыми действиями Пакмана повторяются в точности. Если значение
+     * не задано, каждая игра получает новое начальное значение.
+     * 
+     * @param seed начальное значение или <code>null</code>
+     */
+    public void setGameSeed(Long seed) {
+        fixedSeed = seed;
+    }
+
+    /**
+     * Возвращает начальное значение случайных чисел текущей игры.
+     * 
+     * @return начальное значение текущей игры
+     */
+    public long getGameSeed() {
+        return gameSeed;
+    }
+
+    /**
+     * Подключает регистратор игр. Запись начинается со следующей игры.
+     * 
+     * @param recorder регистратор игр или <code>null</code>
+     */
+    public void setGameRecorder(GameRecorder recorder) {
+        this.recorder = recorder;
     }
 
     //-------------------------------------------------- Вспомогательные классы
@@ -80,25 +112,36 @@ public class GameModelImp extends TurnDrivenGameModel {
         }
         
         @Override
-        public void refreshGhostsConfused(Map<Integer, Boolean> isGhostConfused) {
-            for (int ghostId : isGhostConfused.keySet()) {
-                players.get(ghostId).setConfused(isGhostConfused.get(ghostId));
+        public void setGhostConfused(int playerId, boolean confused) {
+            players.get(playerId).setConfused(confused);
+            redrawView(getPlayerRegion(players.get(playerId)));
+            if (recorder != null) {
+                recorder.recordGhostConfused(playerId);
             }
         }
 
         @Override
         public void setConfusedGhostEaten(int playerId) {
             ghostsMissTurn.add(playerId);
+            if (recorder != null) {
+                recorder.recordGhostEaten(playerId);
+            }
         }
         
         @Override
-        public void refreshFood(Collection<Point> food) {
-            myMaze.refreshFood(food);
+        public void setFoodEaten(Point cell) {
+            if (recorder != null) {
+                recorder.recordFoodEaten(cell);
+            }
+            removeFood(cell);
         }
         
         @Override
-        public void refreshPillets(Collection<Point> pillets) {
-            myMaze.refreshPillets(pillets);
+        public void setPilletEaten(Point cell) {
+            if (recorder != null) {
+                recorder.recordPilletEaten(cell);
+            }
+            removePillet(cell);
         }
         //</editor-fold>
     }
@@ -121,16 +164,28 @@ public class GameModelImp extends TurnDrivenGameModel {
         
         @Override
         public void redrawGraphics() {
-            redrawView();
+            addDirtyRegion(getPlayerRegion(players.get(playerId)));
         }
         //</editor-fold>
     }
 
     //---------------------------------- Реализация методов TurnDrivenGameModel
     
+    @Override
+    public void reinitializeGame() {
+        super.reinitializeGame();
+        if (recorder != null) {
+            recorder.beginGame(gameFieldMap, players.size(), pacmanId, gameSeed, getPossibleActions());
+        }
+        redrawView();
+    }
+    
     @Override
     protected void initializePlayers() {
         animators.clear();
+        ghostRandoms.clear();
+        gameSeed = (fixedSeed != null) ? fixedSeed : seedSource.nextLong();
+        SplittableRandom gameRandom = new SplittableRandom(gameSeed);
         pacman = new Player(IAnimatedPlayer.PlayerType.PACMAN, 0, gameFieldMap.getStartLocations()[0], getPossibleActions().get(0));
         addPlayer(pacman);
         pacmanId = players.lastIndexOf(pacman);
@@ -140,6 +195,7 @@ public class GameModelImp extends TurnDrivenGameModel {
                     (i + 1),
                     gameFieldMap.getStartLocations()[i + 1],
                     getPossibleActions().get(0)));
+            ghostRandoms.put(i + 1, gameRandom.split());
         }
     }
 
@@ -179,10 +235,52 @@ public class GameModelImp extends TurnDrivenGameModel {
         }
         
         gameState.performPlayerAction(playerId, action, gameStateMediator);  // Исполнить действие
+        if (recorder != null) {
+            recorder.recordAction(playerId, action);
+        }
+        animatePlayerAction(playerId, action);                          // Запустить анимацию
+    }
 
+    /**
+     * Запускает анимацию исполненного действия игрока.
+     * <p>
+     * По завершении анимации ход игрока будет отмечен как сделанный.
+     * 
+     * @param playerId идентификатор игрока
+     * @param action исполненное действие
+     */
+    protected void animatePlayerAction(int playerId, IAction action) {
+        long duration = getTurnDuration();
+        if (duration == 0) {
+            Player player = players.get(playerId);
+            player.setCurrentAction(action);
+            player.setAnimationShift(new Point(0, 0));
+            redrawView(getPlayerRegion(player));
+            setPlayerStatusDone(playerId);
+            return;
+        }
         ActionAnimator a = animators.get(playerId);
-        a.setAction(action);
-        animationThreadService.execute(a);                              // Запустить анимацию
+        a.setAction(action, duration);
+        animationClock.start(a);
+    }
+
+    /**
+     * Рассчитывает действие привидения.
+     * <p>
+     * Расчёт выполняется исполнителем расчёта ходов привидений; вызывающий
+     * поток ожидает его результата.
+     * 
+     * @param search поиск действия привидения
+     * @return действие привидения или <code>null</code>, если действие не найдено
+     */
+    protected IAction computeGhostAction(Callable<IAction> search) {
+        Future<IAction> result = computationThreadService.submit(search);
+        try {
+            return result.get();
+        } catch (InterruptedException ex) {
+        } catch (ExecutionException ex) {
+        }
+        return null;
     }
 
     @Override
@@ -192,17 +290,11 @@ public class GameModelImp extends TurnDrivenGameModel {
             
             // Для нормального привидения - охота на Пакмана
             if (player.getType() == IAnimatedPlayer.PlayerType.HORRIFIC_GHOST) {
-                Future<IAction> result = computationThreadService.submit(new CallablePersonalizedBFS<IAction>(
+                IAction action = computeGhostAction(new CallablePersonalizedBFS<IAction>(
                         gameState,
                         player.getLocation(),
                         pacman.getLocation(),
                         playerId));
-                IAction action = null;
-                try {
-                    action = result.get();
-                } catch (InterruptedException ex) {
-                } catch (ExecutionException ex) {
-                }
                 if ((action != null)) {
                     startPlayerAction(playerId, action);
                 }
@@ -217,10 +309,11 @@ public class GameModelImp extends TurnDrivenGameModel {
                         = gameState.getLegalActionsAsMapNoKins(player.getLocation(), playerId);
                 // Если привидение может передвигаться
                 if (!actions.isEmpty() && !ghostsMissTurn.contains(playerId)) {
-                    Collection<IAction> s = actions.values();
-                    Random r = new Random();
-                    IAction a = new ArrayList<IAction>(s).get(r.nextInt(s.size()));
-                    startPlayerAction(playerId, a);
+                    Iterator<IAction> it = actions.values().iterator();
+                    for (int i = ghostRandoms.get(playerId).nextInt(actions.size()); i > 0; i--) {
+                        it.next();
+                    }
+                    startPlayerAction(playerId, it.next());
                 }
                 // Если ход игрока не был запущен успешно
                 else {
@@ -235,10 +328,25 @@ public class GameModelImp extends TurnDrivenGameModel {
     protected void performTurnFinished() {
         if (!ghostsMissTurn.isEmpty()) {
             for (int playerId : ghostsMissTurn) {
-                players.get(playerId).setLocation(gameFieldMap.getStartLocations()[playerId]);
+                Player ghost = players.get(playerId);
+                Rectangle region = getPlayerRegion(ghost);
+                ghost.setLocation(gameFieldMap.getStartLocations()[playerId]);
+                region.add(getPlayerRegion(ghost));
+                redrawView(region);
             }
             ghostsMissTurn.clear();
         }
         gameState.performTurnFinished(gameStateMediator);
+        if (recorder != null) {
+            recorder.finishTurn(gameState.getStateHash());
+        }
+    }
+
+    @Override
+    protected void performGameFinished() {
+        if (recorder != null) {
+            recorder.finishGame(gameState.isWin(), gameState.isLose(), gameState.getGameScore(), gameState.getStateHash());
+        }
+        redrawView();
     }
 }
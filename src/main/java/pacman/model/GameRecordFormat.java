@@ -0,0 +1,117 @@
+package pacman.model;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Двоичный формат записи игры.
+ * <p>
+ * Запись состоит из заголовка и следующих за ним записей туров. Целые числа
+ * записываются в формате varint (7 бит на байт, младшие группы первыми),
+ * клетки игрового поля - номером <code>y * ширина + x</code>, направления
+ * действий - 2-битным индексом в перечне возможных действий.
+ * <p>
+ * Заголовок:<ol>
+ * <li> сигнатура {@link MAGIC}, версия формата {@link VERSION} (1 байт);
+ * <li> количество игроков, идентификатор Пакмана, начальное значение игры
+ * (8 байт);
+ * <li> длина и имя агента Пакмана в UTF-8 (пустое, если агент не известен);
+ * <li> хэш содержимого карты, см. {@link CompiledMapFormat#hash} (16 байт).</ol>
+ * Сама карта в запись не входит: она хранится в том же каталоге в
+ * скомпилированном виде, в файле <code>хэш + ".pmc"</code>, один раз для
+ * всех записей игр на ней. Размер записи поэтому не зависит от размера
+ * карты.
+ * <p>
+ * Тур:<ol>
+ * <li> флаги тура, см. <code>TURN_*</code>;
+ * <li> маска игроков, исполнивших действие, и упакованные по 4 в байт
+ * направления их действий, в порядке идентификаторов игроков;
+ * <li> хэш состояния игры по завершении тура, {@link GameState#getStateHash}
+ * (4 байта);
+ * <li> при наличии флагов - количество и клетки съеденной еды, количество и
+ * клетки съеденных таблеток, маска привидений, сменивших состояние
+ * контузии, маска съеденных привидений.</ol>
+ * Тур с флагом {@link TURN_GAME_END} завершает запись и всегда отмечен
+ * флагом {@link TURN_UNFINISHED}: он содержит действия, исполненные после
+ * последнего завершённого тура, и может быть пустым. За его масками следуют
+ * исход игры (1 байт, см. <code>OUTCOME_*</code>), счёт (4 байта) и
+ * количество завершённых туров.
+ */
+final class GameRecordFormat {
+
+    static final int MAGIC = 0x504d5243;            // "PMRC"
+    static final int VERSION = 5;
+
+    static final int TURN_FOOD = 1;                 // Съедена еда
+    static final int TURN_PILLETS = 1 << 1;         // Съедены таблетки
+    static final int TURN_CONFUSION = 1 << 2;       // Изменилось состояние контузии привидений
+    static final int TURN_GHOSTS_EATEN = 1 << 3;    // Съедены привидения
+    static final int TURN_UNFINISHED = 1 << 4;      // Игра окончена до завершения тура
+    static final int TURN_GAME_END = 1 << 5;        // Последняя запись игры
+
+    static final int OUTCOME_NONE = 0;
+    static final int OUTCOME_WON = 1;
+    static final int OUTCOME_LOST = 2;
+
+    static final int MAX_PLAYERS = Integer.SIZE;   // Маски игроков - int
+    static final int MAX_VARINT_BYTES = 5;
+    static final int MAP_HASH_BYTES = 16;
+
+    private GameRecordFormat() {
+    }
+
+    /**
+     * Записывает неотрицательное целое в формате varint.
+     *
+     * @param buffer буфер
+     * @param value значение
+     */
+    static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7f) != 0) {
+            buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Читает целое в формате varint.
+     *
+     * @param buffer буфер
+     * @return значение
+     * @throws BufferUnderflowException если запись оборвана
+     */
+    static int getVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Слишком длинное значение varint");
+    }
+
+    /**
+     * Записывает хэш содержимого карты.
+     *
+     * @param buffer буфер
+     * @param hash хэш, 32 шестнадцатеричные цифры
+     */
+    static void putMapHash(ByteBuffer buffer, String hash) {
+        buffer.putLong(Long.parseUnsignedLong(hash.substring(0, 16), 16));
+        buffer.putLong(Long.parseUnsignedLong(hash.substring(16), 16));
+    }
+
+    /**
+     * Читает хэш содержимого карты.
+     *
+     * @param buffer буфер
+     * @return хэш, 32 шестнадцатеричные цифры
+     * @throws BufferUnderflowException если запись оборвана
+     */
+    static String getMapHash(ByteBuffer buffer) {
+        return String.format("%016x%016x", buffer.getLong(), buffer.getLong());
+    }
+}
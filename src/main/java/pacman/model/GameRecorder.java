@@ -0,0 +1,381 @@
+package pacman.model;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import pacman.game.IAction;
+
+/**
+ * Запись игры в компактном двоичном формате {@link GameRecordFormat}.
+ * <p>
+ * Подключается к модели игры через {@link GameModelImp#setGameRecorder} и
+ * получает от неё действия игроков и изменения данных модели, поступающие
+ * через {@link IModelDataMediator}. Каждая игра записывается в отдельный файл
+ * <code>префикс + хэш карты + "-" + начальное значение игры + ".pmr"</code> в
+ * заданном каталоге; существующие файлы не перезаписываются: к имени
+ * добавляется номер <code>"-1"</code>, <code>"-2"</code>... Карта игрового
+ * поля записывается в тот же каталог один раз, см. {@link GameRecordFormat}.
+ * <p>
+ * Данные тура накапливаются в памяти и по завершении тура дописываются в
+ * буфер, который сбрасывается в файл по заполнении и в конце игры. Ошибки
+ * ввода-вывода не прерывают игру: запись текущей игры прекращается.
+ * <p>
+ * Не потоково-безопасен: все методы вызываются из потока модели игры.
+ */
+public class GameRecorder {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Path directory;
+    private final String filePrefix;
+    private final byte[] agentName;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private FileChannel channel;
+    private Path recordFile;
+    private GameFieldMap recordedMap;           // Карта, уже записанная в каталог
+    private String mapHash;
+    private List<IAction> possibleActions;
+    private int fieldWidth;
+    private int turnsFinished;
+
+    // Данные текущего тура
+    private int movedMask;
+    private int[] directions;
+    private int[] eatenFood = new int[4];
+    private int eatenFoodCount;
+    private int[] eatenPillets = new int[4];
+    private int eatenPilletsCount;
+    private int confusionMask;
+    private int ghostsEatenMask;
+
+    /**
+     * Создаёт новый регистратор игр.
+     *
+     * @param directory каталог для файлов записей
+     * @param filePrefix префикс имён файлов записей
+     */
+    public GameRecorder(Path directory, String filePrefix) {
+        this(directory, filePrefix, "");
+    }
+
+    /**
+     * Создаёт новый регистратор игр агента Пакмана.
+     * <p>
+     * Имя агента сохраняется в записи и позволяет повторно сыграть записанную
+     * игру тем же агентом.
+     *
+     * @param directory каталог для файлов записей
+     * @param filePrefix префикс имён файлов записей
+     * @param agentName имя агента Пакмана
+     */
+    public GameRecorder(Path directory, String filePrefix, String agentName) {
+        this.directory = directory;
+        this.filePrefix = filePrefix;
+        this.agentName = agentName.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Начинает запись новой игры.
+     *
+     * @param map карта игрового поля
+     * @param playersNumber количество игроков
+     * @param pacmanId идентификатор Пакмана
+     * @param seed начальное значение случайных чисел игры
+     * @param actions перечень возможных действий игроков
+     * @throws IllegalArgumentException если игроков больше
+     * {@link GameRecordFormat#MAX_PLAYERS}
+     */
+    public void beginGame(GameFieldMap map, int playersNumber, int pacmanId, long seed, List<IAction> actions) {
+        if (playersNumber > GameRecordFormat.MAX_PLAYERS) {
+            throw new IllegalArgumentException("Записываются игры не больше чем "
+                    + GameRecordFormat.MAX_PLAYERS + " игроков: " + playersNumber);
+        }
+        closeChannel();
+        recordFile = null;
+
+        Dimension size = map.getGameFieldSize();
+        this.fieldWidth = size.width;
+        this.possibleActions = actions;
+        this.turnsFinished = 0;
+        directions = new int[playersNumber];
+        clearTurn();
+
+        try {
+            if (map != recordedMap) {
+                mapHash = CompiledMapFormat.store(map, directory);
+                recordedMap = map;
+            }
+            String name = filePrefix + mapHash.substring(0, 8) + "-" + String.format("%016x", seed);
+            Path file = directory.resolve(name + ".pmr");
+            for (int number = 1; channel == null; number++) {
+                try {
+                    channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                } catch (FileAlreadyExistsException ex) {
+                    file = directory.resolve(name + "-" + number + ".pmr");
+                }
+            }
+            recordFile = file;
+        } catch (IOException ex) {
+            Logger.getLogger(GameRecorder.class.getName()).log(Level.SEVERE, null, ex);
+            return;
+        }
+        buffer.clear();
+        buffer.putInt(GameRecordFormat.MAGIC);
+        buffer.put((byte) GameRecordFormat.VERSION);
+        GameRecordFormat.putVarint(buffer, playersNumber);
+        GameRecordFormat.putVarint(buffer, pacmanId);
+        buffer.putLong(seed);
+        GameRecordFormat.putVarint(buffer, agentName.length);
+        putBytes(agentName);
+        ensureRemaining(GameRecordFormat.MAP_HASH_BYTES);
+        GameRecordFormat.putMapHash(buffer, mapHash);
+    }
+
+    /**
+     * @return файл записи последней начатой игры; <code>null</code>, если
+     * запись не начата
+     */
+    public Path getRecordFile() {
+        return recordFile;
+    }
+
+    private int cellId(Point cell) {
+        return cell.y * fieldWidth + cell.x;
+    }
+
+    /**
+     * Записывает массив байтов частями по месту в буфере.
+     */
+    private void putBytes(byte[] bytes) {
+        int offset = 0;
+        while (offset < bytes.length) {
+            ensureRemaining(1);
+            int count = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, count);
+            offset += count;
+        }
+    }
+
+    //------------------------------------------------------ Данные тура игры
+
+    /**
+     * Регистрирует исполненное действие игрока.
+     *
+     * @param playerId идентификатор игрока
+     * @param action действие игрока
+     */
+    public void recordAction(int playerId, IAction action) {
+        movedMask |= 1 << playerId;
+        directions[playerId] = possibleActions.indexOf(action);
+    }
+
+    /**
+     * Регистрирует съедение привидения, см.
+     * {@link IModelDataMediator#setConfusedGhostEaten}.
+     *
+     * @param playerId идентификатор привидения
+     */
+    public void recordGhostEaten(int playerId) {
+        ghostsEatenMask |= 1 << playerId;
+    }
+
+    /**
+     * Регистрирует съедение элемента еды, см.
+     * {@link IModelDataMediator#setFoodEaten}.
+     *
+     * @param cell клетка съеденного элемента еды
+     */
+    public void recordFoodEaten(Point cell) {
+        eatenFood = append(eatenFood, eatenFoodCount++, cellId(cell));
+    }
+
+    /**
+     * Регистрирует съедение магической таблетки, см.
+     * {@link IModelDataMediator#setPilletEaten}.
+     *
+     * @param cell клетка съеденной таблетки
+     */
+    public void recordPilletEaten(Point cell) {
+        eatenPillets = append(eatenPillets, eatenPilletsCount++, cellId(cell));
+    }
+
+    /**
+     * Регистрирует изменение контузии привидения, см.
+     * {@link IModelDataMediator#setGhostConfused}.
+     *
+     * @param playerId идентификатор привидения
+     */
+    public void recordGhostConfused(int playerId) {
+        confusionMask |= 1 << playerId;
+    }
+
+    private static int[] append(int[] array, int index, int value) {
+        if (index == array.length) {
+            array = Arrays.copyOf(array, array.length * 2);
+        }
+        array[index] = value;
+        return array;
+    }
+
+    //------------------------------------------------ Завершение тура и игры
+
+    /**
+     * Дописывает в запись данные завершённого тура.
+     *
+     * @param stateHash хэш состояния игры по завершении тура
+     */
+    public void finishTurn(int stateHash) {
+        if (channel == null) {
+            return;
+        }
+        writeTurn(0, stateHash);
+        turnsFinished++;
+    }
+
+    /**
+     * Дописывает в запись данные последнего тура и исход игры, закрывает файл
+     * записи.
+     *
+     * @param won <code>true</code>, если Пакман победил
+     * @param lost <code>true</code>, если Пакман проиграл
+     * @param score счёт игры
+     * @param stateHash хэш итогового состояния игры
+     */
+    public void finishGame(boolean won, boolean lost, float score, int stateHash) {
+        if (channel == null) {
+            return;
+        }
+        writeTurn(GameRecordFormat.TURN_GAME_END | GameRecordFormat.TURN_UNFINISHED, stateHash);
+        ensureRemaining(5 + GameRecordFormat.MAX_VARINT_BYTES);
+        buffer.put((byte) (won ? GameRecordFormat.OUTCOME_WON
+                : lost ? GameRecordFormat.OUTCOME_LOST : GameRecordFormat.OUTCOME_NONE));
+        buffer.putFloat(score);
+        GameRecordFormat.putVarint(buffer, turnsFinished);
+        closeChannel();
+    }
+
+    private void writeTurn(int extraFlags, int stateHash) {
+        int flags = extraFlags;
+        if (eatenFoodCount > 0) {
+            flags |= GameRecordFormat.TURN_FOOD;
+        }
+        if (eatenPilletsCount > 0) {
+            flags |= GameRecordFormat.TURN_PILLETS;
+        }
+        if (confusionMask != 0) {
+            flags |= GameRecordFormat.TURN_CONFUSION;
+        }
+        if (ghostsEatenMask != 0) {
+            flags |= GameRecordFormat.TURN_GHOSTS_EATEN;
+        }
+
+        ensureRemaining(2 * GameRecordFormat.MAX_VARINT_BYTES + directions.length / 4 + 1 + 4);
+        GameRecordFormat.putVarint(buffer, flags);
+        GameRecordFormat.putVarint(buffer, movedMask);
+        int packed = 0;
+        int packedCount = 0;
+        for (int playerId = 0; playerId < directions.length; playerId++) {
+            if ((movedMask & (1 << playerId)) != 0) {
+                packed |= directions[playerId] << (2 * packedCount++);
+                if (packedCount == 4) {
+                    buffer.put((byte) packed);
+                    packed = 0;
+                    packedCount = 0;
+                }
+            }
+        }
+        if (packedCount > 0) {
+            buffer.put((byte) packed);
+        }
+        buffer.putInt(stateHash);
+
+        if ((flags & GameRecordFormat.TURN_FOOD) != 0) {
+            putCellIds(eatenFood, eatenFoodCount);
+        }
+        if ((flags & GameRecordFormat.TURN_PILLETS) != 0) {
+            putCellIds(eatenPillets, eatenPilletsCount);
+        }
+        ensureRemaining(2 * GameRecordFormat.MAX_VARINT_BYTES);
+        if ((flags & GameRecordFormat.TURN_CONFUSION) != 0) {
+            GameRecordFormat.putVarint(buffer, confusionMask);
+        }
+        if ((flags & GameRecordFormat.TURN_GHOSTS_EATEN) != 0) {
+            GameRecordFormat.putVarint(buffer, ghostsEatenMask);
+        }
+        clearTurn();
+    }
+
+    private void putCellIds(int[] cells, int count) {
+        ensureRemaining(GameRecordFormat.MAX_VARINT_BYTES);
+        GameRecordFormat.putVarint(buffer, count);
+        for (int i = 0; i < count; i++) {
+            ensureRemaining(GameRecordFormat.MAX_VARINT_BYTES);
+            GameRecordFormat.putVarint(buffer, cells[i]);
+        }
+    }
+
+    private void clearTurn() {
+        movedMask = 0;
+        eatenFoodCount = 0;
+        eatenPilletsCount = 0;
+        confusionMask = 0;
+        ghostsEatenMask = 0;
+    }
+
+    //-------------------------------------------------------- Ввод-вывод
+
+    /**
+     * Сбрасывает буфер в файл, если в нём осталось меньше заданного места.
+     */
+    private void ensureRemaining(int bytes) {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (channel == null) {
+            buffer.clear();
+            return;
+        }
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(GameRecorder.class.getName()).log(Level.SEVERE, null, ex);
+            closeQuietly();
+        }
+        buffer.clear();
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            flush();
+            closeQuietly();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(GameRecorder.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        channel = null;
+    }
+}
@@ -0,0 +1,332 @@
+package pacman.model;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Прочитанная запись игры.
+ * <p>
+ * Разбирает файл формата {@link GameRecordFormat} целиком и хранит данные
+ * туров в плоских массивах, индексируемых номером тура (счёт от нуля). Карта
+ * игрового поля читается по хэшу из заголовка записи из каталога
+ * скомпилированных карт, см. {@link GameRecordFormat}.
+ * <p>
+ * Неизменяем после создания, может использоваться из нескольких потоков.
+ */
+public class GameRecording {
+
+    private final GameFieldMap map;
+    private final int playersNumber;
+    private final int pacmanId;
+    private final long seed;
+    private final String agentName;
+
+    private final int turnsCount;
+    private final int[] flags;
+    private final int[] movedMasks;
+    private final byte[] directions;            // По playersNumber на тур, -1 - нет действия
+    private final int[] stateHashes;
+    private final int[] foodOffsets;            // Съеденная еда тура: [foodOffsets[t], foodOffsets[t + 1])
+    private final int[] foodCells;
+    private final int[] pilletsOffsets;
+    private final int[] pilletsCells;
+    private final int[] confusionMasks;
+    private final int[] ghostsEatenMasks;
+
+    private final int outcome;
+    private final float score;
+    private final int finishedTurns;
+
+    /**
+     * Читает запись игры из файла. Карта игрового поля читается из каталога
+     * файла записи.
+     *
+     * @param file файл записи
+     * @return запись игры
+     * @throws IOException при ошибке чтения или повреждённой записи
+     */
+    public static GameRecording read(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new GameRecording(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), directory);
+        } catch (BufferUnderflowException ex) {
+            throw new IOException("Запись игры оборвана: " + file, ex);
+        } catch (IllegalStateException ex) {
+            throw new IOException("Запись игры повреждена: " + file, ex);
+        }
+    }
+
+    /**
+     * Разбирает запись игры из буфера.
+     *
+     * @param buffer содержимое записи
+     * @param mapDirectory каталог скомпилированной карты игрового поля записи
+     * @throws IOException если карта не может быть прочитана
+     */
+    public GameRecording(ByteBuffer buffer, Path mapDirectory) throws IOException {
+        if (buffer.getInt() != GameRecordFormat.MAGIC) {
+            throw new IllegalStateException("Не является записью игры");
+        }
+        int version = buffer.get();
+        if (version != GameRecordFormat.VERSION) {
+            throw new IllegalStateException("Неподдерживаемая версия записи: " + version);
+        }
+
+        playersNumber = GameRecordFormat.getVarint(buffer);
+        if (playersNumber < 1 || playersNumber > GameRecordFormat.MAX_PLAYERS) {
+            throw new IllegalStateException("Неверное количество игроков: " + playersNumber);
+        }
+        pacmanId = GameRecordFormat.getVarint(buffer);
+        seed = buffer.getLong();
+        byte[] agent = new byte[GameRecordFormat.getVarint(buffer)];
+        buffer.get(agent);
+        agentName = new String(agent, StandardCharsets.UTF_8);
+        Path mapFile = mapDirectory.resolve(GameRecordFormat.getMapHash(buffer) + CompiledMapFormat.EXTENSION);
+        if (!Files.exists(mapFile)) {
+            throw new IOException("Не найдена карта записи игры: " + mapFile);
+        }
+        map = CompiledMapFormat.read(mapFile);
+
+        // Туры: размер заранее не известен, массивы растут по мере чтения
+        int capacity = 256;
+        int[] turnFlags = new int[capacity];
+        int[] moved = new int[capacity];
+        byte[] dirs = new byte[capacity * playersNumber];
+        int[] hashes = new int[capacity];
+        int[] foodOffs = new int[capacity + 1];
+        int[] food = new int[capacity];
+        int[] pilletsOffs = new int[capacity + 1];
+        int[] pilletCells = new int[4];
+        int[] confusion = new int[capacity];
+        int[] eaten = new int[capacity];
+        int foodCount = 0;
+        int pilletsCount = 0;
+        int turn = 0;
+
+        int gameOutcome = GameRecordFormat.OUTCOME_NONE;
+        float gameScore = 0;
+        int gameTurns = 0;
+        while (true) {
+            if (turn == capacity) {
+                capacity *= 2;
+                turnFlags = Arrays.copyOf(turnFlags, capacity);
+                moved = Arrays.copyOf(moved, capacity);
+                dirs = Arrays.copyOf(dirs, capacity * playersNumber);
+                hashes = Arrays.copyOf(hashes, capacity);
+                foodOffs = Arrays.copyOf(foodOffs, capacity + 1);
+                pilletsOffs = Arrays.copyOf(pilletsOffs, capacity + 1);
+                confusion = Arrays.copyOf(confusion, capacity);
+                eaten = Arrays.copyOf(eaten, capacity);
+            }
+            int f = GameRecordFormat.getVarint(buffer);
+            int mask = GameRecordFormat.getVarint(buffer);
+            turnFlags[turn] = f;
+            moved[turn] = mask;
+
+            int packed = 0;
+            int packedCount = 0;
+            for (int playerId = 0; playerId < playersNumber; playerId++) {
+                byte direction = -1;
+                if ((mask & (1 << playerId)) != 0) {
+                    if (packedCount == 0) {
+                        packed = buffer.get();
+                    }
+                    direction = (byte) ((packed >> (2 * packedCount)) & 0x3);
+                    packedCount = (packedCount + 1) % 4;
+                }
+                dirs[turn * playersNumber + playerId] = direction;
+            }
+            hashes[turn] = buffer.getInt();
+
+            foodOffs[turn] = foodCount;
+            if ((f & GameRecordFormat.TURN_FOOD) != 0) {
+                int n = GameRecordFormat.getVarint(buffer);
+                if (foodCount + n > food.length) {
+                    food = Arrays.copyOf(food, Math.max(food.length * 2, foodCount + n));
+                }
+                for (int i = 0; i < n; i++) {
+                    food[foodCount++] = GameRecordFormat.getVarint(buffer);
+                }
+            }
+            pilletsOffs[turn] = pilletsCount;
+            if ((f & GameRecordFormat.TURN_PILLETS) != 0) {
+                int n = GameRecordFormat.getVarint(buffer);
+                if (pilletsCount + n > pilletCells.length) {
+                    pilletCells = Arrays.copyOf(pilletCells, Math.max(pilletCells.length * 2, pilletsCount + n));
+                }
+                for (int i = 0; i < n; i++) {
+                    pilletCells[pilletsCount++] = GameRecordFormat.getVarint(buffer);
+                }
+            }
+            confusion[turn] = ((f & GameRecordFormat.TURN_CONFUSION) != 0) ? GameRecordFormat.getVarint(buffer) : 0;
+            eaten[turn] = ((f & GameRecordFormat.TURN_GHOSTS_EATEN) != 0) ? GameRecordFormat.getVarint(buffer) : 0;
+            turn++;
+
+            if ((f & GameRecordFormat.TURN_GAME_END) != 0) {
+                gameOutcome = buffer.get();
+                gameScore = buffer.getFloat();
+                gameTurns = GameRecordFormat.getVarint(buffer);
+                break;
+            }
+        }
+        foodOffs[turn] = foodCount;
+        pilletsOffs[turn] = pilletsCount;
+
+        turnsCount = turn;
+        flags = turnFlags;
+        movedMasks = moved;
+        directions = dirs;
+        stateHashes = hashes;
+        foodOffsets = foodOffs;
+        foodCells = food;
+        pilletsOffsets = pilletsOffs;
+        pilletsCells = pilletCells;
+        confusionMasks = confusion;
+        ghostsEatenMasks = eaten;
+        outcome = gameOutcome;
+        score = gameScore;
+        finishedTurns = gameTurns;
+    }
+
+    //------------------------------------------------------------ Заголовок
+
+    /**
+     * @return карта игрового поля
+     */
+    public GameFieldMap getMap() {
+        return map;
+    }
+
+    /**
+     * @return количество игроков
+     */
+    public int getPlayersNumber() {
+        return playersNumber;
+    }
+
+    /**
+     * @return идентификатор Пакмана
+     */
+    public int getPacmanId() {
+        return pacmanId;
+    }
+
+    /**
+     * @return начальное значение случайных чисел игры
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return имя агента Пакмана или пустая строка, если агент не известен
+     */
+    public String getAgentName() {
+        return agentName;
+    }
+
+    //----------------------------------------------------------------- Туры
+
+    /**
+     * @return количество записанных туров, включая последний незавершённый
+     */
+    public int getTurnsCount() {
+        return turnsCount;
+    }
+
+    /**
+     * @param turn номер тура
+     * @return <code>true</code>, если тур был завершён
+     */
+    public boolean isTurnFinished(int turn) {
+        return (flags[turn] & GameRecordFormat.TURN_UNFINISHED) == 0;
+    }
+
+    /**
+     * @param turn номер тура
+     * @param playerId идентификатор игрока
+     * @return индекс действия игрока в перечне возможных действий или
+     * <code>-1</code>, если игрок не исполнил действия
+     */
+    public int getDirection(int turn, int playerId) {
+        return directions[turn * playersNumber + playerId];
+    }
+
+    /**
+     * @param turn номер тура
+     * @return хэш состояния игры по завершении тура, см.
+     * {@link GameState#getStateHash}
+     */
+    public int getStateHash(int turn) {
+        return stateHashes[turn];
+    }
+
+    /**
+     * @param turn номер тура
+     * @return номера клеток съеденной в туре еды
+     */
+    public int[] getEatenFood(int turn) {
+        return Arrays.copyOfRange(foodCells, foodOffsets[turn], foodOffsets[turn + 1]);
+    }
+
+    /**
+     * @param turn номер тура
+     * @return номера клеток съеденных в туре магических таблеток
+     */
+    public int[] getEatenPillets(int turn) {
+        return Arrays.copyOfRange(pilletsCells, pilletsOffsets[turn], pilletsOffsets[turn + 1]);
+    }
+
+    /**
+     * @param turn номер тура
+     * @return маска привидений, сменивших в туре состояние контузии
+     */
+    public int getConfusionMask(int turn) {
+        return confusionMasks[turn];
+    }
+
+    /**
+     * @param turn номер тура
+     * @return маска привидений, съеденных в туре
+     */
+    public int getGhostsEatenMask(int turn) {
+        return ghostsEatenMasks[turn];
+    }
+
+    //---------------------------------------------------------- Исход игры
+
+    /**
+     * @return <code>true</code>, если игра завершилась победой Пакмана
+     */
+    public boolean isWon() {
+        return outcome == GameRecordFormat.OUTCOME_WON;
+    }
+
+    /**
+     * @return <code>true</code>, если игра завершилась поражением Пакмана
+     */
+    public boolean isLost() {
+        return outcome == GameRecordFormat.OUTCOME_LOST;
+    }
+
+    /**
+     * @return итоговый счёт игры
+     */
+    public float getScore() {
+        return score;
+    }
+
+    /**
+     * @return количество завершённых туров игры
+     */
+    public int getFinishedTurns() {
+        return finishedTurns;
+    }
+}
@@ -0,0 +1,187 @@
+package pacman.model;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import pacman.game.IAction;
+
+/**
+ * Воспроизведение записанной игры.
+ * <p>
+ * Применяет к состоянию игры {@link GameState} записанные действия игроков в
+ * том же порядке, в каком их исполняла модель игры. Каждые
+ * <code>keyframeInterval</code> туров сохраняется точная копия состояния
+ * (опорный кадр), поэтому переход к любому туру стоит восстановления одного
+ * опорного кадра и применения не более <code>keyframeInterval</code> туров.
+ * <p>
+ * Опорные кадры строятся однократно при создании, проходом по всей записи.
+ * Изменения модели игры не передаются посредникам: после {@link step} или
+ * {@link seek} актуальные данные следует получить из {@link getGameState}.
+ * <p>
+ * Не потоково-безопасен.
+ */
+public class GameReplay {
+
+    /**
+     * Интервал опорных кадров по умолчанию, в турах.
+     */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 64;
+
+    // Посредник, игнорирующий изменения: воспроизведение не ведёт модель игры
+    private static final IModelDataMediator IGNORING_MEDIATOR = new IModelDataMediator() {//<editor-fold defaultstate="collapsed">
+        @Override
+        public void setPlayerLocation(int playerId, Point newLocation) {
+        }
+
+        @Override
+        public void setFoodEaten(Point cell) {
+        }
+
+        @Override
+        public void setPilletEaten(Point cell) {
+        }
+
+        @Override
+        public void setGhostConfused(int playerId, boolean confused) {
+        }
+
+        @Override
+        public void setConfusedGhostEaten(int playerId) {
+        }
+        //</editor-fold>
+    };
+
+    private final GameRecording recording;
+    private final Maze maze;
+    private final List<IAction> actions = NonstopAction.getPossibleActions();
+    private final int keyframeInterval;
+    private final List<GameState<IAction>> keyframes = new ArrayList<GameState<IAction>>();
+
+    private GameState<IAction> state;
+    private int currentTurn;
+
+    /**
+     * Создаёт воспроизведение с интервалом опорных кадров по умолчанию.
+     *
+     * @param recording запись игры
+     */
+    public GameReplay(GameRecording recording) {
+        this(recording, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Создаёт воспроизведение записанной игры.
+     *
+     * @param recording запись игры
+     * @param keyframeInterval интервал опорных кадров, в турах
+     */
+    public GameReplay(GameRecording recording, int keyframeInterval) {
+        this.recording = recording;
+        this.keyframeInterval = keyframeInterval;
+
+        GameFieldMap map = recording.getMap();
+        CompiledMaze compiledMaze = map.getCompiledMaze();
+        maze = new Maze(map, compiledMaze);
+        state = new GameState<IAction>(compiledMaze, recording.getPlayersNumber() - 1, map.getStartLocations(),
+                recording.getPacmanId(), maze.getFood(), maze.getPillets(), actions);
+
+        keyframes.add(state.snapshot());
+        for (currentTurn = 0; currentTurn < recording.getTurnsCount(); ) {
+            applyTurn(currentTurn++);
+            if (currentTurn % keyframeInterval == 0) {
+                keyframes.add(state.snapshot());
+            }
+        }
+        seek(0);
+    }
+
+    /**
+     * @return запись игры
+     */
+    public GameRecording getRecording() {
+        return recording;
+    }
+
+    /**
+     * Возвращает игровое поле в исходном состоянии: расположение еды на нём
+     * не изменяется воспроизведением.
+     *
+     * @return игровое поле
+     */
+    public Maze getMaze() {
+        return maze;
+    }
+
+    /**
+     * @return состояние игры после применения {@link getCurrentTurn} туров
+     */
+    public GameState<IAction> getGameState() {
+        return state;
+    }
+
+    /**
+     * @return количество применённых туров
+     */
+    public int getCurrentTurn() {
+        return currentTurn;
+    }
+
+    /**
+     * @return количество туров записи
+     */
+    public int getTurnsCount() {
+        return recording.getTurnsCount();
+    }
+
+    /**
+     * Применяет очередной тур записи.
+     *
+     * @return <code>false</code>, если все туры уже применены
+     */
+    public boolean step() {
+        if (currentTurn >= recording.getTurnsCount()) {
+            return false;
+        }
+        applyTurn(currentTurn++);
+        return true;
+    }
+
+    /**
+     * Переходит к состоянию после применения заданного количества туров.
+     *
+     * @param turn количество применённых туров, 0...{@link getTurnsCount}
+     */
+    public void seek(int turn) {
+        turn = Math.max(0, Math.min(turn, recording.getTurnsCount()));
+        int keyframe = turn / keyframeInterval;
+        state = keyframes.get(keyframe).snapshot();
+        currentTurn = keyframe * keyframeInterval;
+        while (currentTurn < turn) {
+            applyTurn(currentTurn++);
+        }
+    }
+
+    /**
+     * Исполняет записанные действия тура: Пакман ходит первым, привидения -
+     * в порядке идентификаторов, как в {@link TurnDrivenGameModel}.
+     */
+    private void applyTurn(int turn) {
+        int pacmanId = recording.getPacmanId();
+        applyAction(turn, pacmanId);
+        for (int playerId = 0; playerId < recording.getPlayersNumber(); playerId++) {
+            if (playerId != pacmanId) {
+                applyAction(turn, playerId);
+            }
+        }
+        if (recording.isTurnFinished(turn)) {
+            state.performTurnFinished(IGNORING_MEDIATOR);
+        }
+    }
+
+    private void applyAction(int turn, int playerId) {
+        int direction = recording.getDirection(turn, playerId);
+        if (direction >= 0) {
+            state.performPlayerAction(playerId, actions.get(direction), IGNORING_MEDIATOR);
+        }
+    }
+}
@@ -9,7 +9,9 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import pacman.game.IAction;
@@ -38,6 +40,10 @@ import pacman.game.IGameField;
  * опустошения). Именно поэтому актуальное расположение игроков и еды должно
  * быть получено из экземпляра этого класса после запроса на передвижение
  * реального игрока.
+ * <p>
+ * Если игровое поле - {@link CompiledMaze} с теми же действиями в том же
+ * порядке, допустимые действия читаются из его таблиц соседей и масок
+ * допустимых действий, без проверки проходимости каждой соседней клетки.
  *
  * @param <T> тип действий, предпринимаемых игроками
  */
@@ -48,7 +54,9 @@ public class GameState<T extends IAction> implements IExtendedState<T> {
     private final IGameField myMaze;
     private final int totalGhosts;
     private final int pacmanId;
-    private final Set<T> gameFieldActions;
+    private final Set<T> gameFieldActions;                          // В порядке перечисления: от него зависит повторяемость игры
+    private final CompiledMaze compiledMaze;                        // null, если переходы вычисляются через myMaze
+    private final List<T> compiledActions;                          // Действия в порядке номеров compiledMaze
     private final ScoreCounter scoreCounter;
     private final Set<Point> foodLocation;                          // Координаты единиц еды
     private final Set<Point> pilletsLocation;                          //
@@ -57,6 +65,9 @@ public class GameState<T extends IAction> implements IExtendedState<T> {
     private final List<Point> playerStarts;
     
     private int actionsTillConfusionEnd = 0;
+    private List<Point> turnEatenFood;                              // Изменения тура, ещё не переданные в модель игры
+    private List<Point> turnEatenPillets;                           //
+    private int reportedConfusion = 0;                              // Маска привидений, контуженных по сведениям модели игры
     private boolean gameWon = false;                                       // Признак победы Пакмана
     private boolean gameLost = false;                                         // Признак поражения Пакмана
 
@@ -79,7 +90,15 @@ public class GameState<T extends IAction> implements IExtendedState<T> {
         this.totalGhosts = totalGhosts;
         this.playerStarts = new ArrayList<Point>(Arrays.asList(playerStarts));
         this.pacmanId = pacmanIndex;
-        gameFieldActions = new HashSet(possibleActions);
+        gameFieldActions = new LinkedHashSet<T>(possibleActions);
+        if ((maze instanceof CompiledMaze)
+                && ((CompiledMaze) maze).getActions().equals(new ArrayList<T>(gameFieldActions))) {
+            compiledMaze = (CompiledMaze) maze;
+            compiledActions = new ArrayList<T>(gameFieldActions);
+        } else {
+            compiledMaze = null;
+            compiledActions = null;
+        }
         scoreCounter = new ScoreCounter();
         foodLocation = new HashSet<Point>(food);
         pilletsLocation = new HashSet<Point>(pillets);
@@ -107,13 +126,16 @@ public class GameState<T extends IAction> implements IExtendedState<T> {
         this.totalGhosts = prototype.totalGhosts;
         this.playerStarts = new ArrayList<Point>(prototype.playerStarts);
         this.pacmanId = prototype.pacmanId;
-        this.gameFieldActions = new HashSet<T>(prototype.gameFieldActions);
+        this.gameFieldActions = new LinkedHashSet<T>(prototype.gameFieldActions);
+        this.compiledMaze = prototype.compiledMaze;
+        this.compiledActions = prototype.compiledActions;
         this.scoreCounter = new ScoreCounter(prototype.scoreCounter);
         this.foodLocation = new HashSet<Point>(prototype.foodLocation);
         this.pilletsLocation = new HashSet<Point>(prototype.pilletsLocation);
         this.playersLocation = new HashMap<Integer, Point>(prototype.playersLocation);
         this.isGhostConfused = new HashMap<Integer, Boolean>(prototype.isGhostConfused);
         this.actionsTillConfusionEnd = prototype.actionsTillConfusionEnd;
+        this.reportedConfusion = prototype.reportedConfusion;
         this.gameWon = prototype.gameWon;
         this.gameLost = prototype.gameLost;
     }
@@ -329,7 +351,10 @@ public class GameState<T extends IAction> implements IExtendedState<T> {
         // Изменение местоположения игрока
         if (action != null) {
             Point currentLocation = getPlayerLocation(playerId);
-            Point newLocation = action.getLocationAfterAction(currentLocation);
+            Point newLocation = (compiledMaze != null) ? compiledMaze.getCellAfterAction(currentLocation, action) : null;
+            if (newLocation == null) {
+                newLocation = action.getLocationAfterAction(currentLocation);
+            }
             playersLocation.put(playerId, newLocation);
             if (modifyGameModel) mediator.setPlayerLocation(playerId, newLocation);
         }
@@ -348,12 +373,24 @@ public class GameState<T extends IAction> implements IExtendedState<T> {
             if (foodLocation.contains(getPlayerLocation(playerId))) {
                 foodLocation.remove(getPlayerLocation(playerId));
                 scoreCounter.incrementEatenFood();
+                if (modifyGameModel) {
+                    if (turnEatenFood == null) {
+                        turnEatenFood = new ArrayList<Point>();
+                    }
+                    turnEatenFood.add(getPlayerLocation(playerId));
+                }
             }
             
             // Съедена магическая таблетка
             if (pilletsLocation.contains(getPlayerLocation(playerId))) {
                 pilletsLocation.remove(getPlayerLocation(playerId));
                 scoreCounter.incrementEatenPillets();
+                if (modifyGameModel) {
+                    if (turnEatenPillets == null) {
+                        turnEatenPillets = new ArrayList<Point>();
+                    }
+                    turnEatenPillets.add(getPlayerLocation(playerId));
+                }
                 for (int ghostId : isGhostConfused.keySet()) {
                     isGhostConfused.put(ghostId, Boolean.TRUE);
                     actionsTillConfusionEnd = CONFUSED_STEPS;
@@ -414,13 +451,81 @@ public class GameState<T extends IAction> implements IExtendedState<T> {
      * @param playerId идентификатор игрока
      * @return местоположение игрока с заданным идентификатором
      */
-    private Point getPlayerLocation(int playerId) {
+    Point getPlayerLocation(int playerId) {
         return playersLocation.get(playerId);
     }
+
+    /**
+     * @param playerId идентификатор игрока
+     * @return <code>true</code>, если игрок - контуженное привидение
+     */
+    boolean isGhostConfused(int playerId) {
+        return Boolean.TRUE.equals(isGhostConfused.get(playerId));
+    }
+
+    /**
+     * @return перечень элементов еды
+     */
+    Set<Point> getFoodLocations() {
+        return Collections.unmodifiableSet(foodLocation);
+    }
+
+    /**
+     * @return перечень магических таблеток
+     */
+    Set<Point> getPilletsLocations() {
+        return Collections.unmodifiableSet(pilletsLocation);
+    }
+
+    /**
+     * Возвращает точную копию состояния игры.
+     * <p>
+     * В отличие от конструктора копии, который используется поисковыми
+     * алгоритмами, копирует и все составляющие счёта игры.
+     *
+     * @return точная копия состояния игры
+     */
+    GameState<T> snapshot() {
+        GameState<T> copy = new GameState<T>(this);
+        copy.scoreCounter.magicPilletsEaten = scoreCounter.magicPilletsEaten;
+        copy.scoreCounter.confusedGhostsEaten = scoreCounter.confusedGhostsEaten;
+        return copy;
+    }
+
+    /**
+     * Возвращает хэш состояния игры.
+     * <p>
+     * Учитывает расположение и контузию игроков, еду, таблетки, счёт и исход
+     * игры. Не зависит от порядка обхода коллекций, поэтому совпадает для
+     * одинаковых состояний в любых запусках и на любых JVM: используется для
+     * сверки воспроизведения игры с её записью.
+     *
+     * @return хэш состояния игры
+     */
+    public int getStateHash() {
+        int hash = 1;
+        for (int id = 0; id < getPlayersNumber(); id++) {
+            Point location = getPlayerLocation(id);
+            hash = 31 * hash + location.x;
+            hash = 31 * hash + location.y;
+            hash = 31 * hash + (isGhostConfused(id) ? 1 : 0);
+        }
+        hash = 31 * hash + foodLocation.hashCode();
+        hash = 31 * hash + pilletsLocation.hashCode();
+        hash = 31 * hash + actionsTillConfusionEnd;
+        hash = 31 * hash + Float.floatToIntBits(getGameScore());
+        hash = 31 * hash + (gameWon ? 1 : 0);
+        hash = 31 * hash + (gameLost ? 1 : 0);
+        return hash;
+    }
     
     /**
      * Обрабатывает запрос на расчёт последствий одного тура игры, с внесением
      * соответствующих изменений в текущую модель игры.
+     * <p>
+     * Модели игры передаются только изменения тура: еда и таблетки, съеденные
+     * в ходе тура, и привидения, контузия которых изменилась с предыдущего
+     * тура.
      * 
      * @param mediator интерфейс внесения изменений в модель игры
      */
@@ -437,9 +542,25 @@ public class GameState<T extends IAction> implements IExtendedState<T> {
             gameWon = true;
         }
         
-        mediator.refreshFood(Collections.unmodifiableSet(foodLocation));
-        mediator.refreshPillets(Collections.unmodifiableSet(pilletsLocation));
-        mediator.refreshGhostsConfused(Collections.unmodifiableMap(isGhostConfused));
+        if (turnEatenFood != null) {
+            for (Point cell : turnEatenFood) {
+                mediator.setFoodEaten(cell);
+            }
+            turnEatenFood.clear();
+        }
+        if (turnEatenPillets != null) {
+            for (Point cell : turnEatenPillets) {
+                mediator.setPilletEaten(cell);
+            }
+            turnEatenPillets.clear();
+        }
+        for (Map.Entry<Integer, Boolean> ghost : isGhostConfused.entrySet()) {
+            int ghostBit = 1 << ghost.getKey();
+            if (ghost.getValue() != ((reportedConfusion & ghostBit) != 0)) {
+                reportedConfusion ^= ghostBit;
+                mediator.setGhostConfused(ghost.getKey(), ghost.getValue());
+            }
+        }
     }
 
     //--------------------------------------------------- Методы IExtendedState
@@ -470,6 +591,16 @@ public class GameState<T extends IAction> implements IExtendedState<T> {
     public List<T> getLegalActions(int playerId) {
         List<T> actions = new ArrayList<T>();
         Point place = getPlayerLocation(playerId);
+        int index = (compiledMaze != null) ? compiledMaze.indexOf(place) : -1;
+        if (index >= 0) {
+            int mask = compiledMaze.getLegalMask(index);
+            for (int direction = 0; mask != 0; direction++, mask >>>= 1) {
+                if ((mask & 1) != 0) {
+                    actions.add(compiledActions.get(direction));
+                }
+            }
+            return actions;
+        }
         for (T action : gameFieldActions) {
             Point destination = action.getLocationAfterAction(place);
             if (myMaze.isCellMovable(destination)) {
@@ -492,6 +623,16 @@ public class GameState<T extends IAction> implements IExtendedState<T> {
     @Override
     public LinkedHashMap<Point, T> getLegalActionsAsMap(Point place) {
         LinkedHashMap<Point, T> s = new LinkedHashMap<Point, T>();
+        int index = (compiledMaze != null) ? compiledMaze.indexOf(place) : -1;
+        if (index >= 0) {
+            for (int direction = 0; direction < compiledActions.size(); direction++) {
+                int neighbor = compiledMaze.getNeighbor(index, direction);
+                if (neighbor >= 0) {
+                    s.put(compiledMaze.getCell(neighbor), compiledActions.get(direction));
+                }
+            }
+            return s;
+        }
         for (T action : gameFieldActions) {
             Point destination = action.getLocationAfterAction(place);
             if (myMaze.isCellMovable(destination)) {
@@ -504,6 +645,16 @@ public class GameState<T extends IAction> implements IExtendedState<T> {
     @Override
     public LinkedHashMap<Point, T> getLegalActionsAsMapNoKins(Point place, int playerId) {
         LinkedHashMap<Point, T> s = new LinkedHashMap<Point, T>();
+        int index = (compiledMaze != null) ? compiledMaze.indexOf(place) : -1;
+        if (index >= 0) {
+            for (int direction = 0; direction < compiledActions.size(); direction++) {
+                int neighbor = compiledMaze.getNeighbor(index, direction);
+                if (neighbor >= 0 && !isOccupiedByGhosts(compiledMaze.getCell(neighbor))) {
+                    s.put(compiledMaze.getCell(neighbor), compiledActions.get(direction));
+                }
+            }
+            return s;
+        }
         for (T action : gameFieldActions) {
             Point destination = action.getLocationAfterAction(place);
             if (isDestinationMovable(destination)) {
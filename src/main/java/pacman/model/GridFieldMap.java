@@ -0,0 +1,68 @@
+package pacman.model;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Карта игрового поля, стены которой хранятся битовой картой.
+ * <p>
+ * Стена клетки <code>(x, y)</code> - бит с номером <code>y * ширина + x</code>.
+ * Перечень стен в виде клеток создаётся при первом запросе
+ * {@link getWallsLocations}; клетки периметра в него не входят, так как
+ * игровое поле и без того окружает себя стенами, см. {@link Maze}. Стены не
+ * отражаются, см. {@link isMirrored}. Подходит для больших карт:
+ * сгенерированных и загруженных из файла.
+ */
+public class GridFieldMap extends GameFieldMap {
+
+    private final BitSet walls;
+    private Point[] wallsLocations;
+
+    /**
+     * @param mazeSize размер игрового поля, в клетках
+     * @param cellSize размер клетки игрового поля, в пикселах
+     * @param startLocations упорядоченный перечень исходных расположений игроков
+     * @param pilletsLocations перечень расположения магических таблеток
+     * @param walls битовая карта стен
+     */
+    public GridFieldMap(Dimension mazeSize, int cellSize, Point[] startLocations, Point[] pilletsLocations, BitSet walls) {
+        super(mazeSize, cellSize, startLocations, null, pilletsLocations, false);
+        this.walls = walls;
+    }
+
+    /**
+     * @param x столбец клетки
+     * @param y строка клетки
+     * @return <code>true</code>, если в клетке стена
+     */
+    public boolean isWall(int x, int y) {
+        return walls.get(y * getGameFieldSize().width + x);
+    }
+
+    /**
+     * @return копия битовой карты стен
+     */
+    BitSet copyWalls() {
+        return (BitSet) walls.clone();
+    }
+
+    @Override
+    public synchronized Point[] getWallsLocations() {
+        if (wallsLocations == null) {
+            Dimension size = getGameFieldSize();
+            int count = 0;
+            Point[] locations = new Point[walls.cardinality()];
+            for (int y = 1; y < size.height - 1; y++) {
+                for (int x = 1; x < size.width - 1; x++) {
+                    if (walls.get(y * size.width + x)) {
+                        locations[count++] = new Point(x, y);
+                    }
+                }
+            }
+            wallsLocations = Arrays.copyOf(locations, count);
+        }
+        return wallsLocations;
+    }
+}
@@ -0,0 +1,145 @@
+package pacman.model;
+
+import algorithms.core.ISearchAlgorithm;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import pacman.game.GameSpeed;
+import pacman.game.IAction;
+
+/**
+ * Модель игры без графического представления.
+ * <p>
+ * Исполняет игру по тем же правилам, что и {@link GameModelImp}, но без
+ * анимации и без собственных потоков: ходы игроков завершаются сразу после
+ * изменения состояния игры, ходы привидений рассчитываются в вызывающем
+ * потоке. Новые действия Пакмана рассчитываются заданным алгоритмом без
+ * участия контроллера.
+ * <p>
+ * Использование: установить количество привидений, вызвать
+ * {@link reinitializeGame}, затем {@link run} в любом потоке. Игра
+ * завершается победой, поражением или по достижении предельного количества
+ * туров. Один экземпляр модели рассчитан на одну игру в одном потоке.
+ */
+public class HeadlessGameModel extends GameModelImp {
+
+    private final ISearchAlgorithm pacmanAlgorithm;
+    private final int maxTurns;
+
+    private int turnsPlayed = 0;
+    private long[] thinkTimes = new long[64];
+    private int decisionsMade = 0;
+
+    /**
+     * Создаёт новую модель игры без графического представления.
+     *
+     * @param gameField карта игрового поля
+     * @param pacmanAlgorithm алгоритм расчёта действий Пакмана
+     * @param maxTurns предельное количество туров игры
+     */
+    public HeadlessGameModel(GameFieldMap gameField, ISearchAlgorithm pacmanAlgorithm, int maxTurns) {
+        super(gameField);
+        this.pacmanAlgorithm = pacmanAlgorithm;
+        this.maxTurns = maxTurns;
+        setGameSpeed(GameSpeed.UNTHROTTLED);        // Туры без выдержки продолжительности
+    }
+
+    //---------------------------------------------------- Результаты игры
+
+    /**
+     * @return количество сыгранных туров
+     */
+    public int getTurnsPlayed() {
+        return turnsPlayed;
+    }
+
+    /**
+     * @return текущий счёт игры
+     */
+    public float getGameScore() {
+        return gameState.getGameScore();
+    }
+
+    /**
+     * @return хэш текущего состояния игры, см. {@link GameState#getStateHash}
+     */
+    public int getStateHash() {
+        return gameState.getStateHash();
+    }
+
+    /**
+     * @return <code>true</code>, если игра остановлена по достижении
+     * предельного количества туров
+     */
+    public boolean isTurnLimitReached() {
+        return turnsPlayed >= maxTurns;
+    }
+
+    /**
+     * Возвращает время расчёта каждого из решений Пакмана.
+     *
+     * @return время расчёта решений, в наносекундах
+     */
+    public long[] getThinkTimes() {
+        return Arrays.copyOf(thinkTimes, decisionsMade);
+    }
+
+    //------------------------------------------ Переопределение методов модели
+
+    @Override
+    public void reinitializeGame() {
+        turnsPlayed = 0;
+        decisionsMade = 0;
+        super.reinitializeGame();
+    }
+
+    @Override
+    public boolean isGameComplete() {
+        return super.isGameComplete() || isTurnLimitReached();
+    }
+
+    /*
+     * Вместо уведомления контроллера новые действия Пакмана рассчитываются
+     * на месте.
+     */
+    @Override
+    protected void setPacmanActionsDone() {
+        if (!isPacmanQueueEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        performPacmanAction(pacmanAlgorithm, null);
+        recordThinkTime(System.nanoTime() - start);
+        // Без новых действий тур игры ожидал бы их бесконечно
+        if (isPacmanQueueEmpty()) {
+            throw new IllegalStateException("Алгоритм не вернул действий Пакмана");
+        }
+    }
+
+    @Override
+    protected void animatePlayerAction(int playerId, IAction action) {
+        players.get(playerId).setCurrentAction(action);
+        setPlayerStatusDone(playerId);
+    }
+
+    @Override
+    protected IAction computeGhostAction(Callable<IAction> search) {
+        try {
+            return search.call();
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    @Override
+    protected void performTurnFinished() {
+        super.performTurnFinished();
+        turnsPlayed++;
+    }
+
+    private void recordThinkTime(long nanos) {
+        if (decisionsMade == thinkTimes.length) {
+            thinkTimes = Arrays.copyOf(thinkTimes, decisionsMade * 2);
+        }
+        thinkTimes[decisionsMade++] = nanos;
+    }
+}
@@ -9,7 +9,9 @@ package pacman.model;
 public interface IAnimationMediator {
     
     /**
-     * Принимает запрос на перерисовку графического представления.
+     * Принимает запрос на перерисовку графического представления после шага
+     * анимации. Сам запрос может только накапливать изменения: перерисовка
+     * выполняется однажды за кадр часами анимации {@link AnimationClock}.
      */
     void redrawGraphics();
     
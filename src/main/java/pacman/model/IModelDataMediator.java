@@ -1,11 +1,13 @@
 package pacman.model;
 
 import java.awt.Point;
-import java.util.Collection;
-import java.util.Map;
 
 /**
  * Определяет интерфейс изменения данных модели игры.
+ * <p>
+ * Передаёт только изменения: съеденные элементы еды и таблетки, изменения
+ * контузии привидений и съеденные привидения. Изменения еды и контузии
+ * передаются по завершении тура.
  */
 public interface IModelDataMediator {
     
@@ -18,25 +20,27 @@ public interface IModelDataMediator {
     void setPlayerLocation(int playerId, Point newLocation);
     
     /**
-     * Обновляет перечень элементов еды.
+     * Уведомляет о съедении элемента еды.
      * 
-     * @param food новый перечень элементов еды
+     * @param cell клетка съеденного элемента еды
      */
-    void refreshFood(Collection<Point> food);
+    void setFoodEaten(Point cell);
 
     /**
-     * Обновляет перечень магических таблеток.
+     * Уведомляет о съедении магической таблетки.
      * 
-     * @param pillets новый перечень магических таблеток
+     * @param cell клетка съеденной таблетки
      */
-    void refreshPillets(Collection<Point> pillets);
+    void setPilletEaten(Point cell);
     
     /**
-     * Обновляет состояние привидений (контужено / не контужено).
+     * Уведомляет об изменении состояния привидения (контужено / не
+     * контужено).
      * 
-     * @param isGhostConfused карта новых состояний привидений
+     * @param playerId идентификатор привидения
+     * @param confused новое состояние привидения
      */
-    void refreshGhostsConfused(Map<Integer, Boolean> isGhostConfused);
+    void setGhostConfused(int playerId, boolean confused);
     
     /**
      * Уведомляет о съедении контуженного привидения Пакманом.
@@ -4,68 +4,75 @@ import java.awt.Dimension;
 import java.awt.Point;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import pacman.game.IGameField;
 
 /**
  * Игровое поле. Хранит клетки игрового поля и их содержимое.
+ * <p>
+ * Клетки и стены хранятся таблицей и битовой картой, индексированными
+ * номером клетки <code>y * ширина + x</code>; стены после создания поля не
+ * изменяются. Изменяются только перечни еды и магических таблеток.
  */
 public class Maze implements IGameField {
 
-    private final Map<Point, MazeCell> mazeCells = new ConcurrentHashMap<Point, MazeCell>();
-    private final Set<Point> foodLocation = new HashSet<Point>();
-    private final Set<Point> pilletsLocation = new HashSet<Point>();
+    private static final List<CellContent> WALL_CONTENT = Collections.singletonList(CellContent.WALL);
+
+    private final int width;
+    private final int height;
+    private final Point[] cells;                // Клетки поля, null - клетки нет или стена без объекта
+    private final BitSet walls;
+    // Перечни еды читаются графическим представлением во время игры
+    private final Set<Point> foodLocation = Collections.newSetFromMap(new ConcurrentHashMap<Point, Boolean>());
+    private final Set<Point> pilletsLocation = Collections.newSetFromMap(new ConcurrentHashMap<Point, Boolean>());
+    private volatile int foodVersion = 0;       // Номер изменения еды и таблеток
 
     /**
      * Создаёт игровое поле заданного размера.
      * <p>
      * В расположенные по периметру клетки поля добавляются стены.
-     * 
+     *
      * @param gameSpaceSize размер игрового поля в клетках
      * @param gameSpace перечень клеток игрового поля
      */
     public Maze(Dimension gameSpaceSize, List<Point> gameSpace) {
+        this.width = gameSpaceSize.width;
+        this.height = gameSpaceSize.height;
+        this.cells = new Point[width * height];
         for (Point p : gameSpace) {
-            MazeCell newMazeCell = new MazeCell();
-            if ((p.x == 0) || (p.x >= gameSpaceSize.getWidth() - 1)
-                    || (p.y == 0) || (p.y >= gameSpaceSize.getHeight() - 1)) {
-                newMazeCell.addWall();
+            if (p.x >= 0 && p.y >= 0 && p.x < width && p.y < height) {
+                cells[p.y * width + p.x] = p;
             }
-            mazeCells.put(p, newMazeCell);
+        }
+        this.walls = new BitSet(width * height);
+        walls.set(0, width);
+        walls.set((height - 1) * width, height * width);
+        for (int y = 0; y < height; y++) {
+            walls.set(y * width);
+            walls.set(y * width + width - 1);
         }
     }
 
     /**
      * Создаёт игровое поле с заданными стенами и расположением еды.
-     * 
+     *
      * @param field
      * @param gameSpace
      * @param food
      */
     public Maze(GameFieldMap field, List<Point> gameSpace, Point[] food) {//<editor-fold defaultstate="collapsed">
-        
+
         this(field.getGameFieldSize(), gameSpace);
-        
-        Point[] walls = field.getWallsLocations();
-        Point[] pillets = field.getPilletsLocations();
-        
-        for (Point place : walls) {
-            this.mazeCells.get(place).addWall();
-        }
+
+        addWalls(field, false);
         foodLocation.addAll(Arrays.asList(food));
-        for (Point unit : food) {
-            this.mazeCells.get(unit).addFood();
-        }
-        pilletsLocation.addAll(Arrays.asList(pillets));
-        for (Point unit : pillets) {
-            this.mazeCells.get(unit).addPillet();
-        }
+        pilletsLocation.addAll(Arrays.asList(field.getPilletsLocations()));
         //</editor-fold>
     }
 
@@ -81,106 +88,113 @@ public class Maze implements IGameField {
      * @param mirrorWalls отразить стены в правую часть, если <code>true</code>
      */
     public Maze(GameFieldMap field, List<Point> gameSpace, boolean mirrorWalls) {//<editor-fold defaultstate="collapsed">
-        
+
         this(field.getGameFieldSize(), gameSpace);
-        
-        Dimension gameFieldSize = field.getGameFieldSize();
-        Point[] walls = field.getWallsLocations();
-        Point[] pillets = field.getPilletsLocations();
-        Point[] startLocations = field.getStartLocations();
-        
+
+        addWalls(field, mirrorWalls);
+        fillFood(field);
+        //</editor-fold>
+    }
+
+    /**
+     * Создаёт игровое поле по неизменяемому игровому полю карты с
+     * автозаполнением едой.
+     * <p>
+     * Клетки и стены не копируются, а используются совместно с
+     * <code>maze</code>: объекты хранятся только для проходимых клеток,
+     * клетки стен создаются по запросу перечня клеток. Едой
+     * заполняются все проходимые клетки, исключая исходные расположения
+     * игроков и клетки таблеток.
+     *
+     * @param field карта игрового поля
+     * @param maze неизменяемое игровое поле той же карты, см.
+     * {@link GameFieldMap#getCompiledMaze}
+     */
+    public Maze(GameFieldMap field, CompiledMaze maze) {
+        Dimension size = maze.getSize();
+        this.width = size.width;
+        this.height = size.height;
+        this.cells = maze.getCellsTable();
+        this.walls = maze.getWalls();
+        fillFood(field);
+    }
+
+    /**
+     * Добавляет стены карты, для симметричной карты - отражённые.
+     */
+    private void addWalls(GameFieldMap field, boolean mirrorWalls) {
+        if (field instanceof GridFieldMap && !mirrorWalls) {
+            walls.or(((GridFieldMap) field).copyWalls());
+            return;
+        }
+        Point[] fieldWalls = field.getWallsLocations();
         if (mirrorWalls) {
-            int halfFieldWidth = gameFieldSize.width / 2;
-            for (Point place : walls) {
+            int halfFieldWidth = width / 2;
+            for (Point place : fieldWalls) {
                 if (place.x < halfFieldWidth) {
-                    this.mazeCells.get(place).addWall();
-                    Point mirroredPlace = new Point(gameFieldSize.width - place.x - 1, place.y);
-                    this.mazeCells.get(mirroredPlace).addWall();
+                    walls.set(place.y * width + place.x);
+                    walls.set(place.y * width + width - place.x - 1);
                 }
             }
-            if ((gameFieldSize.width % 2) == 1) {
-                for (Point place : walls) {
+            if ((width % 2) == 1) {
+                for (Point place : fieldWalls) {
                     if (place.x == halfFieldWidth - 1) {
-                        Point middlePlace = new Point(halfFieldWidth, place.y);
-                        this.mazeCells.get(middlePlace).addWall();
+                        walls.set(place.y * width + halfFieldWidth);
                     }
                 }
             }
         } else {
-            for (Point place : walls) {
-                this.mazeCells.get(place).addWall();
+            for (Point place : fieldWalls) {
+                walls.set(place.y * width + place.x);
             }
         }
-        for (Point cell : this.mazeCells.keySet()) {
-            if ((this.mazeCells.get(cell).isMovable())
-                    && (!Arrays.asList(startLocations).contains(cell))
-                    && (!Arrays.asList(pillets).contains(cell))) {
-                this.mazeCells.get(cell).addFood();
-                this.foodLocation.add(cell);
+    }
+
+    /**
+     * Заполняет едой проходимые клетки, исключая исходные расположения игроков
+     * и клетки таблеток, и раскладывает таблетки.
+     */
+    private void fillFood(GameFieldMap field) {
+        Point[] pillets = field.getPilletsLocations();
+        Set<Point> occupied = new HashSet<Point>(Arrays.asList(field.getStartLocations()));
+        occupied.addAll(Arrays.asList(pillets));
+        int count = width * height;
+        for (int index = walls.nextClearBit(0); index < count; index = walls.nextClearBit(index + 1)) {
+            Point cell = cells[index];
+            if (cell != null && !occupied.contains(cell)) {
+                foodLocation.add(cell);
             }
         }
         pilletsLocation.addAll(Arrays.asList(pillets));
-        for (Point unit : pillets) {
-            this.mazeCells.get(unit).addPillet();
-        }
-        //</editor-fold>
     }
 
     /**
-     * Отдельная клетка лабиринта.
+     * @return номер клетки; <code>-1</code>, если клетки нет на поле
      */
-    private class MazeCell {//<editor-fold defaultstate="collapsed">
-        
-        private final List<CellContent> content = new ArrayList<CellContent>();
-
-        /**
-         * Конструктор.
-         *
-         * @param cellType код типа содержимого клетки
-         */
-        public MazeCell() {
-            content.add(CellContent.PASSAGE);
-        }
-
-        private void addWall() {
-            getContent().remove(CellContent.PASSAGE);
-            getContent().add(CellContent.WALL);
-        }
-
-        private void addFood() {
-            getContent().add(CellContent.FOOD);
-        }
-
-        private void removeFood() {
-            getContent().remove(CellContent.FOOD);
-        }
-
-        private void addPillet() {
-            getContent().add(CellContent.PILLET);
-        }
-
-        private void removePillet() {
-            getContent().remove(CellContent.PILLET);
+    private int indexOf(Point location) {
+        if (location == null || location.x < 0 || location.y < 0 || location.x >= width || location.y >= height) {
+            return -1;
         }
+        int index = location.y * width + location.x;
+        return hasCell(index) ? index : -1;
+    }
 
-        /**
-         * @return может ли игрок находиться в клетке
-         */
-        private boolean isMovable() {
-            return getContent().contains(CellContent.PASSAGE);
-        }
+    private boolean hasCell(int index) {
+        return cells[index] != null || walls.get(index);
+    }
 
-        private List<CellContent> getContent() {
-            return content;
-        }
-        //</editor-fold>
+    /**
+     * @return клетка поля; для стены без объекта - новый объект
+     */
+    private Point getCell(int index) {
+        return (cells[index] != null) ? cells[index] : new Point(index % width, index / width);
     }
 
     //--------------------------------------------------------- Операции с едой
-    
+
     /**
      * Возвращает перечень элементов еды на игровом поле.
-     * 
+     *
      * @return перечень элементов еды на игровом поле
      */
     public Set<Point> getFood() {
@@ -189,7 +203,7 @@ public class Maze implements IGameField {
 
     /**
      * Возвращает перечень магических таблеток на игровом поле.
-     * 
+     *
      * @return перечень магических таблеток на игровом поле
      */
     public Set<Point> getPillets() {
@@ -197,74 +211,106 @@ public class Maze implements IGameField {
     }
 
     /**
-     * Обновить перечень элементов еды.
-     * 
-     * В текущем перечне еды оставляет только те элементы, которые есть в
-     * переданном перечне. Соответствующим образом обновляет содержимое клеток.
-     * 
-     * @param freshFoodList новый перечень элементов еды
+     * Убирает съеденный элемент еды из клетки.
+     *
+     * @param location клетка съеденного элемента еды
      */
-    public void refreshFood(Collection<Point> freshFoodList) {
-        if (!freshFoodList.isEmpty()) {
-            Set<Point> difference = new HashSet<Point>(foodLocation);
-            difference.removeAll(freshFoodList);
-            for (Point location : difference) {
-                mazeCells.get(location).removeFood();
-                foodLocation.remove(location);
-            }
-        } else {
-            foodLocation.clear();
+    public void removeFood(Point location) {
+        if (foodLocation.remove(location)) {
+            foodVersion++;
         }
     }
 
     /**
-     * Обновить перечень магических таблеток.
-     * 
-     * В текущем перечне таблеток оставляет только те элементы, которые есть в
-     * переданном перечне. Соответствующим образом обновляет содержимое клеток.
-     * 
-     * @param freshPilletsList новый перечень магических таблеток
+     * Убирает съеденную магическую таблетку из клетки.
+     *
+     * @param location клетка съеденной таблетки
      */
-    public void refreshPillets(Collection<Point> freshPilletsList) {
-        if (!freshPilletsList.isEmpty()) {
-            Set<Point> difference = new HashSet<Point>(pilletsLocation);
-            difference.removeAll(freshPilletsList);
-            for (Point location : difference) {
-                mazeCells.get(location).removePillet();
-                pilletsLocation.remove(location);
-            }
-        } else {
-            // Нельзя делать через .clear, потому что игра не завершается
-            // после съедения всех таблеток
-            for (MazeCell cell : mazeCells.values()) {
-                if (cell.getContent().contains(CellContent.PILLET)) {
-                    cell.removePillet();
-                }
-            }
+    public void removePillet(Point location) {
+        if (pilletsLocation.remove(location)) {
+            foodVersion++;
         }
     }
-    
+
+    /**
+     * Восстанавливает заданное расположение еды и магических таблеток.
+     * <p>
+     * В отличие от {@link removeFood} и {@link removePillet} может
+     * возвращать съеденные элементы на поле.
+     *
+     * @param food перечень элементов еды
+     * @param pillets перечень магических таблеток
+     */
+    public void restoreFood(Collection<Point> food, Collection<Point> pillets) {
+        foodLocation.clear();
+        foodLocation.addAll(food);
+        pilletsLocation.clear();
+        pilletsLocation.addAll(pillets);
+        foodVersion++;
+    }
+
+    /**
+     * Возвращает номер изменения еды и таблеток. Номер меняется при каждом
+     * изменении их расположения; изменения выполняются одним потоком модели.
+     *
+     * @return номер изменения еды и таблеток
+     */
+    public int getFoodVersion() {
+        return foodVersion;
+    }
+
     //------------------------------------------ Операции интерфейса IGameField
-    
+
     @Override
     public Point[] getCells() {
-        return mazeCells.keySet().toArray(new Point[mazeCells.size()]);
+        List<Point> result = new ArrayList<Point>(cells.length);
+        for (int index = 0; index < cells.length; index++) {
+            if (hasCell(index)) {
+                result.add(getCell(index));
+            }
+        }
+        return result.toArray(new Point[result.size()]);
+    }
+
+    @Override
+    public Collection<Point> getCellsWith(CellContent content) {
+        switch (content) {
+            case FOOD:
+                return Collections.unmodifiableSet(foodLocation);
+            case PILLET:
+                return Collections.unmodifiableSet(pilletsLocation);
+            default:
+                boolean wall = (content == CellContent.WALL);
+                List<Point> result = new ArrayList<Point>();
+                for (int index = 0; index < cells.length; index++) {
+                    if (hasCell(index) && walls.get(index) == wall) {
+                        result.add(getCell(index));
+                    }
+                }
+                return result;
+        }
     }
 
     @Override
     public List<CellContent> getCellContent(Point location) {
-        List<CellContent> content = mazeCells.get(location).getContent();
+        int index = indexOf(location);
+        if (index < 0 || walls.get(index)) {
+            return WALL_CONTENT;
+        }
+        List<CellContent> content = new ArrayList<CellContent>(2);
+        content.add(CellContent.PASSAGE);
+        if (foodLocation.contains(location)) {
+            content.add(CellContent.FOOD);
+        }
+        if (pilletsLocation.contains(location)) {
+            content.add(CellContent.PILLET);
+        }
         return Collections.unmodifiableList(content);
     }
 
     @Override
     public boolean isCellMovable(Point cellCoordinate) {
-        if (cellCoordinate == null) {
-            return false;
-        }
-        if (mazeCells.containsKey(cellCoordinate) != true) {
-            return false;
-        }
-        return mazeCells.get(cellCoordinate).isMovable();
+        int index = indexOf(cellCoordinate);
+        return index >= 0 && !walls.get(index);
     }
 }
@@ -0,0 +1,241 @@
+package pacman.model;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Генератор лабиринтов произвольного размера.
+ * <p>
+ * Строит карту игрового поля по начальному значению: одно и то же значение и
+ * одни и те же параметры дают одну и ту же карту. Коридоры шириной в одну
+ * клетку проходят по решётке с заданным шагом; связный лабиринт без циклов
+ * прокладывается алгоритмом Эллера построчно, после чего часть стен между
+ * соседними узлами решётки убирается для образования циклов. Время генерации
+ * пропорционально площади поля, рабочая память - ширине поля; стены хранятся
+ * битовой картой, см. {@link GridFieldMap}.
+ * <p>
+ * Параметры:<ul>
+ * <li> плотность коридоров (0, 1]: 1 - коридоры через одну клетку, 0.5 -
+ * через три и т.д.;
+ * <li> доля циклов [0, 1]: вероятность убрать стену между узлами решётки,
+ * уже соединёнными лабиринтом;
+ * <li> количество магических таблеток и исходных расположений игроков -
+ * случайные различные проходимые клетки.</ul>
+ * Клетки по периметру поля - стены, см. {@link Maze}.
+ */
+public class MazeGenerator {
+
+    /**
+     * Наибольший размер стороны игрового поля, в клетках.
+     */
+    public static final int MAX_SIZE = 4096;
+
+    private final Dimension size;
+    private final long seed;
+    private int cellSize = 45;
+    private double corridorDensity = 1.0;
+    private double loopsRatio = 0.1;
+    private int pilletsNumber = 4;
+    private int startsNumber = 5;
+
+    /**
+     * Создаёт генератор лабиринтов заданного размера.
+     *
+     * @param size размер игрового поля, в клетках
+     * @param seed начальное значение
+     */
+    public MazeGenerator(Dimension size, long seed) {
+        if (size.width < 3 || size.height < 3 || size.width > MAX_SIZE || size.height > MAX_SIZE) {
+            throw new IllegalArgumentException("Недопустимый размер игрового поля: " + size);
+        }
+        this.size = new Dimension(size);
+        this.seed = seed;
+    }
+
+    /**
+     * @param cellSize размер клетки игрового поля, в пикселах
+     */
+    public void setCellSize(int cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * @param corridorDensity плотность коридоров, (0, 1]
+     */
+    public void setCorridorDensity(double corridorDensity) {
+        if (!(corridorDensity > 0 && corridorDensity <= 1)) {
+            throw new IllegalArgumentException("Недопустимая плотность коридоров: " + corridorDensity);
+        }
+        this.corridorDensity = corridorDensity;
+    }
+
+    /**
+     * @param loopsRatio доля циклов, [0, 1]
+     */
+    public void setLoopsRatio(double loopsRatio) {
+        if (!(loopsRatio >= 0 && loopsRatio <= 1)) {
+            throw new IllegalArgumentException("Недопустимая доля циклов: " + loopsRatio);
+        }
+        this.loopsRatio = loopsRatio;
+    }
+
+    /**
+     * @param pilletsNumber количество магических таблеток
+     */
+    public void setPilletsNumber(int pilletsNumber) {
+        this.pilletsNumber = pilletsNumber;
+    }
+
+    /**
+     * @param startsNumber количество исходных расположений игроков: Пакман и
+     * привидения
+     */
+    public void setStartsNumber(int startsNumber) {
+        this.startsNumber = startsNumber;
+    }
+
+    /**
+     * Генерирует карту игрового поля.
+     *
+     * @return карта игрового поля
+     * @throws IllegalArgumentException если на поле не хватает проходимых
+     * клеток для игроков и таблеток
+     */
+    public GridFieldMap generate() {
+        SplittableRandom random = new SplittableRandom(seed);
+        int width = size.width;
+        int height = size.height;
+        int pitch = Math.max(2, (int) Math.round(2 / corridorDensity));
+        int columns = (width - 3) / pitch + 1;
+        int rows = (height - 3) / pitch + 1;
+
+        // Поле изначально сплошь из стен, узлы решётки и проходы - проходимы
+        BitSet walls = new BitSet(width * height);
+        walls.set(0, width * height);
+
+        // Алгоритм Эллера: множества связности узлов текущей строки
+        int[] sets = new int[columns];
+        int[] parents = new int[2 * columns];
+        int[] renumbered = new int[2 * columns];
+        int[] downCounts = new int[2 * columns];
+        int[] downCells = new int[2 * columns];
+        boolean[] down = new boolean[columns];
+        int nextSet = 0;
+        for (int i = 0; i < columns; i++) {
+            sets[i] = nextSet++;
+        }
+        for (int row = 0; row < rows; row++) {
+            boolean lastRow = (row == rows - 1);
+            int y = 1 + row * pitch;
+            for (int i = 0; i < parents.length; i++) {
+                parents[i] = i;
+            }
+            for (int i = 0; i < columns; i++) {
+                walls.clear(y * width + 1 + i * pitch);
+            }
+            // Горизонтальные проходы
+            for (int i = 0; i + 1 < columns; i++) {
+                int a = find(parents, sets[i]);
+                int b = find(parents, sets[i + 1]);
+                boolean join = (a != b) && (lastRow || random.nextBoolean());
+                if (join || (a == b && random.nextDouble() < loopsRatio)) {
+                    parents[b] = a;
+                    int x = 1 + i * pitch;
+                    walls.clear(y * width + x + 1, y * width + x + pitch);
+                }
+            }
+            if (lastRow) {
+                break;
+            }
+            // Вертикальные проходы: хотя бы один из каждого множества
+            Arrays.fill(downCounts, 0);
+            for (int i = 0; i < columns; i++) {
+                sets[i] = find(parents, sets[i]);
+                down[i] = random.nextBoolean();
+                if (down[i]) {
+                    downCounts[sets[i]] = -1;
+                } else if (downCounts[sets[i]] >= 0) {
+                    // Случайный член множества выбирается с равной вероятностью
+                    downCounts[sets[i]]++;
+                    if (random.nextInt(downCounts[sets[i]]) == 0) {
+                        downCells[sets[i]] = i;
+                    }
+                }
+            }
+            for (int i = 0; i < columns; i++) {
+                if (downCounts[sets[i]] > 0 && downCells[sets[i]] == i) {
+                    down[i] = true;
+                } else if (!down[i] && random.nextDouble() < loopsRatio) {
+                    down[i] = true;
+                }
+            }
+            // Перенумерация множеств следующей строки
+            Arrays.fill(renumbered, -1);
+            nextSet = 0;
+            for (int i = 0; i < columns; i++) {
+                if (down[i]) {
+                    int x = 1 + i * pitch;
+                    for (int dy = 1; dy < pitch; dy++) {
+                        walls.clear((y + dy) * width + x);
+                    }
+                    if (renumbered[sets[i]] < 0) {
+                        renumbered[sets[i]] = nextSet++;
+                    }
+                    sets[i] = renumbered[sets[i]];
+                } else {
+                    sets[i] = -1;
+                }
+            }
+            for (int i = 0; i < columns; i++) {
+                if (sets[i] < 0) {
+                    sets[i] = nextSet++;
+                }
+            }
+        }
+
+        SplittableRandom placement = random.split();
+        Set<Point> taken = new HashSet<Point>();
+        Point[] starts = pickCells(walls, startsNumber, placement, taken);
+        Point[] pillets = pickCells(walls, pilletsNumber, placement, taken);
+        return new GridFieldMap(size, cellSize, starts, pillets, walls);
+    }
+
+    private static int find(int[] parents, int set) {
+        while (parents[set] != set) {
+            parents[set] = parents[parents[set]];
+            set = parents[set];
+        }
+        return set;
+    }
+
+    /**
+     * Выбирает случайные различные проходимые клетки.
+     */
+    private Point[] pickCells(BitSet walls, int count, SplittableRandom random, Set<Point> taken) {
+        int width = size.width;
+        int open = width * size.height - walls.cardinality();
+        if (taken.size() + count > open) {
+            throw new IllegalArgumentException("Недостаточно проходимых клеток: " + open);
+        }
+        Point[] cells = new Point[count];
+        for (int i = 0; i < count; i++) {
+            Point cell;
+            do {
+                int index = random.nextInt(width * size.height);
+                index = walls.nextClearBit(index);
+                if (index >= width * size.height) {
+                    index = walls.nextClearBit(0);
+                }
+                cell = new Point(index % width, index / width);
+            } while (taken.contains(cell));
+            taken.add(cell);
+            cells[i] = cell;
+        }
+        return cells;
+    }
+}
@@ -0,0 +1,53 @@
+package pacman.model;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import pacman.game.IModelListener;
+import pacman.game.ModelEvent;
+
+/**
+ * Шина событий модели игры.
+ * <p>
+ * Доставляет события {@link ModelEvent} получателям {@link IModelListener} в
+ * потоке, опубликовавшем событие. Публикация не берёт блокировок и не
+ * копирует перечень получателей: он заменяется целиком только при добавлении
+ * и удалении получателя. Без получателей публикация ничего не делает.
+ * <p>
+ * Потоково-безопасно.
+ */
+public class ModelEventBus {
+
+    private final List<IModelListener> listeners = new CopyOnWriteArrayList<IModelListener>();
+
+    /**
+     * @param listener получатель событий
+     */
+    public void addListener(IModelListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener получатель событий
+     */
+    public void removeListener(IModelListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return <code>true</code>, если есть хотя бы один получатель
+     */
+    public boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * Доставляет событие всем получателям в порядке их добавления.
+     *
+     * @param event событие
+     */
+    public void publish(ModelEvent event) {
+        for (IModelListener listener : listeners) {
+            listener.modelChanged(event);
+        }
+    }
+}
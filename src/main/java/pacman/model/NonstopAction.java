@@ -15,8 +15,9 @@ import pacman.game.IAction;
  * Объединяет особенности движения на север, восток, запад, юг. Ожидание на
  * месте не разрешено.
  * <p>
- * Использует готовый пул клеток игрового поля с целью повторного использования
- * имеющихся объектов.
+ * Действие не знает игрового поля и возвращает новую клетку; переход по
+ * клеткам конкретного поля без создания объектов - см.
+ * {@link CompiledMaze#getCellAfterAction}.
  */
 public enum NonstopAction implements IAction {
 
@@ -43,7 +44,6 @@ public enum NonstopAction implements IAction {
                 new IAction[]{EASTWARD, NORTHWARD},
                 new IAction[]{WESTWARD, SOUTHWARD},
                 new IAction[]{WESTWARD, NORTHWARD}));
-    private static List<Point> loctionsPool = new ArrayList<Point>();
     
     static {
         values.add(NORTHWARD);
@@ -82,15 +82,6 @@ public enum NonstopAction implements IAction {
         return EASTWARD;
     }
     
-    /**
-     * Устанавливает пул клеток игрового поля.
-     * 
-     * @param pool пул клеток игрового поля
-     */
-    public static void setLocationsPoll(List<Point> pool) {
-        NonstopAction.loctionsPool = pool;
-    }
-    
     /**
      * Возвращает координату после выполнения последовательности действий
      * из исходной координаты {@literal point(x, y)}.
@@ -130,13 +121,7 @@ public enum NonstopAction implements IAction {
 
     @Override
     public Point getLocationAfterAction(Point p) {
-        Point newPoint = new Point(p);
-        newPoint.translate(dx, dy);
-        if (loctionsPool.contains(newPoint)) {
-            return loctionsPool.get(loctionsPool.indexOf(newPoint));
-        } else {
-            return newPoint;
-        }
+        return new Point(p.x + dx, p.y + dy);
     }
 
     @Override
@@ -12,10 +12,11 @@ public class Player implements IAnimatedPlayer, IMovableEntity {
     private final PlayerType nativePlayerType;
     private final int colorId;
     
-    private Point currentLocation;
-    private IAction currentAction;
-    private Point animationShift;
-    private boolean isConfused = false;
+    // Изменяются потоками модели и часов анимации, читаются при публикации кадра
+    private volatile Point currentLocation;
+    private volatile IAction currentAction;
+    private volatile Point animationShift;
+    private volatile boolean isConfused = false;
 
     /**
      * Создаёт новую модель игрока.
@@ -0,0 +1,222 @@
+package pacman.model;
+
+import algorithms.core.ISearchAlgorithm;
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import pacman.game.IAction;
+import pacman.game.IAnimatedPlayer;
+import pacman.game.ModelEvent;
+
+/**
+ * Модель игры для просмотра записи.
+ * <p>
+ * Воспроизводит запись игры {@link GameReplay} тур за туром с той же
+ * анимацией, что и {@link GameModelImp}, и позволяет приостанавливать
+ * воспроизведение и переходить к любому туру. Запросы Пакмана на новые
+ * действия игнорирует: все действия берутся из записи.
+ * <p>
+ * Воспроизведение выполняется в потоке, запущенном через {@link run};
+ * управляющие методы потоково-безопасны и применяются между турами.
+ */
+public class ReplayGameModel extends AbstractGameModel implements Runnable {
+
+    private final GameReplay replay;
+    private final List<ActionAnimator> animators = new ArrayList<ActionAnimator>();
+
+    private CountDownLatch finish;
+    private boolean paused = false;
+    private int requestedTurn = -1;     // Запрошенный переход, -1 - нет запроса
+
+    /**
+     * Создаёт модель просмотра записи игры.
+     *
+     * @param replay воспроизведение записи игры
+     */
+    public ReplayGameModel(GameReplay replay) {
+        super(replay.getRecording().getMap());
+        this.replay = replay;
+        this.totalGhosts = replay.getRecording().getPlayersNumber() - 1;
+        reinitializeGame();
+    }
+
+    //-------------------------------------------------- Управление просмотром
+
+    /**
+     * @return количество воспроизведённых туров
+     */
+    public synchronized int getCurrentTurn() {
+        return replay.getCurrentTurn();
+    }
+
+    /**
+     * @return количество туров записи
+     */
+    public int getTurnsCount() {
+        return replay.getTurnsCount();
+    }
+
+    /**
+     * Запрашивает переход к состоянию после заданного количества туров.
+     *
+     * @param turn количество воспроизведённых туров
+     */
+    public synchronized void seek(int turn) {
+        requestedTurn = Math.max(0, Math.min(turn, replay.getTurnsCount()));
+        notifyAll();
+    }
+
+    /**
+     * Приостанавливает или возобновляет воспроизведение.
+     */
+    public synchronized void togglePaused() {
+        paused = !paused;
+        notifyAll();
+    }
+
+    /**
+     * @return <code>true</code>, если воспроизведение приостановлено
+     */
+    public synchronized boolean isPaused() {
+        return paused;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                synchronized (this) {
+                    while (requestedTurn < 0 && (paused || replay.getCurrentTurn() >= replay.getTurnsCount())) {
+                        wait();
+                    }
+                    if (requestedTurn >= 0) {
+                        replay.seek(requestedTurn);
+                        requestedTurn = -1;
+                        synchronizePlayers(true);
+                        redrawView();
+                        reportChanged(ModelEvent.TURN_FINISHED);
+                        continue;
+                    }
+                }
+                playTurn();
+            }
+        } catch (InterruptedException ex) {
+        }
+    }
+
+    /**
+     * Воспроизводит очередной тур: переставляет игроков и анимирует их ходы,
+     * по завершении анимации обновляет еду и состояние контузии привидений.
+     * Тур длится не меньше продолжительности тура при текущей скорости; без
+     * ограничения скорости ходы не анимируются.
+     */
+    private void playTurn() throws InterruptedException {
+        long turnStart = System.nanoTime();
+        long duration = getTurnDuration();
+        int turn;
+        synchronized (this) {
+            turn = replay.getCurrentTurn();
+            replay.step();
+            synchronizePlayers(false);
+        }
+        GameRecording recording = replay.getRecording();
+        finish = new CountDownLatch(players.size());
+        for (int playerId = 0; playerId < players.size(); playerId++) {
+            int direction = recording.getDirection(turn, playerId);
+            if (direction >= 0 && duration > 0) {
+                ActionAnimator a = animators.get(playerId);
+                a.setAction(getPossibleActions().get(direction), duration);
+                animationClock.start(a);
+            } else {
+                finish.countDown();
+            }
+        }
+        finish.await();
+        waitTurnEnd(turnStart);
+        synchronized (this) {
+            synchronizePlayers(true);
+        }
+        redrawView();
+        reportChanged(ModelEvent.TURN_FINISHED);                    // Уведомить о смене тура
+    }
+
+    /**
+     * Переносит в игроков и игровое поле текущее состояние воспроизведения.
+     *
+     * @param refreshTurnData обновлять ли данные, изменяемые по завершении
+     * тура: еду и состояние контузии
+     */
+    private void synchronizePlayers(boolean refreshTurnData) {
+        gameState = replay.getGameState();
+        for (int playerId = 0; playerId < players.size(); playerId++) {
+            Player player = players.get(playerId);
+            player.setLocation(gameState.getPlayerLocation(playerId));
+            if (refreshTurnData) {
+                player.setConfused(gameState.isGhostConfused(playerId));
+            }
+        }
+        if (refreshTurnData) {
+            myMaze.restoreFood(gameState.getFoodLocations(), gameState.getPilletsLocations());
+        }
+    }
+
+    //--------------------------------------- Реализация AbstractGameModel
+
+    @Override
+    public void reinitializeGame() {
+        super.reinitializeGame();
+        synchronized (this) {
+            synchronizePlayers(true);
+        }
+    }
+
+    @Override
+    protected int reinitializePlayers() {
+        players.clear();
+        animators.clear();
+        GameRecording recording = replay.getRecording();
+        Point[] starts = gameFieldMap.getStartLocations();
+        for (int playerId = 0; playerId < recording.getPlayersNumber(); playerId++) {
+            IAnimatedPlayer.PlayerType type = (playerId == recording.getPacmanId())
+                    ? IAnimatedPlayer.PlayerType.PACMAN
+                    : IAnimatedPlayer.PlayerType.HORRIFIC_GHOST;
+            Player player = new Player(type, playerId, starts[playerId], getPossibleActions().get(0));
+            players.add(player);
+            animators.add(new ActionAnimator(player, new AnimationMediator(player), getMazeCellSize()));
+        }
+        return recording.getPacmanId();
+    }
+
+    @Override
+    public void performPacmanAction(ISearchAlgorithm algorithm, Point goal) {
+    }
+
+    @Override
+    public boolean isPacmanQueueEmpty() {
+        return true;
+    }
+
+    /**
+     * Посредник для взаимодействия с аниматором {@link ActionAnimator}.
+     */
+    private class AnimationMediator implements IAnimationMediator {//<editor-fold defaultstate="collapsed">
+
+        private final Player player;
+
+        public AnimationMediator(Player player) {
+            this.player = player;
+        }
+
+        @Override
+        public void notifyAnimationComplete() {
+            finish.countDown();
+        }
+
+        @Override
+        public void redrawGraphics() {
+            addDirtyRegion(getPlayerRegion(player));
+        }
+        //</editor-fold>
+    }
+}
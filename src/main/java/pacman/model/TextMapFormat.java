@@ -0,0 +1,219 @@
+package pacman.model;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Текстовый формат карты игрового поля.
+ * <p>
+ * Одна строка файла - одна строка игрового поля, один символ - одна клетка:
+ * <ul>
+ * <li> {@link WALL} - стена;
+ * <li> {@link PASSAGE} или пробел - проход (с едой);
+ * <li> {@link PILLET} - магическая таблетка;
+ * <li> цифры <code>0</code>-<code>9</code> - исходные расположения игроков в
+ * порядке номеров: <code>0</code> - Пакман, остальные - привидения.</ul>
+ * Стены карты не отражаются, см. {@link GameFieldMap#isMirrored}. Все строки
+ * одной длины; разделитель строк - <code>\n</code> или
+ * <code>\r\n</code>, пустые строки в конце файла не учитываются. Клетки
+ * периметра считаются стенами независимо от символа, см. {@link Maze}.
+ * <p>
+ * Файл разбирается прямо из отображённого в память буфера за один проход:
+ * стены заносятся в битовую карту {@link GridFieldMap}, объекты клеток
+ * создаются только для исходных расположений и таблеток.
+ */
+public final class TextMapFormat {
+
+    public static final char WALL = '#';
+    public static final char PASSAGE = '.';
+    public static final char PILLET = 'o';
+
+    private static final int MAX_STARTS = 10;
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    // Виды символов: проход, стена, прочие (разбираются отдельно)
+    private static final int KIND_PASSAGE = 0;
+    private static final int KIND_WALL = 1;
+    private static final int KIND_OTHER = 2;
+    private static final byte[] KINDS = new byte[256];
+
+    static {
+        Arrays.fill(KINDS, (byte) KIND_OTHER);
+        KINDS[PASSAGE] = KIND_PASSAGE;
+        KINDS[' '] = KIND_PASSAGE;
+        KINDS[WALL] = KIND_WALL;
+    }
+
+    private TextMapFormat() {
+    }
+
+    /**
+     * Читает карту игрового поля из файла.
+     *
+     * @param file файл карты
+     * @param cellSize размер клетки игрового поля, в пикселах
+     * @return карта игрового поля
+     * @throws IOException при ошибке чтения или неверном содержимом файла
+     */
+    public static GridFieldMap read(Path file, int cellSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), cellSize);
+        } catch (IllegalStateException ex) {
+            throw new IOException("Неверная карта " + file + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Разбирает карту игрового поля из буфера.
+     *
+     * @param buffer содержимое карты
+     * @param cellSize размер клетки игрового поля, в пикселах
+     * @return карта игрового поля
+     * @throws IllegalStateException при неверном содержимом карты
+     */
+    public static GridFieldMap parse(ByteBuffer buffer, int cellSize) {
+        int limit = buffer.limit();
+        while (limit > 0 && (buffer.get(limit - 1) == '\n' || buffer.get(limit - 1) == '\r')) {
+            limit--;
+        }
+        // Слова битовой карты стен: клеток не больше, чем символов в файле
+        long[] walls = new long[(limit - buffer.position()) / 64 + 1];
+        Point[] starts = new Point[MAX_STARTS];
+        Point[] pillets = new Point[16];
+        int pilletsCount = 0;
+        int width = -1;
+        int x = 0;
+        int y = 0;
+        int cell = 0;
+        // Буфер читается блоками: поэлементный доступ к отображённому файлу медленнее
+        ByteBuffer source = buffer.duplicate();
+        source.limit(limit);
+        byte[] chunk = new byte[CHUNK_SIZE];
+        while (source.hasRemaining()) {
+            int length = Math.min(source.remaining(), chunk.length);
+            source.get(chunk, 0, length);
+            for (int i = 0; i < length; i++) {
+                byte symbol = chunk[i];
+                int kind = KINDS[symbol & 0xff];
+                // Стены и проходы - без ветвлений: их чередование непредсказуемо
+                walls[cell >>> 6] |= (long) (kind & KIND_WALL) << cell;
+                if (kind <= KIND_WALL) {
+                    x++;
+                    cell++;
+                    continue;
+                }
+                if (symbol == '\r') {
+                    continue;
+                }
+                if (symbol == '\n') {
+                    if (width < 0) {
+                        width = x;
+                    } else if (x != width) {
+                        throw new IllegalStateException("строка " + (y + 1) + " длиной " + x + " вместо " + width);
+                    }
+                    x = 0;
+                    y++;
+                    continue;
+                }
+                if (symbol == PILLET) {
+                    if (pilletsCount == pillets.length) {
+                        pillets = Arrays.copyOf(pillets, pilletsCount * 2);
+                    }
+                    pillets[pilletsCount++] = new Point(x, y);
+                } else if (symbol >= '0' && symbol <= '9') {
+                    int slot = symbol - '0';
+                    if (starts[slot] != null) {
+                        throw new IllegalStateException("повторное расположение игрока " + slot);
+                    }
+                    starts[slot] = new Point(x, y);
+                } else {
+                    throw new IllegalStateException("недопустимый символ '" + (char) symbol
+                            + "' в строке " + (y + 1));
+                }
+                x++;
+                cell++;
+            }
+        }
+        if (width < 0) {
+            width = x;
+        } else if (x != width) {
+            throw new IllegalStateException("строка " + (y + 1) + " длиной " + x + " вместо " + width);
+        }
+        int height = y + 1;
+        if (width < 3 || height < 3) {
+            throw new IllegalStateException("игровое поле меньше 3x3");
+        }
+
+        int startsCount = 0;
+        while (startsCount < MAX_STARTS && starts[startsCount] != null) {
+            startsCount++;
+        }
+        for (int slot = startsCount; slot < MAX_STARTS; slot++) {
+            if (starts[slot] != null) {
+                throw new IllegalStateException("пропущено расположение игрока " + startsCount);
+            }
+        }
+        return new GridFieldMap(new Dimension(width, height), cellSize,
+                Arrays.copyOf(starts, startsCount), Arrays.copyOf(pillets, pilletsCount), BitSet.valueOf(walls));
+    }
+
+    /**
+     * Записывает карту игрового поля в файл. Стены симметричной карты
+     * записываются отражёнными.
+     *
+     * @param map карта игрового поля
+     * @param file файл карты
+     * @throws IOException при ошибке записи
+     * @throws IllegalArgumentException если на карте больше десяти исходных
+     * расположений игроков
+     */
+    public static void write(GameFieldMap map, Path file) throws IOException {
+        Dimension size = map.getGameFieldSize();
+        Point[] starts = map.getStartLocations();
+        if (starts.length > MAX_STARTS) {
+            throw new IllegalArgumentException("Расположений игроков больше " + MAX_STARTS + ": " + starts.length);
+        }
+        char[][] rows = new char[size.height][size.width];
+        for (int y = 0; y < size.height; y++) {
+            for (int x = 0; x < size.width; x++) {
+                boolean perimeter = (x == 0 || y == 0 || x == size.width - 1 || y == size.height - 1);
+                rows[y][x] = perimeter ? WALL : PASSAGE;
+            }
+        }
+        // Стены симметричной карты отражаются так же, как в Maze
+        int halfWidth = size.width / 2;
+        for (Point wall : map.getWallsLocations()) {
+            if (!map.isMirrored()) {
+                rows[wall.y][wall.x] = WALL;
+            } else if (wall.x < halfWidth) {
+                rows[wall.y][wall.x] = WALL;
+                rows[wall.y][size.width - wall.x - 1] = WALL;
+                if (size.width % 2 == 1 && wall.x == halfWidth - 1) {
+                    rows[wall.y][halfWidth] = WALL;
+                }
+            }
+        }
+        for (Point pillet : map.getPilletsLocations()) {
+            rows[pillet.y][pillet.x] = PILLET;
+        }
+        for (int i = 0; i < starts.length; i++) {
+            rows[starts[i].y][starts[i].x] = (char) ('0' + i);
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            for (char[] row : rows) {
+                writer.write(row);
+                writer.write('\n');
+            }
+        }
+    }
+}
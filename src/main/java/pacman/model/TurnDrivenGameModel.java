@@ -3,19 +3,19 @@ package pacman.model;
 import algorithms.core.ISearchAlgorithm;
 import java.awt.Point;
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.LinkedBlockingQueue;
 import pacman.game.IAction;
+import pacman.game.ModelEvent;
 
 /**
  * Модель игры по турам.
  * <p>
  * Игра ведётся по турам, в каждом из которых игроки делают по одному ходу.
  * Пакман делает первый ход в туре, получая действие из очереди действий
- * {@link pacmanActionsQueue}; если очередь действий пуста, то об этом
+ * {@link pacmanActions}; если очередь действий пуста, то об этом
  * уведомляется контроллер игры, который должен предоставить новые действия.
  * После запуска действия Пакмана (и во время его анимации) рассчитываются и
  * запускаются действия привидений. Новый тур игры начинается, когда все игроки
@@ -29,18 +29,22 @@ import pacman.game.IAction;
  * в {@link getPacmanActionsSequence};
  * <li> Исполнять действия игроков в {@link startPlayerAction};
  * <li> Рассчитывать и запускать действия привидений в {@link letGhostsAct};
- * <li> При необходимости выполнять действия по завершении тура в {@link performTurnFinished}.</ol>
+ * <li> При необходимости выполнять действия по завершении тура в {@link performTurnFinished}
+ * и по завершении игры в {@link performGameFinished}.</ol>
  */ 
 public abstract class TurnDrivenGameModel
         extends AbstractGameModel
         implements Runnable {
     
-    // Очередь действий Пакмана
-    private final BlockingQueue<IAction> pacmanActionsQueue = new LinkedBlockingQueue<IAction>();
+    // Очередь действий Пакмана - последовательность, возвращённая алгоритмом:
+    // действия извлекаются из неё по одному, не копируясь
+    private final Object pacmanActionsLock = new Object();
+    private Queue<IAction> pacmanActions = new LinkedList<IAction>();
     private final List<Integer> playersId = new ArrayList<Integer>();
     
     private TurnStatus turnStatus = TurnStatus.PACMAN_ACTION;
     private CountDownLatch finish;
+    private long turnStart;                         // Время начала текущего тура, в нс
     
     /**
      * Создаёт новую модель игры.
@@ -74,7 +78,9 @@ public abstract class TurnDrivenGameModel
         for (int i = 0; i < (totalGhosts + 1); i++) {
             playersId.add(i);
         }
-        pacmanActionsQueue.clear();
+        synchronized (pacmanActionsLock) {
+            pacmanActions = new LinkedList<IAction>();
+        }
         turnStatus = TurnStatus.PACMAN_ACTION;
         clearActionsComplete();
     }
@@ -95,17 +101,38 @@ public abstract class TurnDrivenGameModel
     
     @Override
     public void performPacmanAction(ISearchAlgorithm algorithm, Point goal) {
-        synchronized (pacmanActionsQueue) {
-            if (pacmanActionsQueue.isEmpty()) {
+        synchronized (pacmanActionsLock) {
+            if (pacmanActions.isEmpty()) {
                 Queue<IAction> sequence = getPacmanActionsSequence(algorithm, goal);
-                pacmanActionsQueue.addAll(sequence);
+                if (!sequence.isEmpty()) {
+                    pacmanActions = sequence;
+                    pacmanActionsLock.notifyAll();
+                }
             }
         }
     }
     
     @Override
     public boolean isPacmanQueueEmpty() {
-        return pacmanActionsQueue.isEmpty();
+        synchronized (pacmanActionsLock) {
+            return pacmanActions.isEmpty();
+        }
+    }
+
+    /**
+     * Извлекает следующее действие Пакмана.
+     *
+     * @param wait ожидать появления действий, если очередь пуста
+     * @return действие Пакмана или <code>null</code>, если очередь пуста
+     * @throws InterruptedException если ожидание прервано
+     */
+    private IAction pollPacmanAction(boolean wait) throws InterruptedException {
+        synchronized (pacmanActionsLock) {
+            while (wait && pacmanActions.isEmpty()) {
+                pacmanActionsLock.wait();
+            }
+            return pacmanActions.poll();
+        }
     }
     
     /**
@@ -131,12 +158,13 @@ public abstract class TurnDrivenGameModel
                 // Запуск хода Пакмана с последующими ходами привидений
                 case PACMAN_ACTION:
                 {
-                    if (pacmanActionsQueue.isEmpty()) {
-                        setPacmanActionsDone();                                 // Запросить новые ходы Пакмана
-                    }
-                    
                     try {
-                        IAction action = pacmanActionsQueue.take();
+                        IAction action = pollPacmanAction(false);
+                        while (action == null) {
+                            setPacmanActionsDone();                             // Запросить новые ходы Пакмана
+                            action = pollPacmanAction(true);
+                        }
+                        turnStart = System.nanoTime();
                         //System.out.println("==========\nНовый тур");
                         startPlayerAction(getPacmanId(), action);               // Запуск хода Пакмана
                     } catch (InterruptedException ie) {}
@@ -152,11 +180,12 @@ public abstract class TurnDrivenGameModel
                     // Ожидать, пока все игроки завершат ходы
                     try {
                         finish.await();
+                        waitTurnEnd(turnStart);                                 // Выдержать продолжительность тура
                         //System.out.println("Тур завершён");
                     } catch (InterruptedException ie) {}
                     
                     performTurnFinished();                                      // Завершить тур
-                    reportChanged();                                            // Уведомить об изменении данных модели
+                    reportChanged(ModelEvent.TURN_FINISHED);                    // Уведомить об изменении данных модели
                     clearActionsComplete();                                     // Перевести игроков в режим ожидания
                     turnStatus = TurnStatus.PACMAN_ACTION;
                 }
@@ -169,6 +198,8 @@ public abstract class TurnDrivenGameModel
                 break;
             }
         }
+        performGameFinished();
+        reportChanged(ModelEvent.GAME_OVER);
         //</editor-fold>
     }
 
@@ -211,4 +242,13 @@ public abstract class TurnDrivenGameModel
      * Завершение тура игры.
      */
     protected abstract void performTurnFinished();
+
+    /**
+     * Завершение игры.
+     * <p>
+     * Вызывается однократно, когда игра завершена; последний тур при этом мог
+     * не дойти до {@link performTurnFinished}.
+     */
+    protected void performGameFinished() {
+    }
 }
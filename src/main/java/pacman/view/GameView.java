@@ -1,11 +1,14 @@
 package pacman.view;
 
+import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.EventQueue;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
@@ -13,12 +16,15 @@ import java.awt.font.FontRenderContext;
 import java.awt.image.BufferedImage;
 import java.util.*;
 import javax.swing.JPanel;
+import pacman.game.FrameSnapshot;
 import pacman.game.GameController;
 import pacman.game.IAnimatedGameModel;
 import pacman.game.IAnimatedPlayer;
 import pacman.game.IAnimatedPlayer.PlayerType;
 import pacman.game.IGameField;
 import pacman.game.IGameField.CellContent;
+import pacman.game.IModelListener;
+import pacman.game.ModelEvent;
 import pacman.view.content.Food;
 import pacman.view.content.IDrawableContent;
 import pacman.view.content.Passage;
@@ -31,10 +37,27 @@ import pacman.view.players.PacmanFigure;
 /**
  * Класс графического представления игры.
  * <p>
- * Реализует графическое представление модели игры. Является наблюдателем по
- * отношению к модели игры.
+ * Реализует графическое представление модели игры. Является получателем
+ * событий модели игры.
+ * <p>
+ * Неизменная в течение игры часть изображения - фон, стены и проходы -
+ * рисуется однажды для каждого игрового поля в отдельное изображение, которое
+ * копируется в каждый кадр. Поверх него в каждом кадре рисуются только еда,
+ * таблетки и игроки.
+ * <p>
+ * Кадр рисуется в буфер, который создаётся однажды и используется повторно,
+ * пока не изменится размер представления.
+ * <p>
+ * Модель накапливает изменившуюся область холста - клетки вокруг движущихся
+ * игроков и съеденной еды - и уведомляет о ней однажды; область забирается в
+ * потоке обработки событий Swing. Перерисовывается только эта область:
+ * рисование ограничено ею, а еда перебирается только в её клетках, поэтому
+ * стоимость кадра не зависит от размера игрового поля.
+ * <p>
+ * Кадр рисуется по одному неизменяемому снимку {@link FrameSnapshot}: вид не
+ * читает данные игроков и еды, которые в это время изменяет модель.
  */
-public class GameView extends JPanel implements Observer {
+public class GameView extends JPanel implements IModelListener {
     private static final String LOCALIZATION_FILE = "strings";
 
     private final ResourceBundle localization = ResourceBundle.getBundle(LOCALIZATION_FILE, Locale.getDefault());
@@ -44,6 +67,24 @@ public class GameView extends JPanel implements Observer {
     private final TreeMap<PlayerType, AbstractPlayerFigure> playersView = new TreeMap<PlayerType, AbstractPlayerFigure>();
     private final Map<CellContent, IDrawableContent> cellsView = new LinkedHashMap<CellContent, IDrawableContent>();
     private GameController myController;
+    
+    // Изображение стен и проходов и игровое поле, для которого оно нарисовано
+    private BufferedImage staticLayer;
+    private IGameField staticLayerMaze;
+    
+    // Буфер кадра
+    private BufferedImage backBuffer;
+
+    // Перерисовка накопленной моделью области, исполняется в потоке событий
+    private final Runnable redrawTask = new Runnable() {
+        @Override
+        public void run() {
+            Rectangle region = myModel.takeRedrawRegion();
+            if (region != null) {
+                repaint(region);
+            }
+        }
+    };
 
     /**
      * Создаёт новое графическое представление игры.
@@ -52,7 +93,9 @@ public class GameView extends JPanel implements Observer {
         addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
-                myController.handleMouseClick(e);
+                if (myController != null) {
+                    myController.handleMouseClick(e);
+                }
             }
         });
     }
@@ -77,6 +120,9 @@ public class GameView extends JPanel implements Observer {
         cellsView.put(CellContent.WALL, new Wall(mazeCellSize / 8));
         cellsView.put(CellContent.FOOD, new Food(mazeCellSize / 5));
         cellsView.put(CellContent.PILLET, new Food(mazeCellSize / 2));
+        
+        staticLayer = null;
+        staticLayerMaze = null;
     }
 
     /**
@@ -89,9 +135,9 @@ public class GameView extends JPanel implements Observer {
     }
 
     @Override
-    public void update(Observable o, Object arg) {
-        if (myModel.isRedrawRequired()) {
-            repaint();
+    public void modelChanged(ModelEvent event) {
+        if (event == ModelEvent.FRAME_DIRTY) {
+            EventQueue.invokeLater(redrawTask);
         }
     }
     
@@ -99,21 +145,32 @@ public class GameView extends JPanel implements Observer {
     
     @Override
     public void paintComponent(Graphics g) {
-        BufferedImage bi = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_ARGB);
+        BufferedImage bi = getBackBuffer();
+        Rectangle clip = new Rectangle(0, 0, bi.getWidth(), bi.getHeight());
+        Rectangle dirty = g.getClipBounds();
+        if (dirty != null) {
+            clip = clip.intersection(dirty);
+        }
+        if (clip.isEmpty()) {
+            return;
+        }
+        FrameSnapshot frame = myModel.getFrameSnapshot();
         Graphics2D g2d = bi.createGraphics();
+        g2d.setClip(clip);
+        g2d.setComposite(AlphaComposite.Clear);
+        g2d.fillRect(clip.x, clip.y, clip.width, clip.height);
+        g2d.setComposite(AlphaComposite.SrcOver);
         super.paintComponent(g2d);
         
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-        g2d.setPaint(Color.GRAY);
-        g2d.fillRect(0, 0, myModel.getGameCanvasDimension().width, myModel.getGameCanvasDimension().height);
-
-        drawWalls(g2d);
-        drawPlayers(g2d);
+        g2d.drawImage(getStaticLayer(frame.getMaze()), 0, 0, null);
+        drawFood(g2d, clip, frame);
+        drawPlayers(g2d, frame);
 
-        if (myModel.isGameLost() == true) {
+        if (frame.isGameLost() == true) {
             drawGameComplete(g2d, localization.getString("end.lost"));
-        } else if (myModel.isGameWon() == true) {
+        } else if (frame.isGameWon() == true) {
             drawGameComplete(g2d, localization.getString("end.victory"));
         }
 
@@ -122,28 +179,94 @@ public class GameView extends JPanel implements Observer {
     }
 
     /**
-     * Рисование стен.
+     * Возвращает буфер кадра размером с представление. Буфер создаётся заново
+     * только при изменении размера представления.
+     *
+     * @return буфер кадра
+     */
+    private BufferedImage getBackBuffer() {
+        int width = Math.max(1, getWidth());
+        int height = Math.max(1, getHeight());
+        if (backBuffer == null || backBuffer.getWidth() != width || backBuffer.getHeight() != height) {
+            backBuffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+        return backBuffer;
+    }
+
+    /**
+     * Возвращает изображение фона, стен и проходов игрового поля. Изображение
+     * рисуется заново, только если игровое поле модели сменилось (новая игра).
+     *
+     * @param maze игровое поле кадра
+     * @return изображение размером с холст игрового поля
      */
-    private void drawWalls(Graphics2D g2d) {
-        IGameField maze = myModel.getMaze();
-        // Цикл по каждой клетке
-        for (Point cell : maze.getCells()) {
-            for (CellContent content : maze.getCellContent(cell)) {
+    private BufferedImage getStaticLayer(IGameField maze) {
+        if (staticLayer == null || staticLayerMaze != maze) {
+            Dimension canvasSize = myModel.getGameCanvasDimension();
+            staticLayer = new BufferedImage(canvasSize.width, canvasSize.height, BufferedImage.TYPE_INT_ARGB);
+            staticLayerMaze = maze;
+            Graphics2D g2d = staticLayer.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setPaint(Color.GRAY);
+            g2d.fillRect(0, 0, canvasSize.width, canvasSize.height);
+            drawWalls(g2d, maze);
+            g2d.dispose();
+        }
+        return staticLayer;
+    }
+
+    /**
+     * Рисование стен и проходов.
+     */
+    private void drawWalls(Graphics2D g2d, IGameField maze) {
+        for (CellContent content : new CellContent[]{CellContent.PASSAGE, CellContent.WALL}) {
+            for (Point cell : maze.getCellsWith(content)) {
                 cellsView.get(content).drawContent(g2d, myModel, cell, mazeCellSize);
             }
         }
     }
 
+    /**
+     * Рисование еды и магических таблеток в заданной области: перебираются
+     * только клетки области.
+     *
+     * @param g2d графический контекст
+     * @param clip перерисовываемая область, в пикселах
+     * @param frame снимок кадра
+     */
+    private void drawFood(Graphics2D g2d, Rectangle clip, FrameSnapshot frame) {
+        Dimension canvasSize = myModel.getGameCanvasDimension();
+        int fromX = clip.x / mazeCellSize;
+        int fromY = clip.y / mazeCellSize;
+        int toX = Math.min(clip.x + clip.width, canvasSize.width) - 1;
+        int toY = Math.min(clip.y + clip.height, canvasSize.height) - 1;
+        IDrawableContent food = cellsView.get(CellContent.FOOD);
+        IDrawableContent pillet = cellsView.get(CellContent.PILLET);
+        Point cell = new Point();
+        for (int x = fromX; x <= toX / mazeCellSize; x++) {
+            for (int y = fromY; y <= toY / mazeCellSize; y++) {
+                cell.setLocation(x, y);
+                if (frame.hasFood(x, y)) {
+                    food.drawContent(g2d, myModel, cell, mazeCellSize);
+                }
+                if (frame.hasPillet(x, y)) {
+                    pillet.drawContent(g2d, myModel, cell, mazeCellSize);
+                }
+            }
+        }
+    }
+
     /**
      * Рисование фигур игроков.
      *
      * @param g2d графический контекст
+     * @param frame снимок кадра
      */
-    private void drawPlayers(Graphics2D g2d) {
+    private void drawPlayers(Graphics2D g2d, FrameSnapshot frame) {
         Iterator<PlayerType> it = playersView.navigableKeySet().iterator();
         while (it.hasNext()) {
             PlayerType currentType = it.next();
-            for (IAnimatedPlayer player : myModel.getPlayers()) {
+            for (IAnimatedPlayer player : frame.getPlayers()) {
                 if (player.getType() == currentType) {
                     playersView.get(currentType).drawPlayer(g2d, player);
                 }
@@ -3,10 +3,19 @@ package pacman.view.players;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
 import pacman.game.IAnimatedPlayer;
 
 /**
  * Обобщённая фигура игрока.
+ * <p>
+ * Фигура рисуется однажды для каждого сочетания цвета, направления и фазы
+ * анимации в отдельное изображение - спрайт; в кадре спрайт только
+ * копируется. Набор спрайтов хранится в фигуре, а фигуры создаются для
+ * каждого размера клетки заново.
  */
 public abstract class AbstractPlayerFigure {
     
@@ -16,6 +25,9 @@ public abstract class AbstractPlayerFigure {
     private final Color[] bodyColors = {
         Color.YELLOW, Color.RED, Color.BLUE, Color.MAGENTA, Color.CYAN};    // Цвета игроков
     private final Color confusedGhostColor = Color.WHITE;                   // Цвет контуженного привидения
+
+    private final int spriteMargin;                                         // Поля спрайта вокруг фигуры, в пикселах
+    private final Map<Long, BufferedImage> sprites = new HashMap<Long, BufferedImage>();
     
     /**
      * Создаёт новую фигуру игрока.
@@ -25,6 +37,7 @@ public abstract class AbstractPlayerFigure {
     public AbstractPlayerFigure(int cellSize) {
         this.cellSize = cellSize;
         playerSize = ((cellSize * 80 / 100) + 1) / 5 * 5;
+        spriteMargin = playerSize / 4 + 1;
     }
 
     /**
@@ -33,7 +46,75 @@ public abstract class AbstractPlayerFigure {
      * @param g2d графический контекст
      * @param myPlayer модель игрока
      */
-    public abstract void drawPlayer(Graphics2D g2d, IAnimatedPlayer myPlayer);
+    public void drawPlayer(Graphics2D g2d, IAnimatedPlayer myPlayer) {
+        Point figureCorner = getFigureCorner(myPlayer);
+        BufferedImage sprite = getSprite(getColorId(myPlayer), getDirection(myPlayer), getPhase(myPlayer));
+        g2d.drawImage(sprite, figureCorner.x - spriteMargin, figureCorner.y - spriteMargin, null);
+    }
+
+    /**
+     * Рисование фигуры игрока в заданном положении.
+     *
+     * @param g2d графический контекст
+     * @param x левая граница фигуры, в пикселах
+     * @param y верхняя граница фигуры, в пикселах
+     * @param color цвет игрока
+     * @param direction направление движения, в градусах
+     * @param phase фаза анимации
+     */
+    protected abstract void drawFigure(Graphics2D g2d, int x, int y, Color color, int direction, int phase);
+
+    /**
+     * Возвращает направление, которым определяется вид фигуры. По умолчанию
+     * вид фигуры от направления не зависит.
+     *
+     * @param myPlayer модель игрока
+     * @return направление движения, в градусах
+     */
+    protected int getDirection(IAnimatedPlayer myPlayer) {
+        return 0;
+    }
+
+    /**
+     * Возвращает фазу анимации фигуры. По умолчанию фигура не анимируется.
+     *
+     * @param myPlayer модель игрока
+     * @return фаза анимации, от 0 до 65535
+     */
+    protected int getPhase(IAnimatedPlayer myPlayer) {
+        return 0;
+    }
+
+    /**
+     * Возвращает спрайт фигуры, при первом обращении рисуя его.
+     */
+    private BufferedImage getSprite(Color color, int direction, int phase) {
+        Long key = ((long) color.getRGB() << 32) | ((long) (direction & 0xFFFF) << 16) | (phase & 0xFFFF);
+        BufferedImage sprite = sprites.get(key);
+        if (sprite == null) {
+            int spriteSize = playerSize + spriteMargin * 2;
+            sprite = new BufferedImage(spriteSize, spriteSize, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2d = sprite.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            drawFigure(g2d, spriteMargin, spriteMargin, color, direction, phase);
+            g2d.dispose();
+            sprites.put(key, sprite);
+        }
+        return sprite;
+    }
+
+    /**
+     * Возвращает левый верхний угол фигуры игрока с учётом анимации.
+     *
+     * @param myPlayer модель игрока
+     * @return координата угла фигуры в пикселах
+     */
+    protected Point getFigureCorner(IAnimatedPlayer myPlayer) {
+        Point figureCorner = getMiddleCoordinate(myPlayer.getLocation());
+        Point animationShift = myPlayer.getShiftVector();
+        figureCorner.translate(animationShift.x + (cellSize - playerSize) / 2, animationShift.y + (cellSize - playerSize) / 2);
+        return figureCorner;
+    }
 
     /**
      * Возвращает координаты центра заданной клетки игрового поля.
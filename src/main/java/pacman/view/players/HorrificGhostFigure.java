@@ -8,7 +8,6 @@ import java.awt.Point;
 import java.awt.geom.Area;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Rectangle2D;
-import pacman.game.IAnimatedPlayer;
 
 /**
  * Класс фигуры привидения.
@@ -30,13 +29,10 @@ public class HorrificGhostFigure extends AbstractPlayerFigure {
     }
     
     @Override
-    public void drawPlayer(Graphics2D g2d, IAnimatedPlayer myPlayer) {
-        g2d.setPaint(getColorId(myPlayer));
+    protected void drawFigure(Graphics2D g2d, int x, int y, Color color, int direction, int phase) {
+        g2d.setPaint(color);
         
-        Point animationCoordinates = getMiddleCoordinate(myPlayer.getLocation());
-        Point animationShift = myPlayer.getShiftVector();
-        Point figureCenter = new Point(animationCoordinates);
-        figureCenter.translate(animationShift.x + (cellSize-playerSize)/2, animationShift.y + (cellSize-playerSize)/2);
+        Point figureCenter = new Point(x, y);
         
         Paint tempColor = g2d.getPaint();
         Composite tmpC = g2d.getComposite();
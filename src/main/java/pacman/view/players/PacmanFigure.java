@@ -1,9 +1,8 @@
 package pacman.view.players;
 
+import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Paint;
-import java.awt.Point;
-import pacman.game.IAction;
 import pacman.game.IAnimatedPlayer;
 
 /**
@@ -23,23 +22,30 @@ public class PacmanFigure extends AbstractPlayerFigure {
     }
 
     @Override
-    public void drawPlayer(Graphics2D g2d, IAnimatedPlayer myPlayer) {
+    protected void drawFigure(Graphics2D g2d, int x, int y, Color color, int direction, int phase) {
         Paint tempColor = g2d.getPaint();
-        Point animationLocation = getMiddleCoordinate(myPlayer.getLocation());
-        Point animationShift = myPlayer.getShiftVector();
-        Point figureCenter = new Point(animationLocation);
-        figureCenter.translate(animationShift.x + (cellSize-playerSize)/2, animationShift.y + (cellSize-playerSize)/2);
-
-        g2d.setPaint(getColorId(myPlayer));
-        IAction action = myPlayer.getCurrentAction();
-        g2d.fillArc(figureCenter.x, figureCenter.y,
+        g2d.setPaint(color);
+        g2d.fillArc(x, y,
                 playerSize, playerSize,
-                action.getDirectionDegrees() + getPacmanMouthSize(myPlayer),
-                360 - getPacmanMouthSize(myPlayer) * 2);
+                direction + phase,
+                360 - phase * 2);
 
         g2d.setPaint(tempColor);
     }
 
+    @Override
+    protected int getDirection(IAnimatedPlayer myPlayer) {
+        return myPlayer.getCurrentAction().getDirectionDegrees();
+    }
+
+    /**
+     * Фаза анимации Пакмана - размер рта, в градусах.
+     */
+    @Override
+    protected int getPhase(IAnimatedPlayer myPlayer) {
+        return getPacmanMouthSize(myPlayer);
+    }
+
     /**
      * Рассчитывает размер рта Пакмана для создания красивой анимации.
      *
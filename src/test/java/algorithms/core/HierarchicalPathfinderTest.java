@@ -0,0 +1,160 @@
+package algorithms.core;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import algorithms.mocks.BasicGraphMock;
+import algorithms.mocks.ManualGraphMock;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ *
+ */
+public class HierarchicalPathfinderTest {
+
+    public HierarchicalPathfinderTest() {
+    }
+
+    @BeforeAll
+    public static void setUpClass() {
+        System.out.println("HierarchicalPathfinder:");
+    }
+
+    private enum TestActions {
+
+        NORTH(0, -1), WEST(-1, 0), SOUTH(0, 1), EAST(1, 0);
+
+        private final int dx;
+        private final int dy;
+
+        private TestActions(int dx, int dy) {
+            this.dx = dx;
+            this.dy = dy;
+        }
+    }
+
+    /*
+     * Тестовое поле, '#' - стена. При размере кластера 4 поле делится на
+     * шесть кластеров; правая часть поля отделена от левой стеной с одним
+     * проходом в клетке (6, 6).
+     */
+    private static final String[] FIELD = {
+        "...#..#.....",
+        ".#.#.##.###.",
+        ".#...##.....",
+        ".####.#.##.#",
+        "......#.#...",
+        ".##.#.#.#.#.",
+        ".#.......#..",
+        "...#.##.##..",
+    };
+
+    private static final Point PASSAGE = new Point(6, 6);
+
+    private final List<Point> cells = new ArrayList<Point>();
+
+    @BeforeEach
+    public void setUp() {
+        cells.clear();
+        for (int y = 0; y < FIELD.length; y++) {
+            for (int x = 0; x < FIELD[y].length(); x++) {
+                if (FIELD[y].charAt(x) == '.') {
+                    cells.add(new Point(x, y));
+                }
+            }
+        }
+    }
+
+    /**
+     * Тест путей по абстрактному графу.
+     *
+     * Путь существует тогда же, когда его находит поиск в ширину по клеткам,
+     * ведёт в цель и не короче кратчайшего.
+     */
+    @Test
+    public void testPaths() {
+        System.out.println("    - Тест путей по абстрактному графу");
+
+        HierarchicalPathfinder<TestActions> pathfinder = newPathfinder();
+        assertPaths(pathfinder, newState());
+    }
+
+    /**
+     * Тест изменения поля.
+     *
+     * После закрытия единственного прохода между частями поля пути между ними
+     * не существует; после открытия - снова существует.
+     */
+    @Test
+    public void testWallChange() {
+        System.out.println("    - Тест изменения поля");
+
+        HierarchicalPathfinder<TestActions> pathfinder = newPathfinder();
+        Point left = new Point(0, 0);
+        Point right = new Point(11, 0);
+        assertEquals(true, pathfinder.getSolution(left, right).size() > 0, "Путь должен существовать.");
+
+        pathfinder.setCellMovable(PASSAGE, false);
+        cells.remove(PASSAGE);
+        assertEquals(0, pathfinder.getSolution(left, right).size(), "Проход закрыт.");
+        assertPaths(pathfinder, newState());
+
+        pathfinder.setCellMovable(PASSAGE, true);
+        cells.add(PASSAGE);
+        assertEquals(true, pathfinder.getSolution(left, right).size() > 0, "Проход открыт.");
+        assertPaths(pathfinder, newState());
+    }
+
+    private HierarchicalPathfinder<TestActions> newPathfinder() {
+        return new HierarchicalPathfinder<TestActions>(new Dimension(FIELD[0].length(), FIELD.length),
+                cells, Arrays.asList(TestActions.values()), 4);
+    }
+
+    private BasicGraphMock<TestActions> newState() {
+        ManualGraphMock<TestActions, Point> graph = new ManualGraphMock<TestActions, Point>(cells.toArray(new Point[cells.size()]));
+        for (Point cell : cells) {
+            for (TestActions action : TestActions.values()) {
+                graph.addAction(cell, new Point(cell.x + action.dx, cell.y + action.dy), action);
+            }
+        }
+        return new BasicGraphMock<TestActions>(graph);
+    }
+
+    private void assertPaths(HierarchicalPathfinder<TestActions> pathfinder, BasicGraphMock<TestActions> state) {
+        BreadthFirstSearch<TestActions> bfs = new BreadthFirstSearch<TestActions>();
+        for (Point start : cells) {
+            for (Point goal : cells) {
+                Queue<TestActions> expected = bfs.getSolution(state, start, goal);
+                Queue<TestActions> solution = pathfinder.getSolution(start, goal);
+                String route = start + " -> " + goal;
+                assertEquals(expected.isEmpty(), solution.isEmpty(), "Неверное наличие пути " + route);
+                assertEquals(true, solution.size() >= expected.size(), "Путь короче кратчайшего " + route);
+                if (!solution.isEmpty()) {
+                    assertEquals(goal, walk(state, start, solution), "Путь не ведёт к цели " + route);
+                }
+            }
+        }
+    }
+
+    private Point walk(BasicGraphMock<TestActions> state, Point start, Queue<TestActions> actions) {
+        Point location = start;
+        for (TestActions action : actions) {
+            Point next = null;
+            for (Map.Entry<Point, TestActions> move : state.getLegalActionsAsMap(location).entrySet()) {
+                if (move.getValue() == action) {
+                    next = move.getKey();
+                }
+            }
+            assertEquals(true, next != null, "Недопустимое действие " + action + " из " + location);
+            location = next;
+        }
+        return location;
+    }
+}
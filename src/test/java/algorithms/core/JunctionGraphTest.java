@@ -0,0 +1,133 @@
+package algorithms.core;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import algorithms.mocks.BasicGraphMock;
+import algorithms.mocks.ManualGraphMock;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ *
+ */
+public class JunctionGraphTest {
+
+    public JunctionGraphTest() {
+    }
+
+    @BeforeAll
+    public static void setUpClass() {
+        System.out.println("JunctionGraph:");
+    }
+
+    private enum TestActions {
+
+        NORTH(0, -1), WEST(-1, 0), SOUTH(0, 1), EAST(1, 0);
+
+        private final int dx;
+        private final int dy;
+
+        private TestActions(int dx, int dy) {
+            this.dx = dx;
+            this.dy = dy;
+        }
+    }
+
+    /*
+     * Тестовое поле, '#' - стена: кольцо с ответвлением-тупиком и
+     * отдельное кольцо без развилок.
+     */
+    private static final String[] FIELD = {
+        "###########",
+        "#.....#...#",
+        "#.###.#.#.#",
+        "#.....#...#",
+        "###.#######",
+        "###.#######",
+    };
+
+    private final List<Point> cells = new ArrayList<Point>();
+    private BasicGraphMock<TestActions> state;
+
+    @BeforeEach
+    public void setUp() {
+        cells.clear();
+        for (int y = 0; y < FIELD.length; y++) {
+            for (int x = 0; x < FIELD[y].length(); x++) {
+                if (FIELD[y].charAt(x) == '.') {
+                    cells.add(new Point(x, y));
+                }
+            }
+        }
+        ManualGraphMock<TestActions, Point> graph = new ManualGraphMock<TestActions, Point>(cells.toArray(new Point[cells.size()]));
+        for (Point cell : cells) {
+            for (TestActions action : TestActions.values()) {
+                graph.addAction(cell, new Point(cell.x + action.dx, cell.y + action.dy), action);
+            }
+        }
+        state = new BasicGraphMock<TestActions>(graph);
+    }
+
+    /**
+     * Тест сжатия коридоров.
+     *
+     * Вершинами графа становятся развилка первого кольца, тупик ответвления и
+     * одна из клеток кольца без развилок. Из развилки выходят три коридора:
+     * кольцо в обе стороны и ответвление.
+     */
+    @Test
+    public void testCompression() {
+        System.out.println("    - Тест сжатия коридоров");
+
+        JunctionGraph<TestActions> junctions = new JunctionGraph<TestActions>(state, cells);
+
+        assertEquals(3, junctions.getNodesCount(), "Неверное количество развилок.");
+        assertEquals(3, junctions.getCorridors(new Point(3, 3)).size(), "Неверное количество коридоров развилки.");
+        assertEquals(0, junctions.getCorridors(new Point(2, 1)).size(), "Клетка коридора не может быть развилкой.");
+    }
+
+    /**
+     * Тест кратчайших путей.
+     *
+     * Для каждой пары клеток путь по графу развилок должен вести в цель и
+     * иметь ту же длину, что и путь поиска в ширину по клеткам.
+     */
+    @Test
+    public void testShortestPaths() {
+        System.out.println("    - Тест кратчайших путей");
+
+        JunctionGraph<TestActions> junctions = new JunctionGraph<TestActions>(state, cells);
+        BreadthFirstSearch<TestActions> bfs = new BreadthFirstSearch<TestActions>();
+
+        for (Point start : cells) {
+            for (Point goal : cells) {
+                Queue<TestActions> expected = bfs.getSolution(state, start, goal);
+                Queue<TestActions> solution = junctions.getSolution(start, goal);
+                assertEquals(expected.size(), solution.size(), "Неверная длина пути " + start + " -> " + goal);
+                if (!solution.isEmpty()) {
+                    assertEquals(goal, walk(start, solution), "Путь не ведёт к цели " + start + " -> " + goal);
+                }
+            }
+        }
+    }
+
+    private Point walk(Point start, Queue<TestActions> actions) {
+        Point location = start;
+        for (TestActions action : actions) {
+            Point next = null;
+            for (Map.Entry<Point, TestActions> move : state.getLegalActionsAsMap(location).entrySet()) {
+                if (move.getValue() == action) {
+                    next = move.getKey();
+                }
+            }
+            assertEquals(true, next != null, "Недопустимое действие " + action + " из " + location);
+            location = next;
+        }
+        return location;
+    }
+}
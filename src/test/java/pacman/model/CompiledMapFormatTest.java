@@ -0,0 +1,149 @@
+package pacman.model;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import pacman.game.IAction;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ *
+ */
+public class CompiledMapFormatTest {
+
+    private Path cacheDirectory;
+
+    public CompiledMapFormatTest() {
+    }
+
+    @BeforeAll
+    public static void setUpClass() {
+        System.out.println("CompiledMapFormat:");
+    }
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        cacheDirectory = Files.createTempDirectory("pacman-maps");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        for (File file : cacheDirectory.toFile().listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(cacheDirectory);
+    }
+
+    /*
+     * Симметричное поле 7x5: после отражения стен
+     *   #######
+     *   ##...##
+     *   #.###.#
+     *   #.....#
+     *   #######
+     * Верхний коридор не связан с нижним.
+     */
+    private GameFieldMap newMap() {
+        return new GameFieldMap(new Dimension(7, 5), 30,
+                new Point[]{new Point(1, 2), new Point(5, 2)},
+                new Point[]{new Point(1, 1), new Point(2, 2)},
+                new Point[]{new Point(3, 3)});
+    }
+
+    private List<Point> gameSpace() {
+        List<Point> cells = new ArrayList<Point>();
+        for (int y = 0; y < 5; y++) {
+            for (int x = 0; x < 7; x++) {
+                cells.add(new Point(x, y));
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Тест компиляции карты.
+     *
+     * Скомпилированная карта задаёт то же игровое поле, что и исходная;
+     * повторная компиляция читает карту из кэша.
+     */
+    @Test
+    public void testCompile() throws IOException {
+        System.out.println("    - Тест компиляции карты");
+
+        GameFieldMap map = newMap();
+        CompiledFieldMap compiled = CompiledMapFormat.compile(map, cacheDirectory);
+        assertEquals(CompiledMapFormat.hash(map), compiled.getContentHash());
+        assertEquals(map.getGameFieldSize(), compiled.getGameFieldSize());
+        assertEquals(map.getCellSize(), compiled.getCellSize());
+        assertEquals(Arrays.asList(map.getStartLocations()), Arrays.asList(compiled.getStartLocations()));
+        assertEquals(Arrays.asList(map.getPilletsLocations()), Arrays.asList(compiled.getPilletsLocations()));
+        assertEquals(false, compiled.isMirrored());
+
+        Maze expected = new Maze(map, gameSpace(), map.isMirrored());
+        Maze actual = new Maze(compiled, gameSpace(), compiled.isMirrored());
+        Maze shared = new Maze(compiled, compiled.getCompiledMaze());
+        for (int y = 0; y < 5; y++) {
+            for (int x = 0; x < 7; x++) {
+                Point cell = new Point(x, y);
+                assertEquals(expected.isCellMovable(cell), actual.isCellMovable(cell), "Клетка " + cell);
+                assertEquals(expected.getCellContent(cell), shared.getCellContent(cell), "Клетка " + cell);
+            }
+        }
+        assertEquals(expected.getFood(), actual.getFood());
+        assertEquals(expected.getFood(), shared.getFood());
+        assertEquals(expected.getPillets(), shared.getPillets());
+        assertEquals(new HashSet<Point>(Arrays.asList(new Point(2, 1), new Point(4, 1), new Point(1, 2), new Point(5, 2))),
+                new HashSet<Point>(Arrays.asList(compiled.getJunctions())));
+
+        CompiledFieldMap cached = CompiledMapFormat.compile(newMap(), cacheDirectory);
+        assertEquals(compiled.getContentHash(), cached.getContentHash());
+        assertEquals(1, cacheDirectory.toFile().listFiles().length, "Карта должна компилироваться однажды.");
+    }
+
+    /**
+     * Тест таблицы расстояний.
+     */
+    @Test
+    public void testDistances() throws IOException {
+        System.out.println("    - Тест таблицы расстояний");
+
+        CompiledFieldMap compiled = CompiledMapFormat.compile(newMap(), cacheDirectory);
+        assertEquals(true, compiled.hasDistances());
+        assertEquals(0, compiled.getDistance(new Point(1, 2), new Point(1, 2)));
+        assertEquals(6, compiled.getDistance(new Point(1, 2), new Point(5, 2)));
+        assertEquals(2, compiled.getDistance(new Point(2, 1), new Point(4, 1)));
+        assertEquals(-1, compiled.getDistance(new Point(2, 1), new Point(1, 2)), "Коридоры не связаны.");
+        assertEquals(-1, compiled.getDistance(new Point(0, 0), new Point(1, 2)), "Стена.");
+    }
+
+    /**
+     * Тест поиска пути по таблице расстояний.
+     *
+     * Путь прокладывается по нижнему коридору; в несвязанный коридор пути
+     * нет.
+     */
+    @Test
+    public void testDistanceTableSearch() throws IOException {
+        System.out.println("    - Тест поиска пути по таблице расстояний");
+
+        CompiledFieldMap compiled = CompiledMapFormat.compile(newMap(), cacheDirectory);
+        DistanceTableSearch search = new DistanceTableSearch(compiled, compiled.getCompiledMaze());
+        Point start = new Point(1, 2);
+        Queue<IAction> path = search.getSolution(null, start, new Point(5, 2), 0);
+        assertEquals(6, path.size());
+        assertEquals(new Point(5, 2), NonstopAction.getLocationAfterSequence(start, path));
+        assertEquals(0, search.getSolution(null, start, new Point(2, 1), 0).size(), "Коридоры не связаны.");
+        assertEquals(0, search.getSolution(null, start, start, 0).size());
+    }
+}
@@ -0,0 +1,126 @@
+package pacman.model;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import pacman.game.IAction;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ *
+ */
+public class CompiledMazeTest {
+
+    public CompiledMazeTest() {
+    }
+
+    @BeforeAll
+    public static void setUpClass() {
+        System.out.println("CompiledMaze:");
+    }
+
+    /**
+     * Тест допустимых действий.
+     *
+     * Состояние игры на скомпилированном поле возвращает те же допустимые
+     * действия в том же порядке, что и на поле {@link Maze}.
+     */
+    @Test
+    public void testLegalActions() {
+        System.out.println("    - Тест допустимых действий");
+
+        MazeGenerator generator = new MazeGenerator(new Dimension(21, 15), 3);
+        generator.setLoopsRatio(0.5);
+        GameFieldMap map = generator.generate();
+        List<IAction> actions = NonstopAction.getPossibleActions();
+        CompiledMaze compiled = new CompiledMaze(map, actions);
+        List<Point> cells = new ArrayList<Point>();
+        for (int x = 0; x < 21; x++) {
+            for (int y = 0; y < 15; y++) {
+                cells.add(new Point(x, y));
+            }
+        }
+        Maze maze = new Maze(map, cells, map.isMirrored());
+        GameState<IAction> expected = new GameState<IAction>(maze, 1, map.getStartLocations(), 0,
+                maze.getFood(), maze.getPillets(), actions);
+        GameState<IAction> actual = new GameState<IAction>(compiled, 1, map.getStartLocations(), 0,
+                maze.getFood(), maze.getPillets(), actions);
+
+        for (Point cell : cells) {
+            assertEquals(maze.isCellMovable(cell), compiled.isCellMovable(cell), "Клетка " + cell);
+            assertEquals(expected.getLegalActionsAsMap(cell), actual.getLegalActionsAsMap(cell), "Клетка " + cell);
+            assertEquals(expected.getLegalActionsAsMapNoKins(cell, 0), actual.getLegalActionsAsMapNoKins(cell, 0),
+                    "Клетка " + cell);
+        }
+        assertEquals(expected.getLegalActions(0), actual.getLegalActions(0));
+        assertEquals(expected.getLegalActions(1), actual.getLegalActions(1));
+    }
+
+    /**
+     * Тест перехода по действию.
+     *
+     * Переход возвращает единственный объект проходимой клетки поля, для
+     * стены, клетки за пределами поля и неизвестного действия - отсутствие
+     * клетки; состояние игры на поле без таблицы переходов создаёт равную
+     * клетку.
+     */
+    @Test
+    public void testCellAfterAction() {
+        System.out.println("    - Тест перехода по действию");
+
+        GameFieldMap map = new MazeGenerator(new Dimension(21, 15), 5).generate();
+        List<IAction> actions = NonstopAction.getPossibleActions();
+        CompiledMaze compiled = new CompiledMaze(map, actions);
+        for (int y = 0; y < 15; y++) {
+            for (int x = 0; x < 21; x++) {
+                Point cell = new Point(x, y);
+                for (IAction action : actions) {
+                    Point expected = action.getLocationAfterAction(cell);
+                    Point actual = compiled.getCellAfterAction(cell, action);
+                    if (compiled.isCellMovable(cell) && compiled.isCellMovable(expected)) {
+                        assertEquals(true, actual == compiled.getCell(expected.x, expected.y),
+                                "Не клетка поля: " + cell + " " + action);
+                    } else if (!compiled.isCellMovable(expected)) {
+                        assertEquals(null, actual, "Переход в стену: " + cell + " " + action);
+                    }
+                }
+            }
+        }
+        assertEquals(null, compiled.getCell(0, 0), "Объект клетки стены.");
+        assertEquals(null, compiled.getCellAfterAction(new Point(-1, 3), NonstopAction.EASTWARD),
+                "Переход из клетки за пределами поля.");
+        assertEquals(null, compiled.getCellAfterAction(new Point(21, 3), NonstopAction.WESTWARD),
+                "Переход из клетки за пределами поля.");
+        assertEquals(null, compiled.getCellAfterAction(map.getStartLocations()[0], null), "Переход без действия.");
+
+        // Ход игрока в состоянии игры
+        Point start = map.getStartLocations()[0];
+        IAction action = null;
+        for (IAction candidate : actions) {
+            if (compiled.getCellAfterAction(start, candidate) != null) {
+                action = candidate;
+            }
+        }
+        GameState<IAction> state = new GameState<IAction>(compiled, 0, new Point[]{start}, 0,
+                new ArrayList<Point>(), new ArrayList<Point>(), actions);
+        GameState<IAction> moved = state.getSuccessorState(0, action);
+        assertEquals(true, moved.getPlayerLocation(0) == compiled.getCellAfterAction(start, action),
+                "Игрок должен перейти в клетку поля.");
+
+        List<Point> cells = new ArrayList<Point>();
+        for (int x = 0; x < 21; x++) {
+            for (int y = 0; y < 15; y++) {
+                cells.add(new Point(x, y));
+            }
+        }
+        Maze maze = new Maze(map, cells, map.isMirrored());
+        GameState<IAction> fallback = new GameState<IAction>(maze, 0, new Point[]{start}, 0,
+                new ArrayList<Point>(), new ArrayList<Point>(), actions);
+        assertEquals(action.getLocationAfterAction(start), fallback.getSuccessorState(0, action).getPlayerLocation(0),
+                "Неверная клетка после действия.");
+    }
+}
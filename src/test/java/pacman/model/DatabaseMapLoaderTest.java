@@ -0,0 +1,134 @@
+package pacman.model;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ *
+ */
+public class DatabaseMapLoaderTest {
+
+    private Connection connection;
+
+    public DatabaseMapLoaderTest() {
+    }
+
+    @BeforeAll
+    public static void setUpClass() {
+        System.out.println("DatabaseMapLoader:");
+    }
+
+    /*
+     * Встроенная база данных в памяти с двумя картами: 1 - поле 5x4 с двумя
+     * игроками, стенами левой половины и таблеткой, 2 - поле 3x3 с одним
+     * игроком.
+     */
+    @BeforeEach
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE game_field_maps(id INT PRIMARY KEY, field_width INT, field_height INT, cell_size INT)");
+            statement.execute("CREATE TABLE players_start(map_id INT, player_index INT, cell_x INT, cell_y INT)");
+            statement.execute("CREATE TABLE map_walls(map_id INT, cell_x INT, cell_y INT)");
+            statement.execute("CREATE TABLE map_pillets(map_id INT, cell_x INT, cell_y INT)");
+            statement.execute("INSERT INTO game_field_maps VALUES (1, 5, 4, 30), (2, 3, 3, 45)");
+            statement.execute("INSERT INTO players_start VALUES (1, 1, 3, 1), (1, 0, 1, 2), (2, 0, 1, 1)");
+            statement.execute("INSERT INTO map_walls VALUES (1, 0, 1), (1, 2, 1), (1, 2, 2)");
+            statement.execute("INSERT INTO map_pillets VALUES (1, 3, 2)");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    /**
+     * Тест чтения карты.
+     *
+     * Стены левой половины поля отражаются в правую.
+     */
+    @Test
+    public void testLoad() throws SQLException {
+        System.out.println("    - Тест чтения карты");
+
+        try (DatabaseMapLoader loader = new DatabaseMapLoader(connection)) {
+            GameFieldMap map = loader.load(1);
+            assertEquals(new Dimension(5, 4), map.getGameFieldSize(), "Неверный размер поля.");
+            assertEquals(30, map.getCellSize(), "Неверный размер клетки.");
+            assertEquals(Arrays.asList(new Point(1, 2), new Point(3, 1)), Arrays.asList(map.getStartLocations()),
+                    "Неверный порядок исходных расположений.");
+            assertEquals(new HashSet<Point>(Arrays.asList(new Point(0, 1), new Point(2, 1), new Point(2, 2))),
+                    new HashSet<Point>(Arrays.asList(map.getWallsLocations())), "Неверные стены.");
+            assertEquals(Arrays.asList(new Point(3, 2)), Arrays.asList(map.getPilletsLocations()), "Неверные таблетки.");
+            assertEquals(true, map.isMirrored(), "Стены карты из базы данных должны отражаться.");
+            assertEquals(false, map.getCompiledMaze().isCellMovable(new Point(4, 1)), "Нет отражённой стены.");
+            assertEquals(true, map.getCompiledMaze().isCellMovable(new Point(3, 1)), "Лишняя стена.");
+
+            boolean notFound = false;
+            try {
+                loader.load(3);
+            } catch (IllegalArgumentException ex) {
+                notFound = true;
+            }
+            assertEquals(true, notFound, "Отсутствующая карта должна вызывать исключение.");
+        }
+    }
+
+    /**
+     * Тест кэша карт.
+     *
+     * Повторная загрузка карты не обращается к базе данных; при переполнении
+     * кэша вытесняется карта, запрошенная раньше остальных.
+     */
+    @Test
+    public void testCache() throws SQLException {
+        System.out.println("    - Тест кэша карт");
+
+        try (DatabaseMapLoader loader = new DatabaseMapLoader(connection, 1)) {
+            GameFieldMap first = loader.load(1);
+            assertEquals(first, loader.load(1), "Карта должна браться из кэша.");
+            assertEquals(1, loader.getDatabaseLoads(), "Лишнее обращение к базе данных.");
+
+            loader.load(2);
+            assertEquals(2, loader.getDatabaseLoads(), "Карта 2 не в кэше.");
+            loader.load(1);
+            assertEquals(3, loader.getDatabaseLoads(), "Карта 1 должна быть вытеснена.");
+        }
+    }
+
+    /**
+     * Тест общего загрузчика соединения.
+     *
+     * Карты, создаваемые по одному соединению, загружаются одним загрузчиком:
+     * повторная загрузка карты не обращается к базе данных. Закрытый загрузчик
+     * заменяется новым.
+     */
+    @Test
+    public void testSharedLoader() throws SQLException {
+        System.out.println("    - Тест общего загрузчика соединения");
+
+        DatabaseMapLoader loader = DatabaseMapLoader.forConnection(connection);
+        assertEquals(loader, DatabaseMapLoader.forConnection(connection), "Загрузчик соединения должен быть общим.");
+        assertEquals(new Dimension(5, 4), new DatabaseFieldMap(connection, 1).getGameFieldSize(),
+                "Неверный размер поля.");
+        assertEquals(new Dimension(5, 4), new DatabaseFieldMap(connection, 1).getGameFieldSize(),
+                "Неверный размер поля.");
+        assertEquals(1, loader.getDatabaseLoads(), "Лишнее обращение к базе данных.");
+
+        loader.close();
+        DatabaseMapLoader reopened = DatabaseMapLoader.forConnection(connection);
+        assertEquals(false, loader == reopened, "Закрытый загрузчик не должен быть общим.");
+        reopened.close();
+    }
+}
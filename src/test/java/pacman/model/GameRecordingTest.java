@@ -0,0 +1,166 @@
+package pacman.model;
+
+import algorithms.core.Reflex;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import pacman.game.IAction;
+import pacman.launch.GameAssembler;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ *
+ */
+public class GameRecordingTest {
+
+    private static final long SEED = 0x5eedL;
+
+    private Path recordDirectory;
+    private GameRecorder recorder;
+
+    public GameRecordingTest() {
+    }
+
+    @BeforeAll
+    public static void setUpClass() {
+        System.out.println("GameRecording:");
+    }
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        recordDirectory = Files.createTempDirectory("pacman-records");
+        recorder = new GameRecorder(recordDirectory, "test-", "reflex");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        for (File file : recordDirectory.toFile().listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(recordDirectory);
+    }
+
+    /*
+     * Записывает игру агента Reflex против двух привидений на стандартной карте.
+     */
+    private HeadlessGameModel playRecordedGame() {
+        HeadlessGameModel model = new HeadlessGameModel(GameAssembler.createDefaultMap(45), new Reflex<IAction>(), 500);
+        model.setGhostsNumber(2);
+        model.setGameSeed(SEED);
+        model.setGameRecorder(recorder);
+        model.reinitializeGame();
+        model.run();
+        return model;
+    }
+
+    /**
+     * Тест записи и воспроизведения игры.
+     *
+     * Воспроизведение записанных действий даёт после каждого тура записанный
+     * хэш состояния, итоговое состояние совпадает с состоянием модели игры.
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        System.out.println("    - Тест записи и воспроизведения игры");
+
+        HeadlessGameModel model = playRecordedGame();
+        GameRecording recording = GameRecording.read(recorder.getRecordFile());
+        assertEquals(SEED, recording.getSeed(), "Неверное начальное значение.");
+        assertEquals("reflex", recording.getAgentName(), "Неверное имя агента.");
+        assertEquals(3, recording.getPlayersNumber(), "Неверное количество игроков.");
+        assertEquals(model.getTurnsPlayed(), recording.getFinishedTurns(), "Неверное количество туров.");
+        assertEquals(model.isGameWon(), recording.isWon(), "Неверный исход игры.");
+        assertEquals(model.isGameLost(), recording.isLost(), "Неверный исход игры.");
+        assertEquals(model.getGameScore(), recording.getScore(), "Неверный счёт игры.");
+
+        GameReplay replay = new GameReplay(recording);
+        for (int turn = 0; turn < recording.getTurnsCount(); turn++) {
+            replay.step();
+            assertEquals(recording.getStateHash(turn), replay.getGameState().getStateHash(),
+                    "Расхождение в туре " + turn);
+        }
+        assertEquals(model.getStateHash(), replay.getGameState().getStateHash(), "Неверное итоговое состояние.");
+    }
+
+    /**
+     * Тест перехода к туру.
+     *
+     * Переход к туру через опорный кадр даёт то же состояние, что и
+     * последовательное воспроизведение.
+     */
+    @Test
+    public void testSeek() throws IOException {
+        System.out.println("    - Тест перехода к туру");
+
+        playRecordedGame();
+        GameRecording recording = GameRecording.read(recorder.getRecordFile());
+        GameReplay replay = new GameReplay(recording, 4);
+        for (int turn = recording.getTurnsCount(); turn > 0; turn -= 3) {
+            replay.seek(turn);
+            assertEquals(turn, replay.getCurrentTurn(), "Неверный текущий тур.");
+            assertEquals(recording.getStateHash(turn - 1), replay.getGameState().getStateHash(),
+                    "Расхождение после перехода к туру " + turn);
+        }
+    }
+
+    /**
+     * Тест имён файлов записей.
+     *
+     * Имя файла составляется из префикса, хэша карты и начального значения;
+     * повторная игра с тем же начальным значением записывается в новый файл,
+     * не перезаписывая прежний.
+     */
+    @Test
+    public void testFileNames() throws IOException {
+        System.out.println("    - Тест имён файлов записей");
+
+        HeadlessGameModel model = playRecordedGame();
+        Path first = recorder.getRecordFile();
+        String name = "test-" + CompiledMapFormat.hash(model.gameFieldMap).substring(0, 8) + String.format("-%016x", SEED);
+        assertEquals(name + ".pmr", first.getFileName().toString(), "Неверное имя файла записи.");
+        long size = Files.size(first);
+
+        model.reinitializeGame();
+        model.run();
+        Path second = recorder.getRecordFile();
+        assertEquals(name + "-1.pmr", second.getFileName().toString(), "Неверное имя повторной записи.");
+        assertEquals(size, Files.size(first), "Прежняя запись перезаписана.");
+        assertEquals(recordDirectory, first.getParent(), "Запись вне каталога записей.");
+    }
+
+    /**
+     * Тест ограничения количества игроков.
+     *
+     * Маски игроков записи - 32-битные: игра с большим количеством игроков
+     * не записывается, действие и контузия последнего из 32 игроков
+     * читаются без потерь.
+     */
+    @Test
+    public void testPlayersLimit() throws IOException {
+        System.out.println("    - Тест ограничения количества игроков");
+
+        HeadlessGameModel model = new HeadlessGameModel(GameAssembler.createDefaultMap(45), new Reflex<IAction>(), 500);
+        boolean rejected = false;
+        try {
+            recorder.beginGame(model.gameFieldMap, GameRecordFormat.MAX_PLAYERS + 1, 0, SEED, model.getPossibleActions());
+        } catch (IllegalArgumentException ex) {
+            rejected = true;
+        }
+        assertEquals(true, rejected, "Игра с 33 игроками должна отклоняться.");
+        assertEquals(null, recorder.getRecordFile(), "Файл записи не должен создаваться.");
+
+        recorder.beginGame(model.gameFieldMap, GameRecordFormat.MAX_PLAYERS, 0, SEED, model.getPossibleActions());
+        recorder.recordAction(GameRecordFormat.MAX_PLAYERS - 1, model.getPossibleActions().get(2));
+        recorder.recordGhostConfused(GameRecordFormat.MAX_PLAYERS - 1);
+        recorder.finishGame(false, false, 0, 0);
+        GameRecording recording = GameRecording.read(recorder.getRecordFile());
+        assertEquals(GameRecordFormat.MAX_PLAYERS, recording.getPlayersNumber(), "Неверное количество игроков.");
+        assertEquals(2, recording.getDirection(0, GameRecordFormat.MAX_PLAYERS - 1), "Неверное действие игрока 31.");
+        assertEquals(-1, recording.getDirection(0, 0), "Лишнее действие игрока 0.");
+        assertEquals(1 << 31, recording.getConfusionMask(0), "Неверная маска контузии.");
+    }
+}
@@ -0,0 +1,76 @@
+package pacman.model;
+
+import algorithms.core.Reflex;
+import java.util.ArrayList;
+import java.util.List;
+import pacman.game.IAction;
+import pacman.game.IAnimatedPlayer;
+import pacman.launch.GameAssembler;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ *
+ */
+public class HeadlessGameModelTest {
+
+    private static final long SEED = 0x5eedL;
+
+    public HeadlessGameModelTest() {
+    }
+
+    @BeforeAll
+    public static void setUpClass() {
+        System.out.println("HeadlessGameModel:");
+    }
+
+    /*
+     * Играет игру агента Reflex против двух привидений на стандартной карте и
+     * возвращает хэши состояния после каждого тура. В confusedTurns[0]
+     * накапливается количество туров с контуженными привидениями.
+     */
+    private List<Integer> playGame(long seed, final int[] confusedTurns) {
+        final List<Integer> hashes = new ArrayList<Integer>();
+        HeadlessGameModel model = new HeadlessGameModel(GameAssembler.createDefaultMap(45), new Reflex<IAction>(), 500) {
+            @Override
+            protected void performTurnFinished() {
+                super.performTurnFinished();
+                hashes.add(getStateHash());
+                for (Player player : players) {
+                    if (player.getType() == IAnimatedPlayer.PlayerType.CONFUSED_GHOST) {
+                        confusedTurns[0]++;
+                        break;
+                    }
+                }
+            }
+        };
+        model.setGhostsNumber(2);
+        model.setGameSeed(seed);
+        model.reinitializeGame();
+        model.run();
+        return hashes;
+    }
+
+    /**
+     * Тест воспроизводимости игры.
+     *
+     * Две игры с одним начальным значением дают после каждого тура одни и те
+     * же хэши состояния, в том числе в турах со случайными ходами
+     * контуженных привидений.
+     */
+    @Test
+    public void testSeededGame() {
+        System.out.println("    - Тест воспроизводимости игры");
+
+        int[] confusedTurns = new int[1];
+        List<Integer> first = playGame(SEED, confusedTurns);
+        assertEquals(true, confusedTurns[0] > 0, "В игре нет контуженных привидений.");
+        List<Integer> second = playGame(SEED, new int[1]);
+        assertEquals(first.size(), second.size(), "Различается количество туров.");
+        for (int turn = 0; turn < first.size(); turn++) {
+            assertEquals(first.get(turn), second.get(turn), "Расхождение в туре " + turn);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package pacman.model;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ *
+ */
+public class MazeGeneratorTest {
+
+    public MazeGeneratorTest() {
+    }
+
+    @BeforeAll
+    public static void setUpClass() {
+        System.out.println("MazeGenerator:");
+    }
+
+    private GridFieldMap generate(int width, int height, long seed, double density, double loops) {
+        MazeGenerator generator = new MazeGenerator(new Dimension(width, height), seed);
+        generator.setCorridorDensity(density);
+        generator.setLoopsRatio(loops);
+        return generator.generate();
+    }
+
+    private BitSet walls(GridFieldMap map) {
+        Dimension size = map.getGameFieldSize();
+        BitSet walls = new BitSet(size.width * size.height);
+        for (int y = 0; y < size.height; y++) {
+            for (int x = 0; x < size.width; x++) {
+                if (map.isWall(x, y)) {
+                    walls.set(y * size.width + x);
+                }
+            }
+        }
+        return walls;
+    }
+
+    /**
+     * Тест воспроизводимости.
+     *
+     * Одно и то же начальное значение и одни и те же параметры дают одну и ту
+     * же карту, другое начальное значение - другую.
+     */
+    @Test
+    public void testDeterminism() {
+        System.out.println("    - Тест воспроизводимости");
+
+        GridFieldMap first = generate(63, 41, 7, 1.0, 0.1);
+        GridFieldMap second = generate(63, 41, 7, 1.0, 0.1);
+        assertEquals(walls(first), walls(second), "Стены различаются при одном начальном значении.");
+        assertEquals(Arrays.asList(first.getStartLocations()), Arrays.asList(second.getStartLocations()),
+                "Исходные расположения различаются при одном начальном значении.");
+        assertEquals(Arrays.asList(first.getPilletsLocations()), Arrays.asList(second.getPilletsLocations()),
+                "Таблетки различаются при одном начальном значении.");
+
+        GridFieldMap other = generate(63, 41, 8, 1.0, 0.1);
+        assertEquals(false, walls(first).equals(walls(other)), "Стены совпадают при разных начальных значениях.");
+    }
+
+    /**
+     * Тест связности.
+     *
+     * Все проходимые клетки достижимы из исходного расположения Пакмана,
+     * клетки периметра - стены, игроки и таблетки расположены в различных
+     * проходимых клетках.
+     */
+    @Test
+    public void testReachability() {
+        System.out.println("    - Тест связности");
+
+        int[][] sizes = {{9, 9}, {21, 21}, {64, 33}, {101, 57}};
+        double[] densities = {1.0, 0.5};
+        double[] loops = {0.0, 0.3};
+        for (int[] size : sizes) {
+            for (double density : densities) {
+                for (double loop : loops) {
+                    GridFieldMap map = generate(size[0], size[1], size[0] * 31 + size[1], density, loop);
+                    String name = size[0] + "x" + size[1] + ", плотность " + density + ", циклы " + loop;
+                    checkReachability(map, name);
+                }
+            }
+        }
+    }
+
+    private void checkReachability(GridFieldMap map, String name) {
+        Dimension size = map.getGameFieldSize();
+        int width = size.width;
+        BitSet walls = walls(map);
+        for (int x = 0; x < width; x++) {
+            assertEquals(true, walls.get(x) && walls.get((size.height - 1) * width + x), "Нет стены периметра: " + name);
+        }
+        for (int y = 0; y < size.height; y++) {
+            assertEquals(true, walls.get(y * width) && walls.get(y * width + width - 1), "Нет стены периметра: " + name);
+        }
+
+        Set<Point> placed = new HashSet<Point>();
+        for (Point cell : map.getStartLocations()) {
+            assertEquals(false, map.isWall(cell.x, cell.y), "Игрок в стене: " + name);
+            placed.add(cell);
+        }
+        for (Point cell : map.getPilletsLocations()) {
+            assertEquals(false, map.isWall(cell.x, cell.y), "Таблетка в стене: " + name);
+            placed.add(cell);
+        }
+        assertEquals(map.getStartLocations().length + map.getPilletsLocations().length, placed.size(),
+                "Игроки и таблетки в одной клетке: " + name);
+
+        // Поиск в ширину из исходного расположения Пакмана
+        Point start = map.getStartLocations()[0];
+        BitSet reached = new BitSet(width * size.height);
+        Queue<Integer> queue = new ArrayDeque<Integer>();
+        reached.set(start.y * width + start.x);
+        queue.add(start.y * width + start.x);
+        int[] steps = {-width, -1, width, 1};
+        while (!queue.isEmpty()) {
+            int cell = queue.poll();
+            for (int step : steps) {
+                int next = cell + step;
+                if (!walls.get(next) && !reached.get(next)) {
+                    reached.set(next);
+                    queue.add(next);
+                }
+            }
+        }
+        BitSet open = (BitSet) walls.clone();
+        open.flip(0, width * size.height);
+        assertEquals(open, reached, "Недостижимые проходимые клетки: " + name);
+    }
+}
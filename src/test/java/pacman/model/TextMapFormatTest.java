@@ -0,0 +1,166 @@
+package pacman.model;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ *
+ */
+public class TextMapFormatTest {
+
+    /*
+     * Поле 7x5 с Пакманом, двумя привидениями и двумя таблетками.
+     */
+    private static final String MAP
+            = "#######\n"
+            + "#0.o.1#\n"
+            + "#.#.#.#\n"
+            + "#o..2.#\n"
+            + "#######\n";
+
+    private Path file;
+
+    public TextMapFormatTest() {
+    }
+
+    @BeforeAll
+    public static void setUpClass() {
+        System.out.println("TextMapFormat:");
+    }
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = Files.createTempFile("pacman-map", ".txt");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private static GridFieldMap parse(String text) {
+        return TextMapFormat.parse(ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII)), 30);
+    }
+
+    /**
+     * Тест разбора карты.
+     *
+     * Символы клеток разбираются в стены, исходные расположения в порядке
+     * номеров и таблетки; разделитель строк <code>\r\n</code> и пустые
+     * строки в конце не влияют на результат.
+     */
+    @Test
+    public void testParse() {
+        System.out.println("    - Тест разбора карты");
+
+        GridFieldMap map = parse(MAP);
+        assertEquals(new Dimension(7, 5), map.getGameFieldSize(), "Неверный размер поля.");
+        assertEquals(30, map.getCellSize(), "Неверный размер клетки.");
+        assertEquals(Arrays.asList(new Point(1, 1), new Point(5, 1), new Point(4, 3)),
+                Arrays.asList(map.getStartLocations()), "Неверные исходные расположения.");
+        assertEquals(new HashSet<Point>(Arrays.asList(new Point(3, 1), new Point(1, 3))),
+                new HashSet<Point>(Arrays.asList(map.getPilletsLocations())), "Неверные таблетки.");
+        assertEquals(true, map.isWall(2, 2), "Нет стены.");
+        assertEquals(false, map.isWall(3, 2), "Лишняя стена.");
+        assertEquals(false, map.isMirrored(), "Стены текстовой карты не отражаются.");
+
+        GridFieldMap windows = parse(MAP.replace("\n", "\r\n") + "\r\n\n");
+        assertEquals(CompiledMapFormat.hash(map), CompiledMapFormat.hash(windows),
+                "Разделители строк изменили карту.");
+        assertEquals(CompiledMapFormat.hash(map), CompiledMapFormat.hash(parse(MAP.replace('.', ' '))),
+                "Пробел должен быть проходом.");
+    }
+
+    /**
+     * Тест записи и повторного чтения карты.
+     *
+     * Записанная карта читается в ту же карту и записывается в тот же текст;
+     * стены симметричной карты записываются отражёнными.
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        System.out.println("    - Тест записи и повторного чтения карты");
+
+        GridFieldMap map = parse(MAP);
+        TextMapFormat.write(map, file);
+        assertEquals(MAP, new String(Files.readAllBytes(file), StandardCharsets.US_ASCII), "Неверный текст карты.");
+        GridFieldMap read = TextMapFormat.read(file, 30);
+        assertEquals(CompiledMapFormat.hash(map), CompiledMapFormat.hash(read), "Карта изменилась при записи.");
+
+        GameFieldMap mirrored = new GameFieldMap(new Dimension(7, 5), 30,
+                new Point[]{new Point(1, 2), new Point(5, 2)},
+                new Point[]{new Point(1, 1), new Point(2, 2)},
+                new Point[]{new Point(3, 3)});
+        TextMapFormat.write(mirrored, file);
+        assertEquals("#######\n"
+                + "##...##\n"
+                + "#0###1#\n"
+                + "#..o..#\n"
+                + "#######\n", new String(Files.readAllBytes(file), StandardCharsets.US_ASCII),
+                "Неверный текст симметричной карты.");
+        assertEquals(CompiledMapFormat.hash(mirrored), CompiledMapFormat.hash(TextMapFormat.read(file, 30)),
+                "Симметричная карта изменилась при записи.");
+    }
+
+    /**
+     * Тест неверных карт.
+     *
+     * Неверное содержимое вызывает исключение с описанием ошибки, при чтении
+     * из файла - исключение ввода-вывода с именем файла.
+     */
+    @Test
+    public void testMalformed() throws IOException {
+        System.out.println("    - Тест неверных карт");
+
+        assertMalformed("#######\n#0....#\n#.....\n#######\n", "строка 3 длиной 6 вместо 7");
+        assertMalformed("#######\n#0....#\n#######\n#####\n", "строка 4 длиной 5 вместо 7");
+        assertMalformed("#######\n#0.x..#\n#######\n", "недопустимый символ 'x' в строке 2");
+        assertMalformed("#######\n#0..0.#\n#######\n", "повторное расположение игрока 0");
+        assertMalformed("#######\n#0..2.#\n#######\n", "пропущено расположение игрока 1");
+        assertMalformed("###\n#0#\n", "игровое поле меньше 3x3");
+        assertMalformed("", "игровое поле меньше 3x3");
+
+        Files.write(file, "#######\n#0.x..#\n#######\n".getBytes(StandardCharsets.US_ASCII));
+        String message = null;
+        try {
+            TextMapFormat.read(file, 30);
+        } catch (IOException ex) {
+            message = ex.getMessage();
+        }
+        assertEquals("Неверная карта " + file + ": недопустимый символ 'x' в строке 2", message,
+                "Неверное исключение при чтении файла.");
+
+        boolean tooManyStarts = false;
+        Point[] starts = new Point[11];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = new Point(1 + i, 1);
+        }
+        try {
+            TextMapFormat.write(new GameFieldMap(new Dimension(13, 3), 30, starts, new Point[0], new Point[0]), file);
+        } catch (IllegalArgumentException ex) {
+            tooManyStarts = true;
+        }
+        assertEquals(true, tooManyStarts, "Больше десяти расположений игроков должно вызывать исключение.");
+    }
+
+    private static void assertMalformed(String text, String expected) {
+        String message = null;
+        try {
+            parse(text);
+        } catch (IllegalStateException ex) {
+            message = ex.getMessage();
+        }
+        assertEquals(expected, message, "Неверное исключение для карты:\n" + text);
+    }
+}